@@ -0,0 +1,24 @@
+package simulator.benchmarks;
+
+import java.util.Arrays;
+
+/**
+ * BenchmarkMain class - entry point of benchmarks.jar. Runs JMH with the given arguments,
+ * adding the GC profiler (allocation rate and GC counts per operation) unless another
+ * profiler was asked for.
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar ForceSolverBenchmark -p n=1000,10000
+ * </pre>
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        if(!Arrays.asList(args).contains("-prof")) {
+            String[] withProfiler = Arrays.copyOf(args, args.length + 2);
+            withProfiler[args.length] = "-prof";
+            withProfiler[args.length + 1] = "gc";
+            args = withProfiler;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,60 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.physics.PhysicsEngine;
+import simulator.physics.StepScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PhysicsEngine.update with the default integrator, swept over worker thread counts to
+ * show how each solver scales. The cloud drifts slightly over a run, which is negligible
+ * against the step cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class EngineUpdateBenchmark {
+    @Param({"1", "2", "4", "8"})
+    int threads;
+
+    @Param({"direct", "direct-simd", "barnes-hut"})
+    String solver;
+
+    @Param({"1000", "10000"})
+    int n;
+
+    private PhysicsEngine engine;
+    private double timestep;
+
+    @Setup
+    public void setUp() {
+        engine = new PhysicsEngine(Workloads.bodies(n, 2), new StepScheduler(threads), false);
+        engine.setForceSolver(Workloads.solver(solver));
+        timestep = Workloads.timestep();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public void update() {
+        engine.update(timestep);
+    }
+}
@@ -0,0 +1,60 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.models.ParticleStore;
+import simulator.physics.ForceSolver;
+import simulator.physics.StepScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full acceleration evaluation per operation, for every solver on the same 2D cloud.
+ * The direct solvers at n = 100000 take seconds per operation; narrow the sweep with
+ * -p n=... when comparing them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class ForceSolverBenchmark {
+    @Param({"direct", "direct-simd", "symmetric", "barnes-hut", "fmm"})
+    String solver;
+
+    @Param({"100", "1000", "10000", "100000"})
+    int n;
+
+    private ParticleStore store;
+    private ForceSolver forceSolver;
+    private StepScheduler scheduler;
+
+    @Setup
+    public void setUp() {
+        store = Workloads.store(n, 2);
+        forceSolver = Workloads.solver(solver);
+        scheduler = new StepScheduler();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public double[] computeAccelerations() {
+        forceSolver.computeAccelerations(store, scheduler);
+        return store.getAccelerations();
+    }
+}
@@ -0,0 +1,57 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.physics.PhysicsEngine;
+import simulator.physics.StepScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One engine step per operation for each integrator, with the Barnes-Hut solver on the
+ * same cloud. Integrators differ mainly in how many force evaluations a step needs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Benchmark)
+public class IntegratorBenchmark {
+    @Param({"euler", "leapfrog", "yoshida", "rk4", "block"})
+    String integrator;
+
+    @Param({"1000", "10000"})
+    int n;
+
+    private PhysicsEngine engine;
+    private double timestep;
+
+    @Setup
+    public void setUp() {
+        engine = new PhysicsEngine(Workloads.bodies(n, 2), new StepScheduler(), false);
+        engine.setForceSolver(Workloads.solver("barnes-hut"));
+        engine.setIntegrator(Workloads.integrator(integrator));
+        timestep = Workloads.timestep();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Benchmark
+    public void step() {
+        engine.update(timestep);
+    }
+}
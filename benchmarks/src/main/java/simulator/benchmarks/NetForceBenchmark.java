@@ -0,0 +1,63 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+import simulator.models.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Body.getNetGravitationalForce on one body against n others, the per-body kernel the
+ * original engine ran for every body each step. Compare with ForceSolverBenchmark, which
+ * evaluates all n bodies at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetForceBenchmark {
+    @Param({"100", "1000", "10000", "100000"})
+    int n;
+
+    private List<Body> bodies;
+    private Body target;
+    private Vector result;
+    private Vector scratch;
+
+    @Setup
+    public void setUp() {
+        ParticleStore store = Workloads.store(n, 2);
+        bodies = new ArrayList<>(n);
+        for(int i = 0; i < n; i++) {
+            bodies.add(store.getView(i));
+        }
+        target = bodies.get(n / 2);
+        result = Vector.zero(2);
+        scratch = Vector.zero(2);
+    }
+
+    @Benchmark
+    public Vector netForce() {
+        return target.getNetGravitationalForce(bodies);
+    }
+
+    @Benchmark
+    public Vector netForceInPlace() {
+        return target.getNetGravitationalForce(bodies, result, scratch);
+    }
+}
@@ -0,0 +1,85 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.models.ParticleStore;
+import simulator.physics.StepScheduler;
+import simulator.render.DensityMap;
+import simulator.render.SpriteRasterizer;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 1280x720 frame per operation into an offscreen pixel array, through the point-sprite
+ * rasterizer and the density map. These are the CPU halves of PointSpriteRenderer and
+ * DensityMapRenderer; CanvasRenderer needs a running JavaFX toolkit and is left out.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final int BACKGROUND = 0xFF000000;
+    // the cloud spans 1000 world units, which fills the frame's height
+    private static final double SCALE = HEIGHT / 1000.0;
+
+    @Param({"1000", "10000", "100000"})
+    int n;
+
+    private StepScheduler scheduler;
+    private SpriteRasterizer rasterizer;
+    private DensityMap densityMap;
+    private ParticleStore store;
+    private int[] pixels;
+    private int[] fill;
+    private int[] border;
+    private double[] borderWidth;
+
+    @Setup
+    public void setUp() {
+        scheduler = new StepScheduler();
+        rasterizer = new SpriteRasterizer(scheduler);
+        densityMap = new DensityMap(scheduler, 2);
+        store = Workloads.store(n, 2);
+        pixels = new int[WIDTH * HEIGHT];
+        fill = new int[n];
+        border = new int[n];
+        borderWidth = new double[n];
+        Arrays.fill(fill, 0xFFFFFFFF);
+        Arrays.fill(border, 0xFF808080);
+        Arrays.fill(borderWidth, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Benchmark
+    public int[] sprites() {
+        rasterizer.rasterize(pixels, WIDTH, HEIGHT, BACKGROUND, store.getPositions(), 2, store.getRadii(), n,
+                fill, border, borderWidth, SCALE);
+        return pixels;
+    }
+
+    @Benchmark
+    public int[] density() {
+        densityMap.render(pixels, WIDTH, HEIGHT, BACKGROUND, store.getPositions(), 2, n, SCALE);
+        return pixels;
+    }
+}
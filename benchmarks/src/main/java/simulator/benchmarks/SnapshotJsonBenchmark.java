@@ -0,0 +1,48 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.cloud.ExperimentLogger;
+import simulator.models.Body;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing an experiment snapshot to JSON, the work the snapshot pipeline's exporter
+ * thread does for each snapshot before posting a batch. The HTTP post itself is not measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotJsonBenchmark {
+    @Param({"100", "1000", "10000"})
+    int n;
+
+    private List<Body> bodies;
+    private Map<String, Double> metrics;
+
+    @Setup
+    public void setUp() {
+        bodies = Workloads.bodies(n, 2);
+        metrics = Map.of("stepP50Ms", 1.25, "stepP99Ms", 4.5, "interactionsPerSecond", 2.5e8);
+    }
+
+    @Benchmark
+    public String buildSnapshotJson() {
+        return ExperimentLogger.buildSnapshotJson("NBODY_GRAVITATIONAL", bodies, 60.0, 1000, metrics);
+    }
+}
@@ -0,0 +1,85 @@
+package simulator.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import simulator.models.Vector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vector operations, allocating and in place. The GC profiler's gc.alloc.rate.norm shows
+ * the bytes each allocating operation costs.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VectorBenchmark {
+    @Param({"2", "3"})
+    int dimension;
+
+    private Vector a;
+    private Vector b;
+    private Vector result;
+    private double[] flat;
+
+    @Setup
+    public void setUp() {
+        a = Vector.zero(dimension);
+        b = Vector.zero(dimension);
+        flat = new double[2 * dimension];
+        for(int dim = 0; dim < dimension; dim++) {
+            a.setValue(dim, 1.5 + dim);
+            b.setValue(dim, -0.5 * dim + 3);
+            flat[dim] = a.getValue(dim);
+            flat[dimension + dim] = b.getValue(dim);
+        }
+        result = Vector.zero(dimension);
+    }
+
+    @Benchmark
+    public Vector plus() {
+        return a.plus(b);
+    }
+
+    @Benchmark
+    public Vector times() {
+        return a.times(1.5);
+    }
+
+    @Benchmark
+    public double magnitude() {
+        return a.getMagnitude();
+    }
+
+    @Benchmark
+    public Vector unit() {
+        return a.getUnit();
+    }
+
+    @Benchmark
+    public double distanceSquared() {
+        return a.distanceSquared(b);
+    }
+
+    @Benchmark
+    public Vector scaledAddInPlace() {
+        return result.set(a).scaledAddInPlace(0.5, b);
+    }
+
+    @Benchmark
+    public Vector setDifference() {
+        return result.setDifference(flat, 0, flat, dimension);
+    }
+}
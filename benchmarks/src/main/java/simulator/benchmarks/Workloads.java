@@ -0,0 +1,75 @@
+package simulator.benchmarks;
+
+import simulator.batch.Scenario;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+import simulator.physics.ForceSolver;
+import simulator.physics.Integrator;
+
+import java.util.List;
+
+/**
+ * Workloads class - builds the inputs every benchmark shares, so solver modes, thread counts
+ * and integrators are compared on identical particles. Bodies come from Scenario.random with
+ * a fixed seed: a cold uniform cloud of equal masses in a cube of side 1000.
+ */
+final class Workloads {
+    static final long SEED = 42;
+
+    private Workloads() {
+    }
+
+    /**
+     * Generate bodies, each still in its own store
+     * @param count number of bodies
+     * @param dimension dimension of the bodies
+     * @return the bodies
+     */
+    static List<Body> bodies(int count, int dimension) {
+        return Scenario.random(count, dimension, SEED).getBodies();
+    }
+
+    /**
+     * Generate bodies and move them into one shared store
+     * @param count number of bodies
+     * @param dimension dimension of the bodies
+     * @return the store holding the bodies
+     */
+    static ParticleStore store(int count, int dimension) {
+        ParticleStore store = new ParticleStore(dimension, count);
+        for(Body body : bodies(count, dimension)) {
+            store.add(body);
+        }
+        return store;
+    }
+
+    /**
+     * Create a solver by name
+     * @param name any solver name Scenario accepts
+     * @return a new solver
+     */
+    static ForceSolver solver(String name) {
+        Scenario scenario = Scenario.random(0, 2, SEED);
+        scenario.set("solver", name);
+        return scenario.createForceSolver();
+    }
+
+    /**
+     * Create an integrator by name
+     * @param name any integrator name Scenario accepts
+     * @return a new integrator
+     */
+    static Integrator integrator(String name) {
+        Scenario scenario = Scenario.random(0, 2, SEED);
+        scenario.set("integrator", name);
+        return scenario.createIntegrator();
+    }
+
+    /**
+     * Timestep getter
+     * @return the default scenario timestep, used by every stepping benchmark
+     */
+    static double timestep() {
+        return Scenario.random(0, 2, SEED).getTimestep();
+    }
+}
@@ -0,0 +1,275 @@
+package com.simulator.experiments.codec;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.ParticleSnapshot;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes experiments in the binary snapshot format (application/x-simulator-snapshot),
+ * a columnar alternative to JSON for large particle arrays. All numbers are little-endian.
+ *
+ * A body is the magic "EXPS", a version byte, then any number of records until the end of the body:
+ *
+ *   u32 recordLength        bytes after this field
+ *   u32 headerLength
+ *   header                  UTF-8 JSON of every experiment field except particles
+ *   u32 count               particles
+ *   u8  flags               1 = ids present, 2 = colors present, 4 = particles absent (null)
+ *   i32 ids[count]          if flagged; otherwise particle i has id i, -1 is null
+ *   f64 positions[2*count]  x, y per particle
+ *   f64 velocities[2*count] vx, vy per particle
+ *   f64 masses[count]
+ *   f64 radii[count]
+ *   i32 colors[count]       if flagged; 0xRRGGBB, -1 is null
+ *
+ * Null positions, velocities, masses and radii are written as NaN and read back as null.
+ */
+@Component
+public class ExperimentBinaryCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-simulator-snapshot";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    private static final byte[] MAGIC = {'E', 'X', 'P', 'S'};
+    private static final int VERSION = 1;
+    private static final int FLAG_IDS = 1;
+    private static final int FLAG_COLORS = 2;
+    private static final int FLAG_NO_PARTICLES = 4;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    // a record larger than this is treated as corrupt rather than allocated
+    private static final int MAX_RECORD_LENGTH = 512 * 1024 * 1024;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private ObjectReader headerReader;
+    private ObjectWriter headerWriter;
+
+    @JsonIgnoreProperties({"particles"})
+    private abstract static class HeaderMixin {}
+
+    @PostConstruct
+    void init() {
+        ObjectMapper headerMapper = objectMapper.copy().addMixIn(Experiment.class, HeaderMixin.class);
+        headerReader = headerMapper.readerFor(Experiment.class);
+        headerWriter = headerMapper.writerFor(Experiment.class);
+    }
+
+    /**
+     * Start a body: write the magic and version
+     */
+    public void writeStart(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+    }
+
+    /**
+     * Check the magic and version at the start of a body
+     * @throws ExperimentFormatException if the body does not start like a binary snapshot body
+     */
+    public void readStart(InputStream in) throws IOException {
+        byte[] start = in.readNBytes(MAGIC.length + 1);
+        if (start.length < MAGIC.length + 1
+                || start[0] != MAGIC[0] || start[1] != MAGIC[1] || start[2] != MAGIC[2] || start[3] != MAGIC[3]) {
+            throw new ExperimentFormatException("Body is not in the " + MEDIA_TYPE_VALUE + " format");
+        }
+        if (start[MAGIC.length] != VERSION) {
+            throw new ExperimentFormatException("Unsupported " + MEDIA_TYPE_VALUE + " version (currently " + start[MAGIC.length] + ")");
+        }
+    }
+
+    /**
+     * Write one experiment as a record
+     */
+    public void write(Experiment experiment, OutputStream out) throws IOException {
+        byte[] header = headerWriter.writeValueAsBytes(experiment);
+        List<ParticleSnapshot> particles = experiment.getParticles();
+        int count = particles != null ? particles.size() : 0;
+
+        int flags = particles == null ? FLAG_NO_PARTICLES : 0;
+        for (int i = 0; i < count; i++) {
+            ParticleSnapshot particle = particles.get(i);
+            if (particle.getId() == null || particle.getId() != i) {
+                flags |= FLAG_IDS;
+            }
+            if (particle.getColor() != null) {
+                flags |= FLAG_COLORS;
+            }
+        }
+
+        long perParticle = 48L + ((flags & FLAG_IDS) != 0 ? 4 : 0) + ((flags & FLAG_COLORS) != 0 ? 4 : 0);
+        long recordLength = 4L + header.length + 4 + 1 + perParticle * count;
+        if (recordLength > MAX_RECORD_LENGTH) {
+            throw new ExperimentFormatException("Experiment too large for one record (currently " + recordLength + " bytes)");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + (int) recordLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt((int) recordLength);
+        buffer.putInt(header.length);
+        buffer.put(header);
+        buffer.putInt(count);
+        buffer.put((byte) flags);
+        if ((flags & FLAG_IDS) != 0) {
+            for (int i = 0; i < count; i++) {
+                Integer id = particles.get(i).getId();
+                buffer.putInt(id != null ? id : -1);
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            putPair(buffer, particles.get(i).getPosition());
+        }
+        for (int i = 0; i < count; i++) {
+            putPair(buffer, particles.get(i).getVelocity());
+        }
+        for (int i = 0; i < count; i++) {
+            Double mass = particles.get(i).getMass();
+            buffer.putDouble(mass != null ? mass : Double.NaN);
+        }
+        for (int i = 0; i < count; i++) {
+            Double radius = particles.get(i).getRadius();
+            buffer.putDouble(radius != null ? radius : Double.NaN);
+        }
+        if ((flags & FLAG_COLORS) != 0) {
+            for (int i = 0; i < count; i++) {
+                buffer.putInt(parseColor(particles.get(i).getColor()));
+            }
+        }
+        out.write(buffer.array());
+    }
+
+    /**
+     * Read the next record
+     * @return the experiment, or null at the end of the body
+     * @throws ExperimentFormatException if the record is malformed or cut short
+     */
+    public Experiment read(InputStream in) throws IOException {
+        byte[] lengthBytes = in.readNBytes(4);
+        if (lengthBytes.length == 0) {
+            return null;
+        }
+        if (lengthBytes.length < 4) {
+            throw new ExperimentFormatException("Record length cut short");
+        }
+        int recordLength = ByteBuffer.wrap(lengthBytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (recordLength < 9 || recordLength > MAX_RECORD_LENGTH) {
+            throw new ExperimentFormatException("Invalid record length (currently " + recordLength + ")");
+        }
+        byte[] record = in.readNBytes(recordLength);
+        if (record.length < recordLength) {
+            throw new ExperimentFormatException("Record cut short (" + record.length + " of " + recordLength + " bytes)");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(record).order(ByteOrder.LITTLE_ENDIAN);
+        int headerLength = buffer.getInt();
+        if (headerLength < 0 || headerLength > recordLength - 9) {
+            throw new ExperimentFormatException("Invalid header length (currently " + headerLength + ")");
+        }
+        Experiment experiment = headerReader.readValue(record, 4, headerLength);
+        buffer.position(4 + headerLength);
+        int count = buffer.getInt();
+        int flags = buffer.get() & 0xFF;
+
+        long perParticle = 48L + ((flags & FLAG_IDS) != 0 ? 4 : 0) + ((flags & FLAG_COLORS) != 0 ? 4 : 0);
+        if (count < 0 || perParticle * count != buffer.remaining()) {
+            throw new ExperimentFormatException("Particle columns do not match the record length (count " + count + ")");
+        }
+        if ((flags & FLAG_NO_PARTICLES) != 0) {
+            experiment.setParticles(null);
+            return experiment;
+        }
+
+        int idsAt = buffer.position();
+        int positionsAt = idsAt + ((flags & FLAG_IDS) != 0 ? 4 * count : 0);
+        int velocitiesAt = positionsAt + 16 * count;
+        int massesAt = velocitiesAt + 16 * count;
+        int radiiAt = massesAt + 8 * count;
+        int colorsAt = radiiAt + 8 * count;
+
+        List<ParticleSnapshot> particles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Integer id = i;
+            if ((flags & FLAG_IDS) != 0) {
+                int value = buffer.getInt(idsAt + 4 * i);
+                id = value != -1 ? value : null;
+            }
+            String color = null;
+            if ((flags & FLAG_COLORS) != 0) {
+                color = formatColor(buffer.getInt(colorsAt + 4 * i));
+            }
+            particles.add(new ParticleSnapshot(
+                    id,
+                    getPair(buffer, positionsAt + 16 * i),
+                    getPair(buffer, velocitiesAt + 16 * i),
+                    getNullable(buffer, massesAt + 8 * i),
+                    getNullable(buffer, radiiAt + 8 * i),
+                    color));
+        }
+        experiment.setParticles(particles);
+        if (experiment.getParticleCount() == null) {
+            experiment.setParticleCount(count);
+        }
+        return experiment;
+    }
+
+    private static void putPair(ByteBuffer buffer, double[] pair) {
+        if (pair == null || pair.length == 0) {
+            buffer.putDouble(Double.NaN);
+            buffer.putDouble(Double.NaN);
+        } else {
+            buffer.putDouble(pair[0]);
+            buffer.putDouble(pair.length > 1 ? pair[1] : 0);
+        }
+    }
+
+    private static double[] getPair(ByteBuffer buffer, int at) {
+        double x = buffer.getDouble(at);
+        double y = buffer.getDouble(at + 8);
+        if (Double.isNaN(x) && Double.isNaN(y)) {
+            return null;
+        }
+        return new double[]{x, y};
+    }
+
+    private static Double getNullable(ByteBuffer buffer, int at) {
+        double value = buffer.getDouble(at);
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static int parseColor(String color) {
+        if (color == null || color.length() != 7 || color.charAt(0) != '#') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(color, 1, 7, 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String formatColor(int rgb) {
+        if (rgb == -1) {
+            return null;
+        }
+        char[] hex = new char[7];
+        hex[0] = '#';
+        for (int i = 1, shift = 20; i < 7; i++, shift -= 4) {
+            hex[i] = HEX[(rgb >>> shift) & 0xF];
+        }
+        return new String(hex);
+    }
+}
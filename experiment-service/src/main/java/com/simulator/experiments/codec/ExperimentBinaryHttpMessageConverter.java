@@ -0,0 +1,110 @@
+package com.simulator.experiments.codec;
+
+import com.simulator.experiments.model.Experiment;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lets controllers read and write an Experiment or a list of experiments as
+ * application/x-simulator-snapshot when the request's Content-Type or Accept header asks for it.
+ * JSON stays the default; this converter is only chosen by content negotiation.
+ */
+public class ExperimentBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    private final ExperimentBinaryCodec codec;
+
+    public ExperimentBinaryHttpMessageConverter(ExperimentBinaryCodec codec) {
+        super(ExperimentBinaryCodec.MEDIA_TYPE);
+        this.codec = codec;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Experiment.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isExperimentType(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (type != null ? isExperimentType(type) : supports(clazz)) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        if (ResolvableType.forType(type).toClass() == Experiment.class) {
+            return readInternal(Experiment.class, inputMessage);
+        }
+        InputStream in = inputMessage.getBody();
+        List<Experiment> experiments = new ArrayList<>();
+        try {
+            codec.readStart(in);
+            Experiment experiment;
+            while ((experiment = codec.read(in)) != null) {
+                experiments.add(experiment);
+            }
+        } catch (ExperimentFormatException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+        return experiments;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        InputStream in = inputMessage.getBody();
+        try {
+            codec.readStart(in);
+            Experiment experiment = codec.read(in);
+            if (experiment == null) {
+                throw new ExperimentFormatException("Body holds no experiment");
+            }
+            return experiment;
+        } catch (ExperimentFormatException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        codec.writeStart(out);
+        if (value instanceof Experiment experiment) {
+            codec.write(experiment, out);
+        } else {
+            for (Object experiment : (Collection<?>) value) {
+                codec.write((Experiment) experiment, out);
+            }
+        }
+    }
+
+    /**
+     * Private helper to accept Experiment and collections of Experiment, nothing else
+     */
+    private static boolean isExperimentType(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> clazz = resolved.toClass();
+        if (Experiment.class.isAssignableFrom(clazz)) {
+            return true;
+        }
+        if (!Collection.class.isAssignableFrom(clazz)) {
+            return false;
+        }
+        Class<?> element = resolved.asCollection().resolveGeneric(0);
+        return element != null && Experiment.class.isAssignableFrom(element);
+    }
+}
@@ -0,0 +1,14 @@
+package com.simulator.experiments.codec;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a body in the binary snapshot format is malformed or truncated,
+ * as opposed to an IOException from the connection itself.
+ */
+public class ExperimentFormatException extends IOException {
+
+    public ExperimentFormatException(String message) {
+        super(message);
+    }
+}
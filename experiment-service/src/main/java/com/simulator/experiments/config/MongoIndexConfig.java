@@ -0,0 +1,58 @@
+package com.simulator.experiments.config;
+
+import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.Frame;
+import com.simulator.experiments.model.Run;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+/**
+ * Creates the indexes the experiment, run and frame queries rely on at startup. Spring Boot
+ * leaves annotation-driven index creation off, and creating an index that already exists
+ * is a no-op.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    void createIndexes() {
+        IndexOperations experiments = mongoTemplate.indexOps(Experiment.class);
+        // newest-first listings and their (timestamp, id) cursors
+        experiments.ensureIndex(new Index()
+                .on("timestamp", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("timestamp_id"));
+        // the same listings filtered by engine type
+        experiments.ensureIndex(new Index()
+                .on("engineType", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("engineType_timestamp_id"));
+
+        IndexOperations runs = mongoTemplate.indexOps(Run.class);
+        runs.ensureIndex(new Index()
+                .on("timestamp", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("timestamp_id"));
+        runs.ensureIndex(new Index()
+                .on("engineType", Sort.Direction.ASC)
+                .on("timestamp", Sort.Direction.DESC)
+                .on("_id", Sort.Direction.DESC)
+                .named("engineType_timestamp_id"));
+
+        // one frame per step of a run, and step ranges of a run read straight off the index
+        mongoTemplate.indexOps(Frame.class).ensureIndex(new Index()
+                .on("runId", Sort.Direction.ASC)
+                .on("step", Sort.Direction.ASC)
+                .unique()
+                .named("runId_step"));
+    }
+}
@@ -0,0 +1,26 @@
+package com.simulator.experiments.config;
+
+import com.simulator.experiments.codec.ExperimentBinaryCodec;
+import com.simulator.experiments.codec.ExperimentBinaryHttpMessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the binary snapshot format alongside Spring's JSON converter.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private ExperimentBinaryCodec codec;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // added last, so JSON still wins when the client accepts anything
+        converters.add(new ExperimentBinaryHttpMessageConverter(codec));
+    }
+}
@@ -0,0 +1,89 @@
+package com.simulator.experiments.controller;
+
+import com.simulator.experiments.model.IngestResult;
+import com.simulator.experiments.service.ListingPage;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Request and response handling shared by the experiment and run controllers:
+ * compressed ingest bodies, listing pages and the summary/full view switch.
+ */
+final class ControllerSupport {
+
+    /**
+     * Reads a decompressed body into the database
+     */
+    @FunctionalInterface
+    interface Ingest {
+        IngestResult apply(InputStream body) throws IOException;
+    }
+
+    private ControllerSupport() {}
+
+    /**
+     * Decompress a body as its Content-Encoding says, hand it to an ingest and answer with
+     * 201 when everything was stored, 207 when some documents were rejected and 400 when
+     * the body was malformed
+     */
+    static ResponseEntity<IngestResult> ingest(InputStream body, String contentEncoding, Ingest ingest) throws IOException {
+        IngestResult result;
+        if (contentEncoding == null || contentEncoding.isBlank() || contentEncoding.equalsIgnoreCase("identity")) {
+            result = ingest.apply(body);
+        } else if (contentEncoding.equalsIgnoreCase("gzip")) {
+            try (InputStream decompressed = new GZIPInputStream(body, 64 * 1024)) {
+                result = ingest.apply(decompressed);
+            } catch (ZipException | EOFException e) {
+                result = new IngestResult();
+                result.setError("Body is not valid gzip: " + e.getMessage());
+            }
+        } else {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).build();
+        }
+
+        HttpStatus status;
+        if (result.getError() != null) {
+            status = HttpStatus.BAD_REQUEST;
+        } else if (result.getFailed() > 0) {
+            status = HttpStatus.MULTI_STATUS;
+        } else {
+            status = HttpStatus.CREATED;
+        }
+        return ResponseEntity.status(status).body(result);
+    }
+
+    /**
+     * Answer with a page's items, and with X-Next-Cursor and Link headers when another page follows
+     */
+    static <T> ResponseEntity<List<T>> page(ListingPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString();
+            response.header("X-Next-Cursor", page.getNextCursor());
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getItems());
+    }
+
+    static boolean includeParticles(String view) {
+        if (view.equalsIgnoreCase("full")) {
+            return true;
+        }
+        if (view.equalsIgnoreCase("summary")) {
+            return false;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "View must be summary or full (currently " + view + ")");
+    }
+}
@@ -1,14 +1,27 @@
 package com.simulator.experiments.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simulator.experiments.codec.ExperimentBinaryCodec;
 import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.ExperimentFilter;
+import com.simulator.experiments.model.IngestResult;
 import com.simulator.experiments.repository.ExperimentRepository;
+import com.simulator.experiments.service.ExperimentIngestService;
+import com.simulator.experiments.service.ExperimentQueryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.Instant;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *  REST API controller for experiment data.
@@ -21,21 +34,116 @@ public class ExperimentController {
     @Autowired
     private ExperimentRepository repository;
 
+    @Autowired
+    private ExperimentIngestService ingestService;
+
+    @Autowired
+    private ExperimentQueryService queryService;
+
+    @Autowired
+    private ExperimentBinaryCodec binaryCodec;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+
+    /**
+     * List experiments newest first, one page at a time. Filters are engineType, from, to
+     * (ISO-8601, from inclusive), particleCount, minParticles and maxParticles. The particle
+     * arrays are left out unless view=full. When more experiments follow, the X-Next-Cursor
+     * and Link headers carry the cursor to pass back for the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<Experiment>> getAllExperiments() {
-        List<Experiment> experiments = repository.findAll();
-        return ResponseEntity.ok(experiments);
+    public ResponseEntity<List<Experiment>> getAllExperiments(
+            ExperimentFilter filter,
+            @RequestParam(defaultValue = "summary") String view,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ExperimentQueryService.DEFAULT_LIMIT) int limit) {
+        try {
+            return ControllerSupport.page(queryService.findPage(filter, ControllerSupport.includeParticles(view), cursor, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
     }
 
+    /**
+     * Fetch one experiment. Only experiments stored before runs embed their particles; the
+     * particles of newer ones are in the frame at their runId and step.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<Experiment> getExperiment(@PathVariable String id) {
+        return ResponseEntity.of(repository.findById(id));
+    }
+
+    /**
+     * Stream every experiment matching the same filters as the listing, newest first, straight
+     * off the Mongo cursor: as NDJSON, or in the binary snapshot format when the client accepts it.
+     * Memory stays flat however many experiments match.
+     */
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, ExperimentBinaryCodec.MEDIA_TYPE_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamExperiments(
+            ExperimentFilter filter,
+            @RequestParam(defaultValue = "summary") String view,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (limit != null && limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Limit must be positive (currently " + limit + ")");
+        }
+        boolean includeParticles = ControllerSupport.includeParticles(view);
+        boolean binary = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(ExperimentBinaryCodec.MEDIA_TYPE));
+
+        StreamingResponseBody body = out -> {
+            try (Stream<Experiment> experiments = queryService.stream(filter, includeParticles, limit)) {
+                Iterator<Experiment> iterator = experiments.iterator();
+                if (binary) {
+                    binaryCodec.writeStart(out);
+                }
+                while (iterator.hasNext()) {
+                    Experiment experiment = iterator.next();
+                    if (binary) {
+                        binaryCodec.write(experiment, out);
+                    } else {
+                        out.write(objectMapper.writeValueAsBytes(experiment));
+                        out.write('\n');
+                    }
+                }
+            }
+        };
+        MediaType contentType = binary ? ExperimentBinaryCodec.MEDIA_TYPE : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok().contentType(contentType).body(body);
+    }
+
+    /**
+     * Store one experiment the way batches are stored: its particles go to the frame at its
+     * runId and step, and the response is the stored summary.
+     */
     @PostMapping
-    public ResponseEntity<Experiment> createExperiment(@RequestBody Experiment experiment) {
-        if (experiment.getTimestamp() == null) {
-            experiment.setTimestamp(Instant.now());
+    public ResponseEntity<Experiment> createExperiment(@RequestBody Experiment experiment) throws IOException {
+        IngestResult result = ingestService.store(experiment);
+        if (result.getError() != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, result.getError());
         }
+        if (result.getInserted() == 0) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Run " + experiment.getRunId() + " already has step " + experiment.getStep());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(experiment);
+    }
 
-        Experiment saved = repository.save(experiment);
-        return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+    /**
+     * Store many experiments in one request, as the simulator's snapshot pipeline sends them.
+     * The body is a JSON array, NDJSON (application/x-ndjson) or the binary snapshot format
+     * (application/x-simulator-snapshot), optionally gzip-compressed with Content-Encoding: gzip,
+     * and is written to Mongo in unordered bulk inserts, each experiment as a frame of its run.
+     */
+    @PostMapping(value = {"/batch", "/bulk"},
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, ExperimentBinaryCodec.MEDIA_TYPE_VALUE})
+    public ResponseEntity<IngestResult> ingestExperiments(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        boolean binary = ExperimentBinaryCodec.MEDIA_TYPE.includes(contentType);
+        return ControllerSupport.ingest(body, contentEncoding, binary ? ingestService::ingestBinary : ingestService::ingest);
     }
     
 }
@@ -0,0 +1,110 @@
+package com.simulator.experiments.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.simulator.experiments.model.ExperimentFilter;
+import com.simulator.experiments.model.Frame;
+import com.simulator.experiments.model.IngestResult;
+import com.simulator.experiments.model.Run;
+import com.simulator.experiments.service.ExperimentQueryService;
+import com.simulator.experiments.service.FrameService;
+import com.simulator.experiments.service.RunService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * REST API controller for runs and their frames.
+ */
+@RestController
+@RequestMapping("/runs")
+@CrossOrigin(origins = "*")
+public class RunController {
+
+    @Autowired
+    private RunService runService;
+
+    @Autowired
+    private FrameService frameService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * List runs newest first, one page at a time, with the same filters as the experiment listing
+     */
+    @GetMapping
+    public ResponseEntity<List<Run>> getRuns(
+            ExperimentFilter filter,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + ExperimentQueryService.DEFAULT_LIMIT) int limit) {
+        try {
+            return ControllerSupport.page(runService.findPage(filter, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Run> getRun(@PathVariable String id) {
+        Run run = runService.find(id);
+        return run != null ? ResponseEntity.ok(run) : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping
+    public ResponseEntity<Run> createRun(@RequestBody Run run) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(runService.create(run));
+    }
+
+    /**
+     * Add frames to a run: one JSON frame, a JSON array or NDJSON, optionally gzip-compressed,
+     * written in unordered bulk inserts. A step the run already has is rejected and counted as failed.
+     */
+    @PostMapping(value = "/{id}/frames", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<IngestResult> appendFrames(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+            InputStream body) throws IOException {
+        if (runService.find(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ControllerSupport.ingest(body, contentEncoding, in -> frameService.append(id, in));
+    }
+
+    /**
+     * Stream a run's frames in step order as NDJSON, optionally limited to fromStep..toStep
+     * (both inclusive). Particles are left out unless view=full.
+     */
+    @GetMapping(value = "/{id}/frames", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> getFrames(
+            @PathVariable String id,
+            @RequestParam(required = false) Long fromStep,
+            @RequestParam(required = false) Long toStep,
+            @RequestParam(defaultValue = "summary") String view) {
+        boolean includeParticles = ControllerSupport.includeParticles(view);
+        if (runService.find(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try (Stream<Frame> frames = frameService.stream(id, fromStep, toStep, includeParticles)) {
+                Iterator<Frame> iterator = frames.iterator();
+                while (iterator.hasNext()) {
+                    out.write(objectMapper.writeValueAsBytes(iterator.next()));
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
@@ -10,13 +10,16 @@ import java.util.Map;
 /**
  * Flexible experiment data model for storing simulation runs.
  * Supports any physics engine type with extensible parameter/metrics storage.
- * Stores complete particle state snapshots for N-body simulations.
+ * On ingest the particle state goes to the Frame at (runId, step), so stored experiments
+ * are summaries; only documents written before runs existed still embed their particles.
  */
 @Document(collection = "experiments")
 public class Experiment {
 
     @Id
     private String id;
+    private String runId;             // the run this snapshot belongs to; one of its own when absent
+    private Long step;                // the snapshot's step within the run
     private Instant timestamp;
     private String engineType;
     private Integer particleCount;
@@ -35,6 +38,12 @@ public class Experiment {
     public String getId() { return id; }
     public void setId(String id) { this.id = id; }
 
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public Long getStep() { return step; }
+    public void setStep(Long step) { this.step = step; }
+
     public Instant getTimestamp() { return timestamp; }
     public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
 
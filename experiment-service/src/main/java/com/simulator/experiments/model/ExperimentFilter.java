@@ -0,0 +1,41 @@
+package com.simulator.experiments.model;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Instant;
+
+/**
+ * Query parameters that narrow an experiment listing. Every field is optional;
+ * from is inclusive and to is exclusive, both ISO-8601 instants.
+ */
+public class ExperimentFilter {
+
+    private String engineType;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private Instant to;
+    private Integer particleCount;
+    private Integer minParticles;
+    private Integer maxParticles;
+
+    public ExperimentFilter() {}
+
+    public String getEngineType() { return engineType; }
+    public void setEngineType(String engineType) { this.engineType = engineType; }
+
+    public Instant getFrom() { return from; }
+    public void setFrom(Instant from) { this.from = from; }
+
+    public Instant getTo() { return to; }
+    public void setTo(Instant to) { this.to = to; }
+
+    public Integer getParticleCount() { return particleCount; }
+    public void setParticleCount(Integer particleCount) { this.particleCount = particleCount; }
+
+    public Integer getMinParticles() { return minParticles; }
+    public void setMinParticles(Integer minParticles) { this.minParticles = minParticles; }
+
+    public Integer getMaxParticles() { return maxParticles; }
+    public void setMaxParticles(Integer maxParticles) { this.maxParticles = maxParticles; }
+}
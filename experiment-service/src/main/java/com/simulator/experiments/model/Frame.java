@@ -0,0 +1,63 @@
+package com.simulator.experiments.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The particle state of one run at one step, plus the measurements taken then.
+ * (runId, step) is unique. Frames too large to embed keep their particles in GridFS,
+ * in the binary snapshot format, and record the file's id in particlesFileId instead.
+ */
+@Document(collection = "frames")
+public class Frame {
+
+    @Id
+    private String id;
+    private String runId;
+    private Long step;
+    private Instant timestamp;
+    private Integer particleCount;
+    private Double avgFPS;
+    private Long computeTimeMs;
+
+    private Map<String, Object> metrics;
+
+    private List<ParticleSnapshot> particles;
+    private String particlesFileId;
+
+    public Frame() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public Long getStep() { return step; }
+    public void setStep(Long step) { this.step = step; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public Integer getParticleCount() { return particleCount; }
+    public void setParticleCount(Integer particleCount) { this.particleCount = particleCount; }
+
+    public Double getAvgFPS() { return avgFPS; }
+    public void setAvgFPS(Double avgFPS) { this.avgFPS = avgFPS; }
+
+    public Long getComputeTimeMs() { return computeTimeMs; }
+    public void setComputeTimeMs(Long computeTimeMs) { this.computeTimeMs = computeTimeMs; }
+
+    public Map<String, Object> getMetrics() { return metrics; }
+    public void setMetrics(Map<String, Object> metrics) { this.metrics = metrics; }
+
+    public List<ParticleSnapshot> getParticles() { return particles; }
+    public void setParticles(List<ParticleSnapshot> particles) { this.particles = particles; }
+
+    public String getParticlesFileId() { return particlesFileId; }
+    public void setParticlesFileId(String particlesFileId) { this.particlesFileId = particlesFileId; }
+}
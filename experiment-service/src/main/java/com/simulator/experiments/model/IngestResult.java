@@ -0,0 +1,31 @@
+package com.simulator.experiments.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of a bulk ingest request: how many experiments were read from the body,
+ * how many Mongo stored and how many it rejected. error is set when the body could
+ * not be read to the end; everything read before that point is still stored.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestResult {
+
+    private long received;
+    private long inserted;
+    private long failed;
+    private String error;
+
+    public IngestResult() {}
+
+    public long getReceived() { return received; }
+    public void setReceived(long received) { this.received = received; }
+
+    public long getInserted() { return inserted; }
+    public void setInserted(long inserted) { this.inserted = inserted; }
+
+    public long getFailed() { return failed; }
+    public void setFailed(long failed) { this.failed = failed; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
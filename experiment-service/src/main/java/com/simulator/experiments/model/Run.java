@@ -0,0 +1,59 @@
+package com.simulator.experiments.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * One simulation run: what was simulated and how, stored once. The particle state over
+ * time lives in Frame documents keyed by the run's id and the step, so the run document
+ * stays small however long the run is.
+ */
+@Document(collection = "runs")
+public class Run {
+
+    @Id
+    private String id;
+    private Instant timestamp;        // when the run started
+    private String engineType;
+    private Integer particleCount;
+
+    private Map<String, Object> parameters;
+    private Map<String, Object> metadata;
+
+    // maintained as frames arrive
+    private Long frameCount;
+    private Long lastStep;
+    private Instant lastTimestamp;
+
+    public Run() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+
+    public String getEngineType() { return engineType; }
+    public void setEngineType(String engineType) { this.engineType = engineType; }
+
+    public Integer getParticleCount() { return particleCount; }
+    public void setParticleCount(Integer particleCount) { this.particleCount = particleCount; }
+
+    public Map<String, Object> getParameters() { return parameters; }
+    public void setParameters(Map<String, Object> parameters) { this.parameters = parameters; }
+
+    public Map<String, Object> getMetadata() { return metadata; }
+    public void setMetadata(Map<String, Object> metadata) { this.metadata = metadata; }
+
+    public Long getFrameCount() { return frameCount; }
+    public void setFrameCount(Long frameCount) { this.frameCount = frameCount; }
+
+    public Long getLastStep() { return lastStep; }
+    public void setLastStep(Long lastStep) { this.lastStep = lastStep; }
+
+    public Instant getLastTimestamp() { return lastTimestamp; }
+    public void setLastTimestamp(Instant lastTimestamp) { this.lastTimestamp = lastTimestamp; }
+}
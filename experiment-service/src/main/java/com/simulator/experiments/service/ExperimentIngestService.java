@@ -0,0 +1,268 @@
+package com.simulator.experiments.service;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.simulator.experiments.codec.ExperimentBinaryCodec;
+import com.simulator.experiments.codec.ExperimentFormatException;
+import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.Frame;
+import com.simulator.experiments.model.IngestResult;
+import com.simulator.experiments.model.Run;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams experiments out of a request body into Mongo with unordered bulk inserts.
+ * The body may be a JSON array, newline-delimited JSON (one experiment per line) or
+ * the binary snapshot format; either way experiments are parsed one at a time and
+ * written every batch-size documents, so a request holds at most one batch in memory
+ * however large it is.
+ * Each experiment is a snapshot of a run and is stored as that run's frame at its step:
+ * the run is created the first time its runId is seen (an experiment without one becomes
+ * a run of its own at step 0), the particles go into the frame through FrameService, and
+ * the experiment document keeps only the summary fields, runId and step.
+ * Unordered inserts let Mongo keep writing past a rejected frame, and the ones
+ * it rejects are counted rather than failing the whole request.
+ */
+@Service
+public class ExperimentIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExperimentIngestService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExperimentBinaryCodec codec;
+
+    @Autowired
+    private RunService runService;
+
+    @Autowired
+    private FrameService frameService;
+
+    @Value("${experiments.ingest.batch-size:500}")
+    private int batchSize;
+
+    private ObjectReader reader;
+
+    @PostConstruct
+    void init() {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("experiments.ingest.batch-size must be positive (currently " + batchSize + ")");
+        }
+        reader = objectMapper.readerFor(Experiment.class);
+    }
+
+    /**
+     * Read every experiment in a JSON body and store it. Experiments without a timestamp get the time the request arrived.
+     * @param body a JSON array or NDJSON stream of experiments, already decompressed
+     * @return counts of experiments read, stored and rejected, e.g. for a step the run already has
+     * @throws IOException if the body cannot be read from the client
+     */
+    public IngestResult ingest(InputStream body) throws IOException {
+        IngestResult result = new IngestResult();
+        Batch batch = new Batch(batchSize);
+        try {
+            // a root-level array is unwrapped, so arrays and NDJSON read the same way
+            try (MappingIterator<Experiment> experiments = reader.readValues(body)) {
+                while (experiments.hasNextValue()) {
+                    if (!add(experiments.nextValue(), batch, result)) {
+                        break;
+                    }
+                }
+            } catch (JacksonException e) {
+                // keep what parsed cleanly; the client learns where the body went wrong
+                result.setError(e.getOriginalMessage());
+            }
+            flush(batch, result);
+        } catch (IOException | RuntimeException e) {
+            // the frames read so far will never be inserted, so neither is anything pointing at their files
+            frameService.discard(batch.frames);
+            throw e;
+        }
+        log.debug("Ingested {} experiments ({} inserted, {} failed)", result.getReceived(), result.getInserted(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Read every experiment in a body in the binary snapshot format and store it, like ingest
+     * @param body records in the application/x-simulator-snapshot format, already decompressed
+     * @return counts of experiments read, stored and rejected
+     * @throws IOException if the body cannot be read from the client
+     */
+    public IngestResult ingestBinary(InputStream body) throws IOException {
+        IngestResult result = new IngestResult();
+        Batch batch = new Batch(batchSize);
+        try {
+            try {
+                codec.readStart(body);
+                Experiment experiment;
+                while ((experiment = codec.read(body)) != null) {
+                    if (!add(experiment, batch, result)) {
+                        break;
+                    }
+                }
+            } catch (ExperimentFormatException | JacksonException e) {
+                result.setError(e.getMessage());
+            }
+            flush(batch, result);
+        } catch (IOException | RuntimeException e) {
+            frameService.discard(batch.frames);
+            throw e;
+        }
+        log.debug("Ingested {} binary experiments ({} inserted, {} failed)", result.getReceived(), result.getInserted(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Store a single experiment, like ingest. Its id is assigned here, since bulk inserts do
+     * not write generated ids back.
+     * @param experiment experiment to store; on return it holds its id, runId and step and no particles
+     * @return counts of one experiment read, stored or rejected
+     * @throws IOException if its particles cannot be stored
+     */
+    public IngestResult store(Experiment experiment) throws IOException {
+        IngestResult result = new IngestResult();
+        Batch batch = new Batch(1);
+        if (experiment.getId() == null) {
+            experiment.setId(new ObjectId().toHexString());
+        }
+        try {
+            if (add(experiment, batch, result)) {
+                flush(batch, result);
+            }
+        } catch (IOException | RuntimeException e) {
+            frameService.discard(batch.frames);
+            throw e;
+        }
+        return result;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Private helper to split an experiment into its run, its frame and its summary and queue them
+     * @return false if the experiment is invalid, with the result's error set
+     */
+    private boolean add(Experiment experiment, Batch batch, IngestResult result) throws IOException {
+        if (experiment.getRunId() != null && experiment.getStep() == null) {
+            result.setError("Experiment " + result.getReceived() + " has a runId but no step");
+            return false;
+        }
+        if (experiment.getTimestamp() == null) {
+            experiment.setTimestamp(batch.now);
+        }
+        if (experiment.getRunId() == null) {
+            experiment.setRunId(new ObjectId().toHexString());
+            experiment.setStep(0L);
+        }
+        if (experiment.getParticles() != null && experiment.getParticleCount() == null) {
+            experiment.setParticleCount(experiment.getParticles().size());
+        }
+        batch.runs.computeIfAbsent(experiment.getRunId(), id -> run(experiment));
+        batch.frames.add(frameService.prepare(frame(experiment)));
+        experiment.setParticles(null);
+        batch.experiments.add(experiment);
+        result.setReceived(result.getReceived() + 1);
+        if (batch.frames.size() >= batchSize) {
+            flush(batch, result);
+        }
+        return true;
+    }
+
+    /**
+     * Private helper to write a batch: its runs, then its frames, then the summaries of the frames Mongo accepted
+     */
+    private void flush(Batch batch, IngestResult result) {
+        if (batch.frames.isEmpty()) {
+            return;
+        }
+        runService.createAbsent(batch.runs.values());
+        batch.runs.clear();
+        BitSet rejected = frameService.insert(batch.frames, result);
+        List<Experiment> summaries = new ArrayList<>(batch.experiments.size());
+        for (int i = 0; i < batch.experiments.size(); i++) {
+            if (!rejected.get(i)) {
+                summaries.add(batch.experiments.get(i));
+            }
+        }
+        batch.experiments.clear();
+        if (summaries.isEmpty()) {
+            return;
+        }
+
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Experiment.class);
+        operations.insert(summaries);
+        try {
+            operations.execute();
+        } catch (BulkOperationException e) {
+            // the frames hold the data and are stored; only these listing entries are missing
+            log.warn("Bulk insert rejected {} of {} experiment summaries: {}", e.getErrors().size(), summaries.size(),
+                    e.getErrors().isEmpty() ? e.getMessage() : e.getErrors().get(0).getMessage());
+        }
+    }
+
+    private static Run run(Experiment experiment) {
+        Run run = new Run();
+        run.setId(experiment.getRunId());
+        run.setTimestamp(experiment.getTimestamp());
+        run.setEngineType(experiment.getEngineType());
+        run.setParticleCount(experiment.getParticleCount());
+        run.setParameters(experiment.getParameters());
+        run.setMetadata(experiment.getMetadata());
+        return run;
+    }
+
+    private static Frame frame(Experiment experiment) {
+        Frame frame = new Frame();
+        frame.setRunId(experiment.getRunId());
+        frame.setStep(experiment.getStep());
+        frame.setTimestamp(experiment.getTimestamp());
+        frame.setParticleCount(experiment.getParticleCount());
+        frame.setAvgFPS(experiment.getAvgFPS());
+        frame.setComputeTimeMs(experiment.getComputeTimeMs());
+        frame.setMetrics(experiment.getMetrics());
+        frame.setParticles(experiment.getParticles());
+        return frame;
+    }
+
+    /**
+     * The runs, frames and summaries of one request waiting for the next bulk write
+     */
+    private static class Batch {
+        private final Instant now = Instant.now();
+        private final Map<String, Run> runs = new LinkedHashMap<>();
+        private final List<Frame> frames;
+        private final List<Experiment> experiments;
+
+        Batch(int size) {
+            frames = new ArrayList<>(size);
+            experiments = new ArrayList<>(size);
+        }
+    }
+}
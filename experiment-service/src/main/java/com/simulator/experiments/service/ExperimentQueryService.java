@@ -0,0 +1,91 @@
+package com.simulator.experiments.service;
+
+import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.ExperimentFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Reads experiments newest first, a page or a cursor at a time, so no request holds
+ * the whole collection. Pages are keyed by (timestamp, id) rather than skip/offset;
+ * see KeysetCursor. Listings leave out the particle arrays unless asked for them.
+ */
+@Service
+public class ExperimentQueryService {
+
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 1000;
+    // documents fetched per round trip while streaming
+    private static final int STREAM_BATCH_SIZE = 64;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Read one page of experiments matching a filter, newest first
+     * @param filter conditions every experiment must meet
+     * @param includeParticles false to leave out the particle arrays
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit most experiments on the page, at most MAX_LIMIT
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of range
+     */
+    public ListingPage<Experiment> findPage(ExperimentFilter filter, boolean includeParticles, String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_LIMIT + " (currently " + limit + ")");
+        }
+        Query query = query(filter, includeParticles, cursor);
+        // one extra row tells whether another page follows without a count query
+        query.limit(limit + 1);
+        List<Experiment> experiments = new ArrayList<>(mongoTemplate.find(query, Experiment.class));
+        String nextCursor = null;
+        if (experiments.size() > limit) {
+            experiments.remove(limit);
+            Experiment last = experiments.get(limit - 1);
+            nextCursor = KeysetCursor.encode(last.getTimestamp(), last.getId());
+        }
+        return new ListingPage<>(experiments, nextCursor);
+    }
+
+    /**
+     * Open a cursor over every experiment matching a filter, newest first. The stream reads
+     * from Mongo as it is consumed and must be closed.
+     * @param filter conditions every experiment must meet
+     * @param includeParticles false to leave out the particle arrays
+     * @param limit most experiments to read, or null for all of them
+     * @return experiments in listing order
+     */
+    public Stream<Experiment> stream(ExperimentFilter filter, boolean includeParticles, Integer limit) {
+        Query query = query(filter, includeParticles, null);
+        if (limit != null) {
+            query.limit(limit);
+        }
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+        return mongoTemplate.stream(query, Experiment.class);
+    }
+
+    private Query query(ExperimentFilter filter, boolean includeParticles, String cursor) {
+        List<Criteria> conditions = ListingFilters.criteria(filter);
+        if (cursor != null) {
+            conditions.add(KeysetCursor.after(cursor));
+        }
+
+        Query query = new Query();
+        if (!conditions.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(conditions));
+        }
+        query.with(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id")));
+        if (!includeParticles) {
+            query.fields().exclude("particles");
+        }
+        return query;
+    }
+}
@@ -0,0 +1,284 @@
+package com.simulator.experiments.service;
+
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import com.simulator.experiments.codec.ExperimentBinaryCodec;
+import com.simulator.experiments.model.Experiment;
+import com.simulator.experiments.model.Frame;
+import com.simulator.experiments.model.IngestResult;
+import com.simulator.experiments.model.Run;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Stores and reads the frames of a run. Frames arrive as one JSON object, a JSON array or
+ * NDJSON, or as experiment snapshots through ExperimentIngestService, and are written in
+ * unordered bulk inserts. A frame with more than inline-max-particles particles would push
+ * its document toward Mongo's 16 MB limit, so its particles go to GridFS in the binary
+ * snapshot format and the frame keeps only the file's id.
+ * Reads walk the unique (runId, step) index, so a step range of one run costs a range scan
+ * whatever else is stored.
+ */
+@Service
+public class FrameService {
+
+    private static final Logger log = LoggerFactory.getLogger(FrameService.class);
+    private static final String PARTICLES_FILE_CONTENT_TYPE = ExperimentBinaryCodec.MEDIA_TYPE_VALUE;
+    // documents fetched per round trip while streaming
+    private static final int STREAM_BATCH_SIZE = 64;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private GridFsTemplate gridFsTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ExperimentBinaryCodec codec;
+
+    @Autowired
+    private RunService runService;
+
+    @Value("${experiments.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${experiments.frames.inline-max-particles:50000}")
+    private int inlineMaxParticles;
+
+    private ObjectReader reader;
+
+    @PostConstruct
+    void init() {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("experiments.ingest.batch-size must be positive (currently " + batchSize + ")");
+        }
+        reader = objectMapper.readerFor(Frame.class);
+    }
+
+    /**
+     * Read every frame in a body and store it under a run. The run id in the path wins over
+     * any in the frames; frames without a timestamp get the time the request arrived.
+     * @param runId run the frames belong to, which must exist
+     * @param body one JSON frame, a JSON array or an NDJSON stream of frames, already decompressed
+     * @return counts of frames read, stored and rejected, e.g. for a step the run already has
+     * @throws IOException if the body cannot be read from the client
+     */
+    public IngestResult append(String runId, InputStream body) throws IOException {
+        IngestResult result = new IngestResult();
+        Instant now = Instant.now();
+        List<Frame> batch = new ArrayList<>(batchSize);
+        try (MappingIterator<Frame> frames = reader.readValues(body)) {
+            while (frames.hasNextValue()) {
+                Frame frame = frames.nextValue();
+                if (frame.getStep() == null) {
+                    result.setError("Frame " + result.getReceived() + " has no step");
+                    break;
+                }
+                frame.setId(null);
+                frame.setRunId(runId);
+                frame.setParticlesFileId(null);
+                if (frame.getTimestamp() == null) {
+                    frame.setTimestamp(now);
+                }
+                batch.add(prepare(frame));
+                result.setReceived(result.getReceived() + 1);
+                if (batch.size() >= batchSize) {
+                    insert(batch, result);
+                }
+            }
+        } catch (JacksonException e) {
+            result.setError(e.getOriginalMessage());
+        } catch (IOException | RuntimeException e) {
+            // the frames read so far will never be inserted, so neither is anything pointing at their files
+            discard(batch);
+            throw e;
+        }
+        insert(batch, result);
+        return result;
+    }
+
+    /**
+     * Open a cursor over a run's frames in step order. The stream reads from Mongo as it is
+     * consumed and must be closed.
+     * @param runId run to read
+     * @param fromStep first step to include, or null to start at the beginning
+     * @param toStep last step to include, or null to read to the end
+     * @param includeParticles false to leave out the particles, which also skips GridFS
+     * @return frames in step order
+     */
+    public Stream<Frame> stream(String runId, Long fromStep, Long toStep, boolean includeParticles) {
+        Criteria criteria = Criteria.where("runId").is(runId);
+        if (fromStep != null || toStep != null) {
+            criteria = criteria.and("step");
+            if (fromStep != null) {
+                criteria.gte(fromStep);
+            }
+            if (toStep != null) {
+                criteria.lte(toStep);
+            }
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Order.asc("step")));
+        if (!includeParticles) {
+            query.fields().exclude("particles");
+        }
+        query.cursorBatchSize(STREAM_BATCH_SIZE);
+        Stream<Frame> frames = mongoTemplate.stream(query, Frame.class);
+        return includeParticles ? frames.map(this::loadParticles) : frames;
+    }
+
+    /**
+     * Fill in a parsed frame's particle count and, if it is too large to embed, move its
+     * particles to GridFS. Done as soon as a frame is parsed, so a batch never holds a large
+     * frame's particles.
+     * @param frame frame with its run id and step set
+     * @return the same frame
+     * @throws IOException if the particles cannot be stored
+     */
+    Frame prepare(Frame frame) throws IOException {
+        if (frame.getParticles() != null && frame.getParticleCount() == null) {
+            frame.setParticleCount(frame.getParticles().size());
+        }
+        if (frame.getParticles() != null && frame.getParticles().size() > inlineMaxParticles) {
+            frame.setParticlesFileId(storeParticles(frame).toHexString());
+            frame.setParticles(null);
+        }
+        return frame;
+    }
+
+    /**
+     * Bulk insert a batch of prepared frames, which may belong to several runs, fold the stored
+     * ones into their runs' counters and empty the batch
+     * @param batch frames to insert
+     * @param result counts to add the inserted and rejected frames to
+     * @return positions in the batch of the frames Mongo rejected
+     */
+    BitSet insert(List<Frame> batch, IngestResult result) {
+        BitSet rejected = new BitSet();
+        if (batch.isEmpty()) {
+            return rejected;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Frame.class);
+        operations.insert(batch);
+        int inserted;
+        try {
+            inserted = operations.execute().getInsertedCount();
+        } catch (BulkOperationException e) {
+            inserted = e.getResult().getInsertedCount();
+            result.setFailed(result.getFailed() + batch.size() - inserted);
+            // the particles of a rejected frame have nothing pointing at them any more
+            for (BulkWriteError error : e.getErrors()) {
+                rejected.set(error.getIndex());
+                deleteParticles(batch.get(error.getIndex()));
+            }
+            log.warn("Bulk insert rejected {} of {} frames: {}", batch.size() - inserted, batch.size(),
+                    e.getErrors().isEmpty() ? e.getMessage() : e.getErrors().get(0).getMessage());
+        }
+        result.setInserted(result.getInserted() + inserted);
+
+        // one counter update per run, carried in a Run holding only the new frames' totals
+        Map<String, Run> counters = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (rejected.get(i)) {
+                continue;
+            }
+            Frame frame = batch.get(i);
+            Run counter = counters.computeIfAbsent(frame.getRunId(), id -> {
+                Run run = new Run();
+                run.setId(id);
+                run.setFrameCount(0L);
+                return run;
+            });
+            counter.setFrameCount(counter.getFrameCount() + 1);
+            if (counter.getLastStep() == null || frame.getStep() > counter.getLastStep()) {
+                counter.setLastStep(frame.getStep());
+            }
+            if (counter.getLastTimestamp() == null || frame.getTimestamp().isAfter(counter.getLastTimestamp())) {
+                counter.setLastTimestamp(frame.getTimestamp());
+            }
+        }
+        // written or rejected, these frames are settled; clear before anything else can throw
+        batch.clear();
+        runService.recordFrames(counters.values());
+        return rejected;
+    }
+
+    /**
+     * Delete the GridFS particles of frames that will never be inserted
+     */
+    void discard(List<Frame> frames) {
+        for (Frame frame : frames) {
+            deleteParticles(frame);
+        }
+    }
+
+    /**
+     * Private helper to write a frame's particles to GridFS as one binary snapshot record
+     */
+    private ObjectId storeParticles(Frame frame) throws IOException {
+        // the codec's record carries experiments, so the particles travel in an otherwise empty one
+        Experiment holder = new Experiment();
+        holder.setParticles(frame.getParticles());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.writeStart(bytes);
+        codec.write(holder, bytes);
+        String filename = frame.getRunId() + "/" + frame.getStep();
+        return gridFsTemplate.store(new ByteArrayInputStream(bytes.toByteArray()), filename, PARTICLES_FILE_CONTENT_TYPE);
+    }
+
+    private void deleteParticles(Frame frame) {
+        if (frame.getParticlesFileId() != null) {
+            gridFsTemplate.delete(Query.query(Criteria.where("_id").is(new ObjectId(frame.getParticlesFileId()))));
+        }
+    }
+
+    private Frame loadParticles(Frame frame) {
+        if (frame.getParticlesFileId() == null) {
+            return frame;
+        }
+        GridFSFile file = gridFsTemplate.findOne(Query.query(Criteria.where("_id").is(new ObjectId(frame.getParticlesFileId()))));
+        if (file == null) {
+            log.warn("Particles file {} of run {} step {} is missing", frame.getParticlesFileId(), frame.getRunId(), frame.getStep());
+            return frame;
+        }
+        try (InputStream in = gridFsTemplate.getResource(file).getInputStream()) {
+            codec.readStart(in);
+            Experiment holder = codec.read(in);
+            frame.setParticles(holder != null ? holder.getParticles() : null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,53 @@
+package com.simulator.experiments.service;
+
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Opaque cursors for newest-first listings keyed by (timestamp, id). A cursor is the
+ * position of the last document on a page, and the next page starts strictly after
+ * it, which costs the same index seek however deep the page is.
+ */
+final class KeysetCursor {
+
+    private KeysetCursor() {}
+
+    /**
+     * Cursor for a page ending at a document
+     */
+    static String encode(Instant timestamp, String id) {
+        // Mongo keeps timestamps to the millisecond, so that is all the cursor needs
+        String position = timestamp.toEpochMilli() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The condition "listed after the cursor": older, or as old with a smaller id
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    static Criteria after(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor (currently " + cursor + ")");
+        }
+        int separator = decoded.indexOf(':');
+        if (separator <= 0 || separator == decoded.length() - 1) {
+            throw new IllegalArgumentException("Malformed cursor (currently " + cursor + ")");
+        }
+        Instant timestamp;
+        try {
+            timestamp = Instant.ofEpochMilli(Long.parseLong(decoded.substring(0, separator)));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed cursor (currently " + cursor + ")");
+        }
+        String id = decoded.substring(separator + 1);
+        return new Criteria().orOperator(
+                Criteria.where("timestamp").lt(timestamp),
+                new Criteria().andOperator(Criteria.where("timestamp").is(timestamp), Criteria.where("id").lt(id)));
+    }
+}
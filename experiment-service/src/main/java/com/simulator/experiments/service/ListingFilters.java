@@ -0,0 +1,50 @@
+package com.simulator.experiments.service;
+
+import com.simulator.experiments.model.ExperimentFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns an ExperimentFilter into query conditions. Experiments and runs share the
+ * engineType, timestamp and particleCount fields, so both listings filter the same way.
+ */
+final class ListingFilters {
+
+    private ListingFilters() {}
+
+    /**
+     * Conditions for every field the filter sets
+     * @return the conditions, empty if the filter sets nothing; the list may be added to
+     */
+    static List<Criteria> criteria(ExperimentFilter filter) {
+        List<Criteria> conditions = new ArrayList<>();
+        if (filter.getEngineType() != null) {
+            conditions.add(Criteria.where("engineType").is(filter.getEngineType()));
+        }
+        if (filter.getFrom() != null || filter.getTo() != null) {
+            Criteria timestamp = Criteria.where("timestamp");
+            if (filter.getFrom() != null) {
+                timestamp.gte(filter.getFrom());
+            }
+            if (filter.getTo() != null) {
+                timestamp.lt(filter.getTo());
+            }
+            conditions.add(timestamp);
+        }
+        if (filter.getParticleCount() != null) {
+            conditions.add(Criteria.where("particleCount").is(filter.getParticleCount()));
+        } else if (filter.getMinParticles() != null || filter.getMaxParticles() != null) {
+            Criteria particleCount = Criteria.where("particleCount");
+            if (filter.getMinParticles() != null) {
+                particleCount.gte(filter.getMinParticles());
+            }
+            if (filter.getMaxParticles() != null) {
+                particleCount.lte(filter.getMaxParticles());
+            }
+            conditions.add(particleCount);
+        }
+        return conditions;
+    }
+}
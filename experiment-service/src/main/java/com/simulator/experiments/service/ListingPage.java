@@ -0,0 +1,22 @@
+package com.simulator.experiments.service;
+
+import java.util.List;
+
+/**
+ * One page of a newest-first listing and the cursor of the page after it
+ */
+public class ListingPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    ListingPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() { return items; }
+
+    /** Cursor of the following page, or null if this is the last one */
+    public String getNextCursor() { return nextCursor; }
+}
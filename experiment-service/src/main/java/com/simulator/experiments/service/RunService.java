@@ -0,0 +1,139 @@
+package com.simulator.experiments.service;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.simulator.experiments.model.ExperimentFilter;
+import com.simulator.experiments.model.Run;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates and lists runs and keeps their frame counters. Listings are newest first and
+ * paged with KeysetCursor, served by the (engineType, timestamp) and (timestamp) indexes on runs.
+ */
+@Service
+public class RunService {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Store a new run. Runs without a timestamp start now; the frame counters always start empty.
+     */
+    public Run create(Run run) {
+        run.setId(null);
+        if (run.getTimestamp() == null) {
+            run.setTimestamp(Instant.now());
+        }
+        run.setFrameCount(0L);
+        run.setLastStep(null);
+        run.setLastTimestamp(null);
+        return mongoTemplate.insert(run);
+    }
+
+    public Run find(String id) {
+        return mongoTemplate.findById(id, Run.class);
+    }
+
+    /**
+     * Read one page of runs matching a filter, newest first
+     * @param filter conditions every run must meet
+     * @param cursor nextCursor of the previous page, or null for the first page
+     * @param limit most runs on the page, at most ExperimentQueryService.MAX_LIMIT
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor is malformed or the limit is out of range
+     */
+    public ListingPage<Run> findPage(ExperimentFilter filter, String cursor, int limit) {
+        if (limit <= 0 || limit > ExperimentQueryService.MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + ExperimentQueryService.MAX_LIMIT + " (currently " + limit + ")");
+        }
+        List<Criteria> conditions = ListingFilters.criteria(filter);
+        if (cursor != null) {
+            conditions.add(KeysetCursor.after(cursor));
+        }
+
+        Query query = new Query();
+        if (!conditions.isEmpty()) {
+            query.addCriteria(new Criteria().andOperator(conditions));
+        }
+        query.with(Sort.by(Sort.Order.desc("timestamp"), Sort.Order.desc("id")));
+        query.limit(limit + 1);
+        List<Run> runs = new ArrayList<>(mongoTemplate.find(query, Run.class));
+        String nextCursor = null;
+        if (runs.size() > limit) {
+            runs.remove(limit);
+            Run last = runs.get(limit - 1);
+            nextCursor = KeysetCursor.encode(last.getTimestamp(), last.getId());
+        }
+        return new ListingPage<>(runs, nextCursor);
+    }
+
+    /**
+     * Create the runs that do not exist yet, leaving existing ones as they are. Used by experiment
+     * ingest, where a run is known only by the id its snapshots carry.
+     * @param runs runs to create, with their ids set
+     */
+    void createAbsent(Collection<Run> runs) {
+        if (runs.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Run.class);
+        for (Run run : runs) {
+            Update update = new Update().setOnInsert("frameCount", 0L);
+            setOnInsert(update, "timestamp", run.getTimestamp());
+            setOnInsert(update, "engineType", run.getEngineType());
+            setOnInsert(update, "particleCount", run.getParticleCount());
+            setOnInsert(update, "parameters", run.getParameters());
+            setOnInsert(update, "metadata", run.getMetadata());
+            operations.upsert(Query.query(Criteria.where("id").is(run.getId())), update);
+        }
+        try {
+            operations.execute();
+        } catch (BulkOperationException e) {
+            // two requests racing to create a run: the slower upsert hits the _id index, and the run exists either way
+            for (BulkWriteError error : e.getErrors()) {
+                if (error.getCode() != DUPLICATE_KEY) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fold newly stored frames into their runs' counters
+     * @param counters one per run: frameCount frames were stored, the latest at lastStep and lastTimestamp
+     */
+    void recordFrames(Collection<Run> counters) {
+        if (counters.isEmpty()) {
+            return;
+        }
+        BulkOperations operations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Run.class);
+        for (Run counter : counters) {
+            Update update = new Update().inc("frameCount", counter.getFrameCount()).max("lastStep", counter.getLastStep());
+            if (counter.getLastTimestamp() != null) {
+                update.max("lastTimestamp", counter.getLastTimestamp());
+            }
+            operations.updateOne(Query.query(Criteria.where("id").is(counter.getId())), update);
+        }
+        operations.execute();
+    }
+
+    private static void setOnInsert(Update update, String key, Object value) {
+        if (value != null) {
+            update.setOnInsert(key, value);
+        }
+    }
+}
@@ -1,8 +1,20 @@
 package simulator;
 
+import simulator.cloud.ExperimentLogger;
+import simulator.logging.Log;
+import simulator.io.TrajectoryPlayer;
+import simulator.io.TrajectoryReader;
 import simulator.models.BodyBuilder;
+import simulator.metrics.Phase;
 import simulator.models.Vector;
 import simulator.physics.PhysicsEngine;
+import simulator.physics.SimulationLoop;
+import simulator.render.CanvasRenderer;
+import simulator.render.DensityMapRenderer;
+import simulator.render.FrameInterpolator;
+import simulator.render.LevelOfDetailRenderer;
+import simulator.render.PointSpriteRenderer;
+import simulator.render.Renderer;
 import javafx.application.Application;
 import javafx.stage.Stage;
 import javafx.scene.layout.BorderPane;
@@ -14,11 +26,19 @@ import javafx.scene.canvas.GraphicsContext;
 import javafx.animation.AnimationTimer;
 import javafx.scene.paint.Color;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
 
 public class Main extends Application {
+    private static final System.Logger LOG = Log.get(Main.class);
 
     private static final int FRAME_RATE = 60;
     private static final double SIMULATION_RATE = 10000;
+    // physics steps per wall-clock second, independent of FRAME_RATE
+    private static final double STEP_RATE = 2400;
     private static final int canvasWidth = 1920;
     private static final int canvasHeight = 1080;
     private static final double scale = canvasWidth / 1000.0;
@@ -26,18 +46,50 @@ public class Main extends Application {
     private static final Color backgroundColor = Color.web("#1a1a1a");
 
     private PhysicsEngine engine;
+    private SimulationLoop simulation;
+    private TrajectoryReader recording;
+    private TrajectoryPlayer player;
+    private FrameInterpolator frame;
+    private final Renderer renderer = createRenderer(System.getProperty("simulator.renderer", "canvas"));
     private Canvas canvas;
     private GraphicsContext graphicsContext;
     private AnimationTimer gameLoop;
 
     @Override
     public void start(Stage primaryStage) {
+        String replay = System.getProperty("simulator.replay");
+        if (replay != null) {
+            startReplay(Path.of(replay));
+        } else {
+            startSimulation();
+        }
+
+        BorderPane root = new BorderPane();
+        canvas = new Canvas(canvasWidth, canvasHeight);
+        graphicsContext = canvas.getGraphicsContext2D();
+        root.setCenter(canvas);
+
+        root.setBottom(createControlPanel());
+
+        Scene scene = new Scene(root, canvasWidth, canvasHeight + 50);
+        primaryStage.setTitle("Particle Simulator - Dyn4j + JavaFX");
+        primaryStage.setScene(scene);
+        primaryStage.setResizable(false);
+        primaryStage.show();
+
+        startGameLoop();
+    }
+
+    private void startSimulation() {
+        // masses carry a factor of the original 60 Hz timestep: this scenario was tuned while the
+        // integrator applied acceleration * timestep twice, and the factor keeps the same orbit
+        double timestep = SIMULATION_RATE / FRAME_RATE;
         engine = new PhysicsEngine();
         engine.addBody(
                 new BodyBuilder(2)
                         .setFillColor(Color.web("#fdc542"))
                         .setRadius(50)
-                        .setMass(100000)
+                        .setMass(100000 * timestep)
                         .setPosition(new Vector(new double[]{500, 300}))
                         .setVelocity(new Vector(new double[]{0.0, Double.parseDouble("-3e-3")}))
                         .buildDrawableBody()
@@ -47,28 +99,36 @@ public class Main extends Application {
                 new BodyBuilder(2)
                         .setFillColor(Color.web("#2bfb2d"))
                         .setRadius(10)
-                        .setMass(10000)
+                        .setMass(10000 * timestep)
                         .setPosition(new Vector(new double[]{300, 300}))
                         .setVelocity(new Vector(new double[]{0.0, Double.parseDouble("3e-2")}))
                         .buildDrawableBody()
         );
 
-        BorderPane root = new BorderPane();
-        canvas = new Canvas(canvasWidth, canvasHeight);
-        graphicsContext = canvas.getGraphicsContext2D();
-        root.setCenter(canvas);
-
-        root.setBottom(createControlPanel());
-
-        Scene scene = new Scene(root, canvasWidth, canvasHeight + 50);
-        primaryStage.setTitle("Particle Simulator - Dyn4j + JavaFX");
-        primaryStage.setScene(scene);
-        primaryStage.setResizable(false);
-        primaryStage.show();
+        simulation = new SimulationLoop(engine, SIMULATION_RATE / STEP_RATE, STEP_RATE);
+        frame = new FrameInterpolator(simulation.getSnapshots());
+        simulation.start();
 
-        startGameLoop();
+        LOG.log(System.Logger.Level.INFO, Log.fields("event", "started", "bodies", engine.getBodies().size(), "renderer", renderer.getClass().getSimpleName()));
+    }
 
-        System.out.println("Particle Simulator started with 50 particles!");
+    /**
+     * Play a recorded binary trajectory instead of simulating. The file is memory-mapped, so
+     * playback starts as soon as its frame headers are indexed, whatever its size.
+     * @param path trajectory written by BatchRunner --trajectory-format binary
+     */
+    private void startReplay(Path path) {
+        try {
+            recording = new TrajectoryReader(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open trajectory " + path, e);
+        }
+        player = new TrajectoryPlayer(recording, Double.parseDouble(System.getProperty("simulator.replay.fps", String.valueOf(FRAME_RATE))));
+        player.setSpeed(Double.parseDouble(System.getProperty("simulator.replay.speed", "1")));
+        frame = new FrameInterpolator(player.getSnapshots());
+        player.start();
+
+        LOG.log(System.Logger.Level.INFO, Log.fields("event", "replay_started", "path", path, "frames", recording.getFrameCount(), "renderer", renderer.getClass().getSimpleName()));
     }
 
     private javafx.scene.layout.HBox createControlPanel() {
@@ -79,7 +139,15 @@ public class Main extends Application {
 
         Button pauseBtn = new Button("Pause");
         pauseBtn.setOnAction(e -> {
-            if (engine.isRunning()) {
+            if (player != null) {
+                if (player.isPlaying()) {
+                    player.pause();
+                    pauseBtn.setText("Resume");
+                } else {
+                    player.play();
+                    pauseBtn.setText("Pause");
+                }
+            } else if (engine.isRunning()) {
                 engine.pause();
                 pauseBtn.setText("Resume");
             } else {
@@ -107,14 +175,62 @@ public class Main extends Application {
                 if(now - prev < dt) {
                     return;
                 }
-                engine.update(SIMULATION_RATE / FRAME_RATE);
-                engine.draw(graphicsContext, backgroundColor, canvasWidth, canvasHeight, scale);
+                long start = System.nanoTime();
+                frame.update(start);
+                renderer.draw(frame, graphicsContext, backgroundColor, canvasWidth, canvasHeight, scale);
+                if (engine != null) {
+                    engine.getMetrics().recordPhase(Phase.RENDER, System.nanoTime() - start);
+                }
                 prev = now;
             }
         };
         gameLoop.start();
     }
 
+    /**
+     * Pick the renderer named by the simulator.renderer system property
+     * @param name "canvas" for outlined circles, "sprites" for the CPU point-sprite rasterizer,
+     *             "density" for a density map, "auto" for circles that give way to a density map
+     *             past 5000 bodies or below half a pixel per body
+     * @return a new renderer
+     */
+    private static Renderer createRenderer(String name) {
+        switch (name) {
+            case "canvas":
+                return new CanvasRenderer();
+            case "sprites":
+                return new PointSpriteRenderer();
+            case "density":
+                return new DensityMapRenderer();
+            case "auto":
+                return new LevelOfDetailRenderer(new CanvasRenderer(), new DensityMapRenderer(), 5000, 0.5);
+            default:
+                throw new IllegalArgumentException("Unknown renderer " + name + " (expected canvas, sprites, density or auto)");
+        }
+    }
+
+    @Override
+    public void stop() throws InterruptedException, IOException {
+        if (gameLoop != null) {
+            gameLoop.stop();
+        }
+        if (simulation != null) {
+            simulation.stop();
+        }
+        if (engine != null) {
+            engine.shutdown();
+        }
+        // the engine has stopped stepping, so nothing more is queued; deliver what is
+        ExperimentLogger.shutdown(Duration.ofSeconds(5));
+        if (player != null) {
+            player.stop();
+        }
+        if (recording != null) {
+            recording.close();
+        }
+        renderer.shutdown();
+    }
+
     public static void main(String[] args) {
         launch(args);
     }
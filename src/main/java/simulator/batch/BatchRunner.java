@@ -0,0 +1,332 @@
+package simulator.batch;
+
+import simulator.metrics.EngineMetrics;
+import simulator.metrics.LatencyHistogram;
+import simulator.metrics.Phase;
+import simulator.io.TrajectoryFormat;
+import simulator.io.TrajectoryWriter;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+import simulator.physics.Checkpoint;
+import simulator.physics.Checkpointer;
+import simulator.physics.PhysicsEngine;
+import simulator.physics.StepScheduler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * BatchRunner class - headless command line entry point.
+ * Loads or generates a scenario, advances it a fixed number of steps as fast as the
+ * solver allows (no frame cap, no JavaFX) and writes the final state, an optional
+ * trajectory and a throughput summary in steps per second, followed by p50/p99 times for
+ * each phase of the step.
+ * <pre>
+ * java -cp app.jar simulator.batch.BatchRunner --random 10000 --steps 200 --solver barnes-hut
+ * </pre>
+ */
+public class BatchRunner {
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "usage: BatchRunner (--scenario FILE | --random N | --resume FILE) [options]",
+            "  --scenario FILE     scenario file, see Scenario for the format",
+            "  --random N          generate N bodies instead of reading a file",
+            "  --resume FILE       continue from a checkpoint, with the settings it was taken with",
+            "  --seed S            seed for --random (default 1)",
+            "  --dimension D       dimension for --random (default 2)",
+            "  --steps N           number of steps, overrides the scenario",
+            "  --dt X              timestep, overrides the scenario",
+            "  --solver NAME       direct (scalar), direct-simd, symmetric, barnes-hut or fmm",
+            "  --integrator NAME   euler, leapfrog, yoshida, rk4 or block",
+            "  --collisions MODE   none, elastic or merge",
+            "  --threads T         worker threads (default: available processors)",
+            "  --output FILE       write the final state as CSV",
+            "  --trajectory FILE   write positions every --every steps",
+            "  --trajectory-format csv (default), binary or binary32: the binary formats are",
+            "                      compressed columnar float64 or float32 frames, see TrajectoryFormat",
+            "  --every K           trajectory interval in steps (default 1)",
+            "  --checkpoint FILE   write a checkpoint every --checkpoint-every steps, in the background",
+            "  --checkpoint-every K  checkpoint interval in steps (default 1000)");
+
+    private Path scenarioPath;
+    private int randomCount = -1;
+    private long seed = 1;
+    private int dimension = 2;
+    private Long steps;
+    private Double timestep;
+    private String solver;
+    private String integrator;
+    private String collisions;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private Path output;
+    private Path trajectory;
+    private String trajectoryFormat = "csv";
+    private long every = 1;
+    private Path resume;
+    private Path checkpoint;
+    private long checkpointEvery = 1000;
+
+    public static void main(String[] args) {
+        if(Arrays.asList(args).contains("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parse(args);
+            runner.run();
+        } catch(IllegalArgumentException e) {
+            System.err.println("error: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch(IOException e) {
+            System.err.println("error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read command line options
+     * @param args the arguments passed to main
+     */
+    void parse(String[] args) {
+        for(int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if(i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            String value = args[++i];
+            switch(option) {
+                case "--scenario": scenarioPath = Path.of(value); break;
+                case "--random": randomCount = Integer.parseInt(value); break;
+                case "--seed": seed = Long.parseLong(value); break;
+                case "--dimension": dimension = Integer.parseInt(value); break;
+                case "--steps": steps = Long.parseLong(value); break;
+                case "--dt": timestep = Double.parseDouble(value); break;
+                case "--solver": solver = value; break;
+                case "--integrator": integrator = value; break;
+                case "--collisions": collisions = value; break;
+                case "--threads": threads = Integer.parseInt(value); break;
+                case "--output": output = Path.of(value); break;
+                case "--trajectory": trajectory = Path.of(value); break;
+                case "--trajectory-format": trajectoryFormat = value; break;
+                case "--every": every = Long.parseLong(value); break;
+                case "--resume": resume = Path.of(value); break;
+                case "--checkpoint": checkpoint = Path.of(value); break;
+                case "--checkpoint-every": checkpointEvery = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if((scenarioPath != null ? 1 : 0) + (randomCount >= 0 ? 1 : 0) + (resume != null ? 1 : 0) != 1) {
+            throw new IllegalArgumentException("Exactly one of --scenario, --random and --resume is required");
+        }
+        if(!trajectoryFormat.equals("csv") && !trajectoryFormat.equals("binary") && !trajectoryFormat.equals("binary32")) {
+            throw new IllegalArgumentException("Unknown trajectory format " + trajectoryFormat + " (expected csv, binary or binary32)");
+        }
+        if(every <= 0) {
+            throw new IllegalArgumentException("Trajectory interval must be positive (currently " + every + ")");
+        }
+        if(checkpointEvery <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive (currently " + checkpointEvery + ")");
+        }
+    }
+
+    /**
+     * Run the configured scenario and print a summary
+     * @throws IOException if the scenario cannot be read or an output cannot be written
+     */
+    void run() throws IOException {
+        Checkpoint resumed = resume != null ? Checkpoint.read(resume) : null;
+        Scenario scenario;
+        if(resumed != null) {
+            scenario = new Scenario();
+            resumed.getSettings().forEach((key, value) -> {
+                // the seed only made the initial bodies and is kept for the record
+                if(!key.equals("seed")) {
+                    scenario.set(key, value);
+                }
+            });
+        } else {
+            scenario = scenarioPath != null ? Scenario.load(scenarioPath) : Scenario.random(randomCount, dimension, seed);
+        }
+        if(steps != null) scenario.set("steps", Long.toString(steps));
+        if(timestep != null) scenario.set("timestep", Double.toString(timestep));
+        if(solver != null) scenario.set("solver", solver);
+        if(integrator != null) scenario.set("integrator", integrator);
+        if(collisions != null) scenario.set("collisions", collisions);
+
+        StepScheduler scheduler = new StepScheduler(threads);
+        PhysicsEngine engine;
+        if(resumed != null) {
+            engine = resumed.restore(scheduler, scenario.createIntegrator(), false);
+        } else {
+            engine = new PhysicsEngine(scenario.getBodies(), scheduler, false);
+            engine.setIntegrator(scenario.createIntegrator());
+        }
+        engine.setForceSolver(scenario.createForceSolver());
+        engine.setCollisionMode(scenario.getCollisions());
+        int initialCount = engine.getBodies().size();
+        long firstStep = engine.getStep();
+
+        Checkpointer checkpointer = null;
+        if(checkpoint != null) {
+            Map<String, String> settings = scenario.getSettings();
+            if(resumed != null && resumed.getSettings().containsKey("seed")) {
+                settings.put("seed", resumed.getSettings().get("seed"));
+            } else if(randomCount >= 0) {
+                settings.put("seed", Long.toString(seed));
+            }
+            checkpointer = new Checkpointer(checkpoint, checkpointEvery, settings);
+            engine.setCheckpointer(checkpointer);
+        }
+
+        boolean csv = trajectoryFormat.equals("csv");
+        PrintWriter trajectoryWriter = trajectory != null && csv ? openCsv(trajectory) : null;
+        TrajectoryWriter binaryWriter = trajectory != null && !csv
+                ? new TrajectoryWriter(trajectory, new TrajectoryFormat(scenario.getDimension()).setSinglePrecision(trajectoryFormat.equals("binary32")))
+                : null;
+        ParticleStore empty = new ParticleStore(scenario.getDimension());
+        try {
+            if(trajectoryWriter != null) {
+                writeHeader(trajectoryWriter, "step,id", scenario.getDimension(), "x");
+                writePositions(trajectoryWriter, engine, firstStep);
+            }
+            if(binaryWriter != null) {
+                binaryWriter.write(engine.getStore() != null ? engine.getStore() : empty, firstStep, engine.getTime());
+            }
+            long start = System.nanoTime();
+            for(long step = firstStep + 1; step <= scenario.getSteps(); step++) {
+                engine.update(scenario.getTimestep());
+                if(trajectory != null && step % every == 0) {
+                    long exportStart = System.nanoTime();
+                    if(trajectoryWriter != null) {
+                        writePositions(trajectoryWriter, engine, step);
+                    } else {
+                        binaryWriter.write(engine.getStore() != null ? engine.getStore() : empty, step, engine.getTime());
+                    }
+                    engine.getMetrics().recordPhase(Phase.EXPORT, System.nanoTime() - exportStart);
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long taken = Math.max(0, scenario.getSteps() - firstStep);
+            System.out.println(String.format(Locale.ROOT,
+                    "steps=%d bodies=%d->%d threads=%d seconds=%.3f steps/sec=%.2f",
+                    taken, initialCount, engine.getBodies().size(), scheduler.getParallelism(),
+                    seconds, seconds > 0 ? taken / seconds : 0));
+            printPhases(engine.getMetrics(), seconds);
+            if(binaryWriter != null) {
+                System.out.println(String.format(Locale.ROOT, "trajectory frames=%d bytes=%d compression=%.2f",
+                        binaryWriter.getFrames(), binaryWriter.getBytesWritten(), binaryWriter.getCompressionRatio()));
+            }
+            if(checkpointer != null) {
+                closeCheckpointer(checkpointer);
+                System.out.println(String.format(Locale.ROOT, "checkpoints written=%d skipped=%d failed=%d last_step=%d",
+                        checkpointer.getWritten(), checkpointer.getSkipped(), checkpointer.getFailed(), checkpointer.getLastStep()));
+            }
+        } finally {
+            if(checkpointer != null) {
+                closeCheckpointer(checkpointer);
+            }
+            engine.shutdown();
+            if(trajectoryWriter != null) {
+                trajectoryWriter.close();
+            }
+            if(binaryWriter != null) {
+                binaryWriter.close();
+            }
+        }
+        if(trajectoryWriter != null && trajectoryWriter.checkError()) {
+            throw new IOException("Failed writing " + trajectory);
+        }
+        if(output != null) {
+            writeFinalState(engine, scenario.getDimension());
+        }
+    }
+
+    private static void closeCheckpointer(Checkpointer checkpointer) {
+        try {
+            checkpointer.close();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void printPhases(EngineMetrics metrics, double seconds) {
+        System.out.println(String.format(Locale.ROOT, "interactions=%d interactions/sec=%.4g",
+                metrics.getInteractions(), seconds > 0 ? metrics.getInteractions() / seconds : 0));
+        for(Phase phase : Phase.values()) {
+            LatencyHistogram histogram = metrics.getHistogram(phase);
+            if(histogram.getCount() == 0) {
+                continue;
+            }
+            System.out.println(String.format(Locale.ROOT, "phase=%s count=%d p50_ms=%.4f p99_ms=%.4f max_ms=%.4f",
+                    phase.name().toLowerCase(Locale.ROOT), histogram.getCount(),
+                    histogram.getPercentile(50) / 1e6, histogram.getPercentile(99) / 1e6, histogram.getMaxNanos() / 1e6));
+        }
+    }
+
+    private void writeFinalState(PhysicsEngine engine, int dimension) throws IOException {
+        try(PrintWriter writer = openCsv(output)) {
+            writer.print("id,mass,radius");
+            writeColumns(writer, dimension, "x");
+            writeColumns(writer, dimension, "v");
+            writer.println();
+            for(Body body : engine.getBodies()) {
+                ParticleStore store = body.getStore();
+                int offset = body.getIndex() * dimension;
+                writer.print(body.getId());
+                writer.print(',');
+                writer.print(body.getMass());
+                writer.print(',');
+                writer.print(body.getRadius());
+                writeValues(writer, store.getPositions(), offset, dimension);
+                writeValues(writer, store.getVelocities(), offset, dimension);
+                writer.println();
+            }
+            if(writer.checkError()) {
+                throw new IOException("Failed writing " + output);
+            }
+        }
+    }
+
+    private static void writePositions(PrintWriter writer, PhysicsEngine engine, long step) {
+        for(Body body : engine.getBodies()) {
+            writer.print(step);
+            writer.print(',');
+            writer.print(body.getId());
+            writeValues(writer, body.getStore().getPositions(), body.getIndex() * body.getDimension(), body.getDimension());
+            writer.println();
+        }
+    }
+
+    private static void writeHeader(PrintWriter writer, String prefix, int dimension, String column) {
+        writer.print(prefix);
+        writeColumns(writer, dimension, column);
+        writer.println();
+    }
+
+    private static void writeColumns(PrintWriter writer, int dimension, String column) {
+        for(int dim = 0; dim < dimension; dim++) {
+            writer.print(',');
+            writer.print(column);
+            writer.print(dim);
+        }
+    }
+
+    private static void writeValues(PrintWriter writer, double[] values, int offset, int dimension) {
+        for(int dim = 0; dim < dimension; dim++) {
+            writer.print(',');
+            writer.print(values[offset + dim]);
+        }
+    }
+
+    private static PrintWriter openCsv(Path path) throws IOException {
+        BufferedWriter writer = Files.newBufferedWriter(path);
+        return new PrintWriter(writer, false);
+    }
+}
@@ -0,0 +1,270 @@
+package simulator.batch;
+
+import simulator.models.Body;
+import simulator.models.BodyBuilder;
+import simulator.models.Vector;
+import simulator.physics.BarnesHutSolver;
+import simulator.physics.BlockTimestepIntegrator;
+import simulator.physics.CollisionMode;
+import simulator.physics.DirectSumSolver;
+import simulator.physics.FmmSolver;
+import simulator.physics.ForceSolver;
+import simulator.physics.Integrator;
+import simulator.physics.LeapfrogIntegrator;
+import simulator.physics.RungeKutta4Integrator;
+import simulator.physics.SemiImplicitEulerIntegrator;
+import simulator.physics.SymmetricDirectSumSolver;
+import simulator.physics.YoshidaIntegrator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Scenario class - initial bodies plus the settings of a batch run.
+ * Scenario files are plain text. Blank lines and lines starting with # are ignored,
+ * settings are written as "key = value" and every other line is one body:
+ * <pre>
+ * dimension = 2
+ * timestep = 0.01
+ * steps = 1000
+ * solver = barnes-hut
+ * integrator = leapfrog
+ * collisions = merge
+ * # mass radius position... velocity...
+ * 1e6 5 500 300 0 -0.003
+ * </pre>
+ */
+public class Scenario {
+    private int dimension = 2;
+    private double timestep = 1.0;
+    private long steps = 1000;
+    private String solver = "direct";
+    private String integrator = "euler";
+    private CollisionMode collisions = CollisionMode.NONE;
+    private final List<Body> bodies = new ArrayList<>();
+
+    /**
+     * Read a scenario file
+     * @param path file to read
+     * @return the parsed scenario
+     * @throws IOException if the file cannot be read
+     */
+    public static Scenario load(Path path) throws IOException {
+        Scenario scenario = new Scenario();
+        try(BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if(line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    int equals = line.indexOf('=');
+                    if(equals >= 0) {
+                        scenario.set(line.substring(0, equals).strip(), line.substring(equals + 1).strip());
+                    } else {
+                        scenario.bodies.add(scenario.parseBody(line));
+                    }
+                } catch(IllegalArgumentException e) {
+                    throw new IllegalArgumentException(path + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Generate a cold uniform cloud of equal bodies in a cube of side 1000
+     * @param count number of bodies
+     * @param dimension dimension of the bodies
+     * @param seed random seed, so sweeps can be repeated exactly
+     * @return the generated scenario
+     */
+    public static Scenario random(int count, int dimension, long seed) {
+        if(count < 0) {
+            throw new IllegalArgumentException("Body count must not be negative (currently " + count + ")");
+        }
+        Scenario scenario = new Scenario();
+        scenario.set("dimension", Integer.toString(dimension));
+        Random random = new Random(seed);
+        for(int i = 0; i < count; i++) {
+            double[] position = new double[dimension];
+            double[] velocity = new double[dimension];
+            for(int dim = 0; dim < dimension; dim++) {
+                position[dim] = random.nextDouble() * 1000;
+                velocity[dim] = random.nextGaussian() * 1e-3;
+            }
+            scenario.bodies.add(new BodyBuilder(dimension)
+                    .setMass(1000)
+                    .setRadius(1)
+                    .setPosition(new Vector(position))
+                    .setVelocity(new Vector(velocity))
+                    .buildBody());
+        }
+        return scenario;
+    }
+
+    /**
+     * Apply one setting
+     * @param key one of dimension, timestep, steps, solver, integrator, collisions
+     * @param value the setting's value
+     */
+    public void set(String key, String value) {
+        switch(key) {
+            case "dimension":
+                if(!bodies.isEmpty()) {
+                    throw new IllegalArgumentException("Dimension must be set before any body");
+                }
+                dimension = Integer.parseInt(value);
+                if(dimension <= 0) {
+                    throw new IllegalArgumentException("Dimension must be positive (dimension is " + dimension + ")");
+                }
+                break;
+            case "timestep":
+                timestep = Double.parseDouble(value);
+                break;
+            case "steps":
+                steps = Long.parseLong(value);
+                if(steps < 0) {
+                    throw new IllegalArgumentException("Step count must not be negative (currently " + steps + ")");
+                }
+                break;
+            case "solver":
+                createForceSolver(value);
+                solver = value;
+                break;
+            case "integrator":
+                createIntegrator(value);
+                integrator = value;
+                break;
+            case "collisions":
+                collisions = CollisionMode.valueOf(value.toUpperCase(Locale.ROOT));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown setting " + key);
+        }
+    }
+
+    /**
+     * Settings getter
+     * @return every setting as set() accepts it, in the order of set()'s keys
+     */
+    public Map<String, String> getSettings() {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("dimension", Integer.toString(dimension));
+        settings.put("timestep", Double.toString(timestep));
+        settings.put("steps", Long.toString(steps));
+        settings.put("solver", solver);
+        settings.put("integrator", integrator);
+        settings.put("collisions", collisions.name().toLowerCase(Locale.ROOT));
+        return settings;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    public double getTimestep() {
+        return this.timestep;
+    }
+
+    public long getSteps() {
+        return this.steps;
+    }
+
+    public CollisionMode getCollisions() {
+        return this.collisions;
+    }
+
+    /**
+     * Bodies getter
+     * @return the scenario's bodies; they are moved into the engine's store once a run starts
+     */
+    public List<Body> getBodies() {
+        return this.bodies;
+    }
+
+    /**
+     * Create the configured force solver
+     * @return a new solver: direct (scalar), direct-simd, symmetric, barnes-hut or fmm
+     */
+    public ForceSolver createForceSolver() {
+        return createForceSolver(solver);
+    }
+
+    /**
+     * Create the configured integrator
+     * @return a new integrator: euler, leapfrog, yoshida, rk4 or block
+     */
+    public Integrator createIntegrator() {
+        return createIntegrator(integrator);
+    }
+
+    private static ForceSolver createForceSolver(String name) {
+        switch(name) {
+            case "direct":
+                return new DirectSumSolver(false);
+            case "direct-simd":
+                DirectSumSolver vectorized = new DirectSumSolver();
+                vectorized.setVectorized(true);
+                return vectorized;
+            case "symmetric":
+                return new SymmetricDirectSumSolver();
+            case "barnes-hut":
+                return new BarnesHutSolver();
+            case "fmm":
+                return new FmmSolver();
+            default:
+                throw new IllegalArgumentException("Unknown solver " + name);
+        }
+    }
+
+    private static Integrator createIntegrator(String name) {
+        switch(name) {
+            case "euler":
+                return new SemiImplicitEulerIntegrator();
+            case "leapfrog":
+                return new LeapfrogIntegrator();
+            case "yoshida":
+                return new YoshidaIntegrator();
+            case "rk4":
+                return new RungeKutta4Integrator();
+            case "block":
+                return new BlockTimestepIntegrator();
+            default:
+                throw new IllegalArgumentException("Unknown integrator " + name);
+        }
+    }
+
+    /**
+     * Private helper to parse "mass radius position... velocity..."
+     */
+    private Body parseBody(String line) {
+        String[] fields = line.split("\\s+");
+        if(fields.length != 2 + 2 * dimension) {
+            throw new IllegalArgumentException("Body must have " + (2 + 2 * dimension) + " fields (currently " + fields.length + ")");
+        }
+        double[] position = new double[dimension];
+        double[] velocity = new double[dimension];
+        for(int dim = 0; dim < dimension; dim++) {
+            position[dim] = Double.parseDouble(fields[2 + dim]);
+            velocity[dim] = Double.parseDouble(fields[2 + dimension + dim]);
+        }
+        return new BodyBuilder(dimension)
+                .setMass(Double.parseDouble(fields[0]))
+                .setRadius(Double.parseDouble(fields[1]))
+                .setPosition(new Vector(position))
+                .setVelocity(new Vector(velocity))
+                .buildBody();
+    }
+}
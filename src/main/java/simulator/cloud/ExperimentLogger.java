@@ -1,102 +1,161 @@
 package simulator.cloud;
 
-import simulator.models.DrawableBody;
-import simulator.models.Vector;
-import javafx.scene.paint.Color;
+import simulator.logging.Log;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
 
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Instant;
+import java.time.Duration;
 import java.util.List;
-
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Posts experiment snapshots to the experiment service through a shared SnapshotPipeline.
+ * Snapshots logged with a run id are stored as that run's frames, one per step; the others
+ * each become a run of their own.
+ * The pipeline is created on first use and configured by system properties:
+ * simulator.experiments.url (default http://localhost:8080/experiments; batches go to its
+ * /batch endpoint), simulator.experiments.capacity (default 8), simulator.experiments.batch
+ * (default 4), simulator.experiments.overflow (drop-oldest, drop-newest or block),
+ * simulator.experiments.attempts (default 4), simulator.experiments.gzip (default true) and
+ * simulator.experiments.format (json or binary, default json).
+ */
 public class ExperimentLogger {
+    private static final System.Logger LOG = Log.get(ExperimentLogger.class);
 
-    private static final String BACKEND_URL = "http://localhost:8080/experiments";
-    private static final HttpClient client = HttpClient.newHttpClient();
+    private static final String BACKEND_URL = System.getProperty("simulator.experiments.url", "http://localhost:8080/experiments");
+    private static volatile SnapshotPipeline pipeline;
 
     public static void logSnapshot(
             String engineType,
-            List<DrawableBody> bodies,
+            List<? extends Body> bodies,
             double avgFPS,
             long computeTimeMs) {
+        logSnapshot(engineType, bodies, avgFPS, computeTimeMs, Map.of());
+    }
 
+    /**
+     * Queue a snapshot of the bodies for the experiment service without waiting for delivery.
+     * The bodies are copied before this returns, so call it between steps.
+     * @param engineType engine name stored with the experiment
+     * @param bodies bodies to record
+     * @param avgFPS steps per second
+     * @param computeTimeMs time spent stepping so far, in milliseconds
+     * @param metrics named measurements stored under the experiment's metrics, e.g. EngineMetrics.summary()
+     */
+    public static void logSnapshot(
+            String engineType,
+            List<? extends Body> bodies,
+            double avgFPS,
+            long computeTimeMs,
+            Map<String, ? extends Number> metrics) {
         try {
-            String json = buildSnapshotJson(engineType, bodies, avgFPS, computeTimeMs);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(BACKEND_URL))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-
-            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-                    .thenApply(response -> {
-                        if (response.statusCode() == 201) {
-                            System.out.println("Snapshot logged successfully");
-                            return response.body();
-                        } else {
-                            System.err.println("Failed to log snapshot. Status: " + response.statusCode());
-                            return null;
-                        }
-                    })
-                    .exceptionally(e -> {
-                        System.err.println("Error logging snapshot: " + e.getMessage());
-                        return null;
-                    });
-
-        } catch (Exception e) {
-            System.err.println("Error building snapshot: " + e.getMessage());
+            getPipeline().submit(engineType, bodies, avgFPS, computeTimeMs, metrics);
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_build_failed", "error", e.getMessage()), e);
         }
     }
 
-    private static String buildSnapshotJson(
+    /**
+     * Queue a snapshot of every particle in a store, copying it before this returns; call it between steps
+     * @param runId run the snapshot belongs to, the same for every snapshot of one simulation
+     * @param step engine step the snapshot was taken at
+     * @param engineType engine name stored with the experiment
+     * @param store particles to record
+     * @param avgFPS steps per second
+     * @param computeTimeMs time spent stepping so far, in milliseconds
+     * @param metrics named measurements stored under the experiment's metrics
+     */
+    public static void logSnapshot(
+            String runId,
+            long step,
             String engineType,
-            List<DrawableBody> bodies,
+            ParticleStore store,
             double avgFPS,
-            long computeTimeMs) {
-
-        StringBuilder json = new StringBuilder("{");
-        json.append("\"timestamp\":\"").append(Instant.now().toString()).append("\",");
-        json.append("\"engineType\":\"").append(engineType).append("\",");
-        json.append("\"particleCount\":").append(bodies.size()).append(",");
-        json.append("\"avgFPS\":").append(avgFPS).append(",");
-        json.append("\"computeTimeMs\":").append(computeTimeMs).append(",");
-
-        json.append("\"particles\":[");
-        for (int i = 0; i < bodies.size(); i++) {
-            DrawableBody body = bodies.get(i);
-            Vector pos = body.getPosition();
-            Vector vel = body.getVelocity();
-            String hexColor = toHexColor(body.getFillColor());
-
-            json.append("{");
-            json.append("\"id\":").append(i).append(",");
-            json.append("\"position\":[").append(pos.getValue(0)).append(",")
-                                         .append(pos.getValue(1)).append("],");
-            json.append("\"velocity\":[").append(vel.getValue(0)).append(",")
-                                         .append(vel.getValue(1)).append("],");
-            json.append("\"mass\":").append(body.getMass()).append(",");
-            json.append("\"radius\":").append(body.getRadius()).append(",");
-            json.append("\"color\":\"").append(hexColor).append("\"");
-            json.append("}");
+            long computeTimeMs,
+            Map<String, ? extends Number> metrics) {
+        try {
+            getPipeline().submit(runId, step, engineType, store, avgFPS, computeTimeMs, metrics);
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_build_failed", "error", e.getMessage()), e);
+        }
+    }
 
-            if (i < bodies.size() - 1) {
-                json.append(",");
+    /**
+     * Pipeline getter
+     * @return the shared pipeline, created on first use
+     */
+    public static SnapshotPipeline getPipeline() {
+        SnapshotPipeline current = pipeline;
+        if (current == null) {
+            synchronized (ExperimentLogger.class) {
+                current = pipeline;
+                if (current == null) {
+                    current = createPipeline();
+                    pipeline = current;
+                }
             }
         }
-        json.append("]");
+        return current;
+    }
+
+    /**
+     * Stop the shared pipeline, if one was created, giving it time to deliver what is queued.
+     * A later logSnapshot starts a new pipeline.
+     * @param timeout how long to wait for the queue to drain
+     * @return true if everything queued was delivered or given up on in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public static boolean shutdown(Duration timeout) throws InterruptedException {
+        SnapshotPipeline current;
+        synchronized (ExperimentLogger.class) {
+            current = pipeline;
+            pipeline = null;
+        }
+        if (current == null) {
+            return true;
+        }
+        boolean drained = current.close(timeout);
+        if (!drained) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_pipeline_shutdown_timeout", "queued", current.getQueued()));
+        }
+        return drained;
+    }
 
-        json.append("}");
+    /**
+     * Serialize a snapshot the way logSnapshot posts it
+     * @param engineType engine name stored with the experiment
+     * @param bodies bodies to record
+     * @param avgFPS steps per second
+     * @param computeTimeMs time spent stepping so far, in milliseconds
+     * @param metrics named measurements for the experiment's metrics, omitted when empty
+     * @return the experiment as JSON
+     */
+    public static String buildSnapshotJson(
+            String engineType,
+            List<? extends Body> bodies,
+            double avgFPS,
+            long computeTimeMs,
+            Map<String, ? extends Number> metrics) {
+        PendingSnapshot snapshot = new PendingSnapshot();
+        snapshot.capture(engineType, bodies, avgFPS, computeTimeMs, metrics);
+        StringBuilder json = new StringBuilder();
+        snapshot.appendJson(json);
         return json.toString();
     }
 
-    private static String toHexColor(Color color) {
-        return String.format("#%02X%02X%02X",
-            (int) (color.getRed() * 255),
-            (int) (color.getGreen() * 255),
-            (int) (color.getBlue() * 255)
-        );
+    private static SnapshotPipeline createPipeline() {
+        OverflowPolicy overflow = OverflowPolicy.valueOf(
+                System.getProperty("simulator.experiments.overflow", "drop-oldest").replace('-', '_').toUpperCase(Locale.ROOT));
+        return new SnapshotPipeline(
+                URI.create(BACKEND_URL + "/batch"),
+                Integer.getInteger("simulator.experiments.capacity", 8),
+                Integer.getInteger("simulator.experiments.batch", 4),
+                overflow,
+                Integer.getInteger("simulator.experiments.attempts", 4),
+                Duration.ofMillis(200))
+                .setCompressed(Boolean.parseBoolean(System.getProperty("simulator.experiments.gzip", "true")))
+                .setEncoding(SnapshotEncoding.valueOf(System.getProperty("simulator.experiments.format", "json").toUpperCase(Locale.ROOT)));
     }
 }
@@ -0,0 +1,13 @@
+package simulator.cloud;
+
+/**
+ * What SnapshotPipeline does with a new snapshot when every pooled buffer is queued or being sent
+ */
+public enum OverflowPolicy {
+    /** Discard the oldest queued snapshot and keep the new one, so the service sees the latest state */
+    DROP_OLDEST,
+    /** Discard the new snapshot and keep the queue as it is */
+    DROP_NEWEST,
+    /** Make the caller wait, up to the pipeline's block timeout, for a buffer to come back; then drop the new snapshot */
+    BLOCK
+}
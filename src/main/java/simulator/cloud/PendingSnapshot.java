@@ -0,0 +1,202 @@
+package simulator.cloud;
+
+import simulator.models.Body;
+import simulator.models.DrawableBody;
+import simulator.models.ParticleStore;
+import javafx.scene.paint.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A copy of one experiment snapshot, taken at a step boundary and serialized later on the
+ * exporter thread. Instances are pooled by SnapshotPipeline, so the arrays are reused and
+ * may be longer than count.
+ */
+final class PendingSnapshot {
+    // colors are packed 0xRRGGBB; bodies without one are written as white
+    private static final int DEFAULT_COLOR = 0xFFFFFF;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+    // binary record flags: colors present, ids implicit
+    private static final byte BINARY_FLAG_COLORS = 2;
+
+    private String runId;
+    private long step;
+    private String engineType;
+    private Instant timestamp;
+    private int count;
+    private double avgFPS;
+    private long computeTimeMs;
+    private final Map<String, Number> metrics = new LinkedHashMap<>();
+    // the first two components of each position and velocity, as the service stores them
+    private double[] positions = new double[0];
+    private double[] velocities = new double[0];
+    private double[] masses = new double[0];
+    private double[] radii = new double[0];
+    private int[] colors = new int[0];
+
+    /**
+     * Copy a list of bodies. The bodies must not be stepped while this runs.
+     */
+    void capture(String engineType, List<? extends Body> bodies, double avgFPS, long computeTimeMs, Map<String, ? extends Number> metrics) {
+        begin(null, 0, engineType, bodies.size(), avgFPS, computeTimeMs, metrics);
+        for(int i = 0; i < count; i++) {
+            Body body = bodies.get(i);
+            copy(i, body.getStore(), body.getIndex(), body);
+        }
+    }
+
+    /**
+     * Copy every particle of a store, in slot order, as the given step of a run. The store must
+     * not be stepped while this runs.
+     */
+    void capture(String runId, long step, String engineType, ParticleStore store, double avgFPS, long computeTimeMs, Map<String, ? extends Number> metrics) {
+        begin(runId, step, engineType, store != null ? store.size() : 0, avgFPS, computeTimeMs, metrics);
+        for(int i = 0; i < count; i++) {
+            copy(i, store, i, store.getView(i));
+        }
+    }
+
+    int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Append the snapshot as the experiment JSON the service expects
+     * @param json builder to append to
+     */
+    void appendJson(StringBuilder json) {
+        json.append("{");
+        appendFields(json);
+        json.append(",\"particles\":[");
+        for(int i = 0; i < count; i++) {
+            if(i > 0) {
+                json.append(",");
+            }
+            json.append("{");
+            json.append("\"id\":").append(i).append(",");
+            json.append("\"position\":[").append(positions[2 * i]).append(",").append(positions[2 * i + 1]).append("],");
+            json.append("\"velocity\":[").append(velocities[2 * i]).append(",").append(velocities[2 * i + 1]).append("],");
+            json.append("\"mass\":").append(masses[i]).append(",");
+            json.append("\"radius\":").append(radii[i]).append(",");
+            json.append("\"color\":\"#");
+            for(int shift = 20; shift >= 0; shift -= 4) {
+                json.append(HEX[(colors[i] >>> shift) & 0xF]);
+            }
+            json.append("\"}");
+        }
+        json.append("]");
+        json.append("}");
+    }
+
+    /**
+     * Size of the snapshot as one record of the binary snapshot format
+     * @param header the record's JSON header, from binaryHeader
+     * @return bytes writeBinary will put, including the length prefix
+     */
+    int binaryLength(byte[] header) {
+        // header length, header, count, flags, then positions, velocities, masses, radii and colors
+        return 4 + 4 + header.length + 4 + 1 + count * (16 + 16 + 8 + 8 + 4);
+    }
+
+    /**
+     * JSON header of the binary record: every experiment field except the particles
+     */
+    byte[] binaryHeader(StringBuilder scratch) {
+        scratch.setLength(0);
+        scratch.append("{");
+        appendFields(scratch);
+        scratch.append("}");
+        return scratch.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Put the snapshot as one record of the service's binary snapshot format (see the service's
+     * ExperimentBinaryCodec): length-prefixed, little-endian, with the particle fields as columns.
+     * Particle ids are implicit, as in the JSON form.
+     * @param buffer little-endian buffer with binaryLength bytes remaining
+     * @param header the record's JSON header, from binaryHeader
+     */
+    void writeBinary(ByteBuffer buffer, byte[] header) {
+        buffer.putInt(binaryLength(header) - 4);
+        buffer.putInt(header.length);
+        buffer.put(header);
+        buffer.putInt(count);
+        buffer.put(BINARY_FLAG_COLORS);
+        buffer.asDoubleBuffer().put(positions, 0, 2 * count);
+        buffer.position(buffer.position() + 16 * count);
+        buffer.asDoubleBuffer().put(velocities, 0, 2 * count);
+        buffer.position(buffer.position() + 16 * count);
+        buffer.asDoubleBuffer().put(masses, 0, count);
+        buffer.position(buffer.position() + 8 * count);
+        buffer.asDoubleBuffer().put(radii, 0, count);
+        buffer.position(buffer.position() + 8 * count);
+        buffer.asIntBuffer().put(colors, 0, count);
+        buffer.position(buffer.position() + 4 * count);
+    }
+
+    private void appendFields(StringBuilder json) {
+        // without a run the service files the snapshot as a run of its own
+        if(runId != null) {
+            json.append("\"runId\":\"").append(runId).append("\",");
+            json.append("\"step\":").append(step).append(",");
+        }
+        json.append("\"timestamp\":\"").append(timestamp.toString()).append("\",");
+        json.append("\"engineType\":\"").append(engineType).append("\",");
+        json.append("\"particleCount\":").append(count).append(",");
+        json.append("\"avgFPS\":").append(avgFPS).append(",");
+        json.append("\"computeTimeMs\":").append(computeTimeMs);
+        if(!metrics.isEmpty()) {
+            json.append(",\"metrics\":{");
+            String separator = "";
+            for(Map.Entry<String, Number> metric : metrics.entrySet()) {
+                double value = metric.getValue().doubleValue();
+                // JSON has no NaN or infinity
+                json.append(separator).append("\"").append(metric.getKey()).append("\":")
+                    .append(Double.isFinite(value) ? metric.getValue().toString() : "null");
+                separator = ",";
+            }
+            json.append("}");
+        }
+    }
+
+    private void begin(String runId, long step, String engineType, int count, double avgFPS, long computeTimeMs, Map<String, ? extends Number> metrics) {
+        this.runId = runId;
+        this.step = step;
+        this.engineType = engineType;
+        this.timestamp = Instant.now();
+        this.count = count;
+        this.avgFPS = avgFPS;
+        this.computeTimeMs = computeTimeMs;
+        this.metrics.clear();
+        this.metrics.putAll(metrics);
+        if(masses.length < count) {
+            positions = new double[2 * count];
+            velocities = new double[2 * count];
+            masses = new double[count];
+            radii = new double[count];
+            colors = new int[count];
+        }
+    }
+
+    private void copy(int i, ParticleStore store, int slot, Body body) {
+        int dimension = store.getDimension();
+        int offset = slot * dimension;
+        positions[2 * i] = store.getPositions()[offset];
+        positions[2 * i + 1] = dimension > 1 ? store.getPositions()[offset + 1] : 0;
+        velocities[2 * i] = store.getVelocities()[offset];
+        velocities[2 * i + 1] = dimension > 1 ? store.getVelocities()[offset + 1] : 0;
+        masses[i] = store.getMasses()[slot];
+        radii[i] = store.getRadii()[slot];
+        // only drawable bodies carry a color; headless runs never touch JavaFX
+        colors[i] = body instanceof DrawableBody ? rgb(((DrawableBody) body).getFillColor()) : DEFAULT_COLOR;
+    }
+
+    private static int rgb(Color color) {
+        return (int) (color.getRed() * 255) << 16 | (int) (color.getGreen() * 255) << 8 | (int) (color.getBlue() * 255);
+    }
+}
@@ -0,0 +1,21 @@
+package simulator.cloud;
+
+/**
+ * How SnapshotPipeline encodes a batch of snapshots for the experiment service
+ */
+public enum SnapshotEncoding {
+    /** A JSON array of experiments, as buildSnapshotJson writes them */
+    JSON("application/json"),
+    /** The service's columnar binary format: a small JSON header per experiment, then raw little-endian particle arrays */
+    BINARY("application/x-simulator-snapshot");
+
+    private final String contentType;
+
+    SnapshotEncoding(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return this.contentType;
+    }
+}
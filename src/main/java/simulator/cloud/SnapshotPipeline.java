@@ -0,0 +1,457 @@
+package simulator.cloud;
+
+import simulator.logging.Log;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SnapshotPipeline class - bounded, batched delivery of experiment snapshots.
+ * submit copies the state into a pooled buffer on the caller's thread, which should be the
+ * stepping thread between steps so the copy is never torn. A single exporter thread takes
+ * whatever has queued up, up to the batch size, serializes it as one request body (a JSON
+ * array, or the service's binary snapshot format; see SnapshotEncoding), hands the
+ * buffers back to the pool and posts the body to the batch endpoint. There is at most one
+ * request in flight; failed requests (connection errors, 429 and 5xx) are retried with
+ * exponential backoff and full jitter. The pool holds at most capacity snapshots, so memory
+ * stays bounded however slow the service is, and once it is exhausted the OverflowPolicy
+ * decides whether to drop the oldest or the newest snapshot or to make the caller wait.
+ * With compression on, each batch is gzipped and sent with Content-Encoding: gzip.
+ */
+public class SnapshotPipeline {
+    private static final System.Logger LOG = Log.get(SnapshotPipeline.class);
+    private static final AtomicInteger PIPELINE_IDS = new AtomicInteger();
+    private static final byte[] BINARY_MAGIC = {'E', 'X', 'P', 'S'};
+    private static final byte BINARY_VERSION = 1;
+    private static final Pattern FAILED_COUNT = Pattern.compile("\"failed\"\\s*:\\s*(\\d+)");
+
+    private final URI endpoint;
+    private final int capacity;
+    private final int batchSize;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxAttempts;
+    private final Duration baseBackoff;
+    private final Duration maxBackoff;
+    private final Duration blockTimeout;
+    private final HttpClient client;
+
+    private final BlockingQueue<PendingSnapshot> queue;
+    private final BlockingQueue<PendingSnapshot> free;
+    private final AtomicInteger allocated = new AtomicInteger();
+    private final Thread exporter;
+    private volatile boolean closed = false;
+    private volatile boolean compressed = false;
+    private volatile SnapshotEncoding encoding = SnapshotEncoding.JSON;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    /**
+     * Constructor - starts the exporter thread
+     * @param endpoint URL accepting a batch of experiments
+     * @param capacity most snapshots held at once, queued or being serialized
+     * @param batchSize most snapshots per request
+     * @param overflowPolicy what to do when all capacity snapshots are held
+     * @param maxAttempts tries per request, including the first
+     * @param baseBackoff backoff before the first retry; doubles with every further retry
+     */
+    public SnapshotPipeline(URI endpoint, int capacity, int batchSize, OverflowPolicy overflowPolicy, int maxAttempts, Duration baseBackoff) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive (currently " + capacity + ")");
+        }
+        if(batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive (currently " + batchSize + ")");
+        }
+        if(maxAttempts <= 0) {
+            throw new IllegalArgumentException("Attempts must be positive (currently " + maxAttempts + ")");
+        }
+        this.endpoint = endpoint;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.maxAttempts = maxAttempts;
+        this.baseBackoff = baseBackoff;
+        this.maxBackoff = baseBackoff.multipliedBy(32);
+        this.blockTimeout = Duration.ofSeconds(1);
+        this.client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.free = new ArrayBlockingQueue<>(capacity);
+        this.exporter = new Thread(this::run, "snapshot-exporter-" + PIPELINE_IDS.incrementAndGet());
+        this.exporter.setDaemon(true);
+        this.exporter.start();
+    }
+
+    /**
+     * Queue a snapshot of a list of bodies, which must not be stepped while this runs
+     * @param engineType engine name stored with the experiment
+     * @param bodies bodies to record
+     * @param avgFPS steps per second
+     * @param computeTimeMs time spent stepping so far, in milliseconds
+     * @param metrics named measurements stored under the experiment's metrics
+     * @return true if the snapshot was queued, false if it was dropped
+     */
+    public boolean submit(String engineType, List<? extends Body> bodies, double avgFPS, long computeTimeMs, Map<String, ? extends Number> metrics) {
+        PendingSnapshot snapshot = acquire();
+        if(snapshot == null) {
+            return false;
+        }
+        snapshot.capture(engineType, bodies, avgFPS, computeTimeMs, metrics);
+        return enqueue(snapshot);
+    }
+
+    /**
+     * Queue a snapshot of every particle in a store, which must not be stepped while this runs
+     * @param runId run the snapshot belongs to; the service stores it as that run's frame at step
+     * @param step engine step the snapshot was taken at, unique within the run
+     * @param engineType engine name stored with the experiment
+     * @param store particles to record, may be null for an empty engine
+     * @param avgFPS steps per second
+     * @param computeTimeMs time spent stepping so far, in milliseconds
+     * @param metrics named measurements stored under the experiment's metrics
+     * @return true if the snapshot was queued, false if it was dropped
+     */
+    public boolean submit(String runId, long step, String engineType, ParticleStore store, double avgFPS, long computeTimeMs, Map<String, ? extends Number> metrics) {
+        PendingSnapshot snapshot = acquire();
+        if(snapshot == null) {
+            return false;
+        }
+        snapshot.capture(runId, step, engineType, store, avgFPS, computeTimeMs, metrics);
+        return enqueue(snapshot);
+    }
+
+    /**
+     * Stop accepting snapshots and give the exporter time to deliver what is queued
+     * @param timeout how long to wait for the queue to drain
+     * @return true if everything queued was delivered or given up on in time
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean close(Duration timeout) throws InterruptedException {
+        closed = true;
+        exporter.join(Math.max(1, timeout.toMillis()));
+        if(exporter.isAlive()) {
+            exporter.interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    public URI getEndpoint() {
+        return this.endpoint;
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    public SnapshotEncoding getEncoding() {
+        return this.encoding;
+    }
+
+    /**
+     * Encode batches as JSON or as the service's binary format from the next batch on
+     * @param encoding how to encode request bodies
+     * @return this pipeline
+     */
+    public SnapshotPipeline setEncoding(SnapshotEncoding encoding) {
+        this.encoding = encoding;
+        return this;
+    }
+
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
+    /**
+     * Gzip request bodies from the next batch on; snapshot JSON typically shrinks several times over
+     * @param compressed true to send batches with Content-Encoding: gzip
+     * @return this pipeline
+     */
+    public SnapshotPipeline setCompressed(boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    /**
+     * Queued getter
+     * @return snapshots waiting for the exporter
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * Dropped getter
+     * @return snapshots discarded by the overflow policy
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Exported getter
+     * @return snapshots the service accepted
+     */
+    public long getExported() {
+        return exported.get();
+    }
+
+    /**
+     * Failed getter
+     * @return snapshots given up on after every attempt failed or the service rejected them, including
+     *         those a 207 response reported as rejected
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /**
+     * Retries getter
+     * @return requests repeated after a failed attempt
+     */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * Private helper to take a pooled buffer, applying the overflow policy when none is left
+     */
+    private PendingSnapshot acquire() {
+        if(closed) {
+            dropped.incrementAndGet();
+            return null;
+        }
+        submitted.incrementAndGet();
+        PendingSnapshot snapshot = free.poll();
+        if(snapshot != null) {
+            return snapshot;
+        }
+        if(allocated.getAndUpdate(count -> count < capacity ? count + 1 : count) < capacity) {
+            return new PendingSnapshot();
+        }
+        switch(overflowPolicy) {
+            case DROP_OLDEST:
+                snapshot = queue.poll();
+                if(snapshot != null) {
+                    dropped.incrementAndGet();
+                    return snapshot;
+                }
+                break;
+            case BLOCK:
+                try {
+                    snapshot = free.poll(blockTimeout.toNanos(), TimeUnit.NANOSECONDS);
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if(snapshot != null) {
+                    return snapshot;
+                }
+                break;
+            default:
+                break;
+        }
+        // every buffer is held by the exporter: the new snapshot is the one to go
+        dropped.incrementAndGet();
+        LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "snapshot_dropped", "policy", overflowPolicy, "dropped", dropped.get()));
+        return null;
+    }
+
+    private boolean enqueue(PendingSnapshot snapshot) {
+        // at most capacity buffers exist, so the queue always has room for this one
+        if(!queue.offer(snapshot)) {
+            free.offer(snapshot);
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void run() {
+        List<PendingSnapshot> batch = new ArrayList<>(batchSize);
+        StringBuilder json = new StringBuilder();
+        while(!closed || !queue.isEmpty()) {
+            try {
+                PendingSnapshot first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if(first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+
+                int particles = 0;
+                for(PendingSnapshot snapshot : batch) {
+                    particles += snapshot.getCount();
+                }
+                SnapshotEncoding batchEncoding = encoding;
+                int count = batch.size();
+                byte[] body;
+                try {
+                    body = batchEncoding == SnapshotEncoding.BINARY ? encodeBinary(batch, json) : encodeJson(batch, json);
+                } catch(RuntimeException e) {
+                    failed.addAndGet(count);
+                    LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_batch_failed", "snapshots", count, "attempts", 0, "error", e.getMessage()));
+                    continue;
+                } finally {
+                    // the buffers are free again once serialized, even while the request is retried
+                    batch.forEach(free::offer);
+                    batch.clear();
+                }
+                send(body, batchEncoding.getContentType(), count, particles);
+            } catch(InterruptedException e) {
+                LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_export_interrupted", "queued", queue.size()));
+                return;
+            }
+        }
+    }
+
+    private static byte[] encodeJson(List<PendingSnapshot> batch, StringBuilder json) {
+        json.setLength(0);
+        json.append('[');
+        for(int i = 0; i < batch.size(); i++) {
+            if(i > 0) {
+                json.append(',');
+            }
+            batch.get(i).appendJson(json);
+        }
+        json.append(']');
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Private helper to write a batch as the binary snapshot format: magic, version, then one record per snapshot
+     */
+    private static byte[] encodeBinary(List<PendingSnapshot> batch, StringBuilder scratch) {
+        byte[][] headers = new byte[batch.size()][];
+        long length = BINARY_MAGIC.length + 1;
+        for(int i = 0; i < batch.size(); i++) {
+            headers[i] = batch.get(i).binaryHeader(scratch);
+            length += batch.get(i).binaryLength(headers[i]);
+        }
+        if(length > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Snapshot batch too large to send (currently " + length + " bytes)");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(BINARY_MAGIC).put(BINARY_VERSION);
+        for(int i = 0; i < batch.size(); i++) {
+            batch.get(i).writeBinary(buffer, headers[i]);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Private helper to post one batch, retrying with jittered exponential backoff
+     */
+    private void send(byte[] body, String contentType, int count, int particles) throws InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(endpoint)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", contentType);
+        if(compressed) {
+            builder.header("Content-Encoding", "gzip").POST(HttpRequest.BodyPublishers.ofByteArray(gzip(body)));
+        } else {
+            builder.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        }
+        HttpRequest request = builder.build();
+        for(int attempt = 1; ; attempt++) {
+            String error;
+            boolean retryable;
+            try {
+                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                int status = response.statusCode();
+                if(status / 100 == 2) {
+                    // 207: the service stored the batch but rejected some of its documents
+                    int rejected = status == 207 ? rejectedCount(response.body(), count) : 0;
+                    exported.addAndGet(count - rejected);
+                    failed.addAndGet(rejected);
+                    batches.incrementAndGet();
+                    if(status == 207) {
+                        LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_batch_partially_rejected", "snapshots", count, "rejected", rejected, "response", response.body()));
+                    }
+                    LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "snapshot_batch_logged", "snapshots", count, "particles", particles, "attempts", attempt));
+                    return;
+                }
+                error = "status " + status;
+                retryable = status == 429 || status / 100 == 5;
+            } catch(IOException e) {
+                error = e.getMessage();
+                retryable = true;
+            }
+            if(!retryable || attempt >= maxAttempts) {
+                failed.addAndGet(count);
+                LOG.log(System.Logger.Level.WARNING, Log.fields("event", "snapshot_batch_failed", "snapshots", count, "attempts", attempt, "error", error));
+                return;
+            }
+            retries.incrementAndGet();
+            long ceiling = Math.min(maxBackoff.toNanos(), baseBackoff.toNanos() << Math.min(attempt - 1, 30));
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+    }
+
+    /**
+     * Private helper to read the failed count from the service's ingest result
+     */
+    private static int rejectedCount(String body, int count) {
+        Matcher matcher = FAILED_COUNT.matcher(body != null ? body : "");
+        if(!matcher.find()) {
+            return 0;
+        }
+        try {
+            return (int) Math.min(count, Long.parseLong(matcher.group(1)));
+        } catch(NumberFormatException e) {
+            return count;
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try(GZIPOutputStream out = new GZIPOutputStream(bytes, 64 * 1024)) {
+            out.write(body);
+        } catch(IOException e) {
+            // only the in-memory stream is written to
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,80 @@
+package simulator.io;
+
+/**
+ * Byte-plane transposition of a frame's columns, combined with the XOR delta so each frame
+ * is encoded and decoded in one pass over its bytes
+ */
+final class ByteShuffle {
+
+    private ByteShuffle() {
+    }
+
+    /**
+     * Encode a frame's raw columns
+     * @param format the file's format
+     * @param count particles in the frame
+     * @param source raw columns
+     * @param reference previous frame's raw columns to XOR against, or null for a keyframe
+     * @param target receives the encoded bytes
+     * @param split whether to split columns into byte planes
+     */
+    static void encode(TrajectoryFormat format, int count, byte[] source, byte[] reference, byte[] target, boolean split) {
+        int offset = 0;
+        for(int column = 0; column < columns(format); column++) {
+            int elements = elements(format, count, column);
+            int size = split ? size(format, column) : 1;
+            int length = elements * size(format, column);
+            int planeLength = length / size;
+            for(int b = 0; b < size; b++) {
+                int plane = offset + b * planeLength;
+                for(int i = 0; i < planeLength; i++) {
+                    int at = offset + i * size + b;
+                    target[plane + i] = reference == null ? source[at] : (byte) (source[at] ^ reference[at]);
+                }
+            }
+            offset += length;
+        }
+    }
+
+    /**
+     * Decode what encode produced
+     * @param format the file's format
+     * @param count particles in the frame
+     * @param source encoded bytes
+     * @param reference previous frame's raw columns, or null for a keyframe
+     * @param target receives the raw columns
+     * @param split whether the columns were split into byte planes
+     */
+    static void decode(TrajectoryFormat format, int count, byte[] source, byte[] reference, byte[] target, boolean split) {
+        int offset = 0;
+        for(int column = 0; column < columns(format); column++) {
+            int elements = elements(format, count, column);
+            int size = split ? size(format, column) : 1;
+            int length = elements * size(format, column);
+            int planeLength = length / size;
+            for(int b = 0; b < size; b++) {
+                int plane = offset + b * planeLength;
+                for(int i = 0; i < planeLength; i++) {
+                    int at = offset + i * size + b;
+                    target[at] = reference == null ? source[plane + i] : (byte) (source[plane + i] ^ reference[at]);
+                }
+            }
+            offset += length;
+        }
+    }
+
+    /**
+     * Private helper for the column count: ids, masses, radii, positions and maybe velocities
+     */
+    private static int columns(TrajectoryFormat format) {
+        return format.hasVelocities() ? 5 : 4;
+    }
+
+    private static int elements(TrajectoryFormat format, int count, int column) {
+        return column < 3 ? count : count * format.getDimension();
+    }
+
+    private static int size(TrajectoryFormat format, int column) {
+        return column == 0 ? Integer.BYTES : format.getValueBytes();
+    }
+}
@@ -0,0 +1,127 @@
+package simulator.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+/**
+ * Decodes the frames of one trajectory file in order, keeping the previous frame's raw
+ * bytes to undo delta encoding. After a seek, decoding must restart at a keyframe.
+ */
+class FrameDecoder {
+    private final TrajectoryFormat format;
+    private final CRC32C checksum = new CRC32C();
+
+    private byte[] stored = new byte[0];
+    private byte[] encoded = new byte[0];
+    private byte[] raw = new byte[0];
+    private byte[] previous = new byte[0];
+    private int previousLength = -1;
+
+    FrameDecoder(TrajectoryFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Decode the frame at the buffer's position and move the position past it
+     * @param buffer little-endian buffer positioned at a frame header
+     * @param frame receives the decoded frame
+     */
+    void decode(ByteBuffer buffer, TrajectoryFrame frame) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.remaining() < TrajectoryFormat.FRAME_HEADER_BYTES || buffer.getInt() != TrajectoryFormat.FRAME_MAGIC) {
+            throw new IllegalArgumentException("Trajectory frame header is missing or corrupt");
+        }
+        int flags = buffer.getInt();
+        long step = buffer.getLong();
+        double time = buffer.getDouble();
+        int count = buffer.getInt();
+        int rawLength = buffer.getInt();
+        int storedLength = buffer.getInt();
+        int expectedChecksum = buffer.getInt();
+        if(count < 0 || rawLength != format.getRawLength(count) || storedLength < 0 || storedLength > buffer.remaining()) {
+            throw new IllegalArgumentException("Trajectory frame at step " + step + " is truncated or corrupt");
+        }
+        boolean keyframe = (flags & TrajectoryFormat.FRAME_KEYFRAME) != 0;
+        if(!keyframe && previousLength != rawLength) {
+            throw new IllegalArgumentException("Delta frame at step " + step + " needs the frame before it; start from a keyframe");
+        }
+        ensureCapacity(rawLength, storedLength);
+        buffer.get(stored, 0, storedLength);
+        checksum.reset();
+        checksum.update(stored, 0, storedLength);
+        if((int) checksum.getValue() != expectedChecksum) {
+            throw new IllegalArgumentException("Trajectory frame at step " + step + " fails its checksum");
+        }
+
+        byte[] planes = stored;
+        if((flags & TrajectoryFormat.FRAME_COMPRESSED) != 0) {
+            LzCodec.decompress(stored, 0, storedLength, encoded, 0, rawLength);
+            planes = encoded;
+        } else if(storedLength != rawLength) {
+            throw new IllegalArgumentException("Trajectory frame at step " + step + " has " + storedLength + " stored bytes (expected " + rawLength + ")");
+        }
+        boolean shuffled = (flags & TrajectoryFormat.FRAME_SHUFFLED) != 0;
+        byte[] reference = keyframe ? null : previous;
+        if(shuffled || reference != null) {
+            ByteShuffle.decode(format, count, planes, reference, raw, shuffled);
+        } else {
+            System.arraycopy(planes, 0, raw, 0, rawLength);
+        }
+
+        frame.reset(step, time, count, format.getDimension(), keyframe);
+        readColumns(frame, count);
+        byte[] swap = previous;
+        previous = raw;
+        raw = swap;
+        previousLength = rawLength;
+    }
+
+    /**
+     * Forget the previous frame, e.g. after seeking
+     */
+    void reset() {
+        previousLength = -1;
+    }
+
+    private void readColumns(TrajectoryFrame frame, int count) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        int[] ids = frame.getIds();
+        for(int i = 0; i < count; i++) {
+            ids[i] = buffer.getInt();
+        }
+        int length = count * format.getDimension();
+        getReals(buffer, frame.getMasses(), count);
+        getReals(buffer, frame.getRadii(), count);
+        getReals(buffer, frame.getPositions(), length);
+        if(format.hasVelocities()) {
+            getReals(buffer, frame.getVelocities(), length);
+        } else {
+            Arrays.fill(frame.getVelocities(), 0, length, 0);
+        }
+    }
+
+    private void getReals(ByteBuffer buffer, double[] values, int length) {
+        if(format.isSinglePrecision()) {
+            for(int i = 0; i < length; i++) {
+                values[i] = buffer.getFloat();
+            }
+        } else {
+            buffer.asDoubleBuffer().get(values, 0, length);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        }
+    }
+
+    private void ensureCapacity(int rawLength, int storedLength) {
+        if(raw.length < rawLength) {
+            // a frame that outgrows the buffers has a new count, so it is a keyframe and needs no reference
+            raw = new byte[rawLength];
+            previous = new byte[rawLength];
+            encoded = new byte[rawLength];
+        }
+        if(stored.length < storedLength) {
+            stored = new byte[storedLength];
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package simulator.io;
+
+import simulator.models.ParticleStore;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32C;
+
+/**
+ * Turns particle state into encoded frames of a TrajectoryFormat, keeping the previous
+ * frame for delta encoding. All buffers are reused, so steady-state encoding does not
+ * allocate.
+ */
+class FrameEncoder {
+    private final TrajectoryFormat format;
+    private final LzCodec codec = new LzCodec();
+    private final CRC32C checksum = new CRC32C();
+
+    private byte[] raw = new byte[0];
+    private byte[] previous = new byte[0];
+    private int previousLength = -1;
+    private byte[] encoded = new byte[0];
+    private byte[] frame = new byte[0];
+    private long frames = 0;
+
+    FrameEncoder(TrajectoryFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Encode one frame
+     * @param store the particle state to record
+     * @param step step number of the state
+     * @param time simulated time of the state
+     * @return a little-endian buffer over the whole frame, valid until the next call
+     */
+    ByteBuffer encode(ParticleStore store, long step, double time) {
+        if(store.getDimension() != format.getDimension()) {
+            throw new IllegalArgumentException("Store dimension must match the trajectory (dimension is " + store.getDimension() + ", expected " + format.getDimension() + ")");
+        }
+        int count = store.size();
+        int rawLength = format.getRawLength(count);
+        ensureCapacity(rawLength);
+        fillRaw(store, count);
+
+        boolean keyframe = !format.isDelta() || previousLength != rawLength || frames % format.getKeyframeInterval() == 0;
+        byte[] reference = keyframe ? null : previous;
+        int flags = keyframe ? TrajectoryFormat.FRAME_KEYFRAME : 0;
+        int storedLength = rawLength;
+        if(format.isCompressed()) {
+            ByteShuffle.encode(format, count, raw, reference, encoded, true);
+            flags |= TrajectoryFormat.FRAME_SHUFFLED;
+            int compressedLength = codec.compress(encoded, 0, rawLength, frame, TrajectoryFormat.FRAME_HEADER_BYTES);
+            if(compressedLength < rawLength) {
+                flags |= TrajectoryFormat.FRAME_COMPRESSED;
+                storedLength = compressedLength;
+            } else {
+                System.arraycopy(encoded, 0, frame, TrajectoryFormat.FRAME_HEADER_BYTES, rawLength);
+            }
+        } else if(reference != null) {
+            ByteShuffle.encode(format, count, raw, reference, encoded, false);
+            System.arraycopy(encoded, 0, frame, TrajectoryFormat.FRAME_HEADER_BYTES, rawLength);
+        } else {
+            System.arraycopy(raw, 0, frame, TrajectoryFormat.FRAME_HEADER_BYTES, rawLength);
+        }
+
+        checksum.reset();
+        checksum.update(frame, TrajectoryFormat.FRAME_HEADER_BYTES, storedLength);
+        ByteBuffer header = ByteBuffer.wrap(frame, 0, TrajectoryFormat.FRAME_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(TrajectoryFormat.FRAME_MAGIC);
+        header.putInt(flags);
+        header.putLong(step);
+        header.putDouble(time);
+        header.putInt(count);
+        header.putInt(rawLength);
+        header.putInt(storedLength);
+        header.putInt((int) checksum.getValue());
+
+        // this frame's raw bytes become the reference for the next one
+        byte[] swap = previous;
+        previous = raw;
+        raw = swap;
+        previousLength = rawLength;
+        frames++;
+        return ByteBuffer.wrap(frame, 0, TrajectoryFormat.FRAME_HEADER_BYTES + storedLength).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void fillRaw(ParticleStore store, int count) {
+        ByteBuffer buffer = ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN);
+        for(int i = 0; i < count; i++) {
+            buffer.putInt(store.getView(i).getId());
+        }
+        int length = count * format.getDimension();
+        putReals(buffer, store.getMasses(), count);
+        putReals(buffer, store.getRadii(), count);
+        putReals(buffer, store.getPositions(), length);
+        if(format.hasVelocities()) {
+            putReals(buffer, store.getVelocities(), length);
+        }
+    }
+
+    private void putReals(ByteBuffer buffer, double[] values, int length) {
+        if(format.isSinglePrecision()) {
+            for(int i = 0; i < length; i++) {
+                buffer.putFloat((float) values[i]);
+            }
+        } else {
+            buffer.asDoubleBuffer().put(values, 0, length);
+            buffer.position(buffer.position() + length * Double.BYTES);
+        }
+    }
+
+    private void ensureCapacity(int rawLength) {
+        // a frame that outgrows the buffers has a new count, so it is a keyframe and needs no reference
+        if(raw.length < rawLength) {
+            previous = new byte[rawLength];
+            raw = new byte[rawLength];
+            encoded = new byte[rawLength];
+            frame = new byte[Math.max(rawLength, TrajectoryFormat.FRAME_HEADER_BYTES + LzCodec.maxCompressedLength(rawLength))];
+        }
+    }
+}
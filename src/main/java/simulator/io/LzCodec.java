@@ -0,0 +1,195 @@
+package simulator.io;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * LzCodec class - a pure-Java compressor writing the LZ4 block format: sequences of literal
+ * bytes and back-references of at least four bytes into the last 64 KiB. Matches are found
+ * with a single-probe hash table, which favours speed over ratio; on shuffled, delta-encoded
+ * trajectory columns most of the input is long runs of zeros and compresses well anyway.
+ * An instance keeps its hash table between calls and is not thread-safe.
+ */
+public class LzCodec {
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final int MIN_MATCH = 4;
+    // the format requires the last 5 bytes to be literals and the last match to start 12 bytes before the end
+    private static final int LAST_LITERALS = 5;
+    private static final int MATCH_LIMIT = 12;
+    private static final int MAX_OFFSET = 65535;
+    private static final int HASH_LOG = 14;
+    private static final int RUN_MASK = 15;
+
+    private final int[] table = new int[1 << HASH_LOG];
+
+    /**
+     * Worst-case compressed size
+     * @param length input length in bytes
+     * @return the destination capacity compress may need
+     */
+    public static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compress a block
+     * @param source input bytes
+     * @param sourceOffset first input byte
+     * @param length number of input bytes
+     * @param target output buffer with at least maxCompressedLength(length) bytes from targetOffset
+     * @param targetOffset first output byte
+     * @return number of bytes written
+     */
+    public int compress(byte[] source, int sourceOffset, int length, byte[] target, int targetOffset) {
+        Arrays.fill(table, -1);
+        int end = sourceOffset + length;
+        int matchLimit = end - MATCH_LIMIT;
+        int anchor = sourceOffset;
+        int out = targetOffset;
+        int i = sourceOffset;
+        while(i < matchLimit) {
+            int sequence = (int) INT.get(source, i);
+            int hash = hash(sequence);
+            int reference = table[hash];
+            table[hash] = i;
+            if(reference < 0 || i - reference > MAX_OFFSET || (int) INT.get(source, reference) != sequence) {
+                i++;
+                continue;
+            }
+            int matchEnd = i + MIN_MATCH;
+            int matchMax = end - LAST_LITERALS;
+            int distance = i - reference;
+            while(matchEnd + Long.BYTES <= matchMax && (long) LONG.get(source, matchEnd) == (long) LONG.get(source, matchEnd - distance)) {
+                matchEnd += Long.BYTES;
+            }
+            while(matchEnd < matchMax && source[matchEnd] == source[reference + matchEnd - i]) {
+                matchEnd++;
+            }
+            out = writeSequence(source, anchor, i - anchor, target, out, i - reference, matchEnd - i);
+            // seed the table inside the match so the next run finds it
+            if(matchEnd - 2 < matchLimit) {
+                table[hash((int) INT.get(source, matchEnd - 2))] = matchEnd - 2;
+            }
+            i = matchEnd;
+            anchor = i;
+        }
+        return writeLiterals(source, anchor, end - anchor, target, out) - targetOffset;
+    }
+
+    /**
+     * Decompress a block written by compress, or by any LZ4 block compressor
+     * @param source compressed bytes
+     * @param sourceOffset first compressed byte
+     * @param length number of compressed bytes
+     * @param target output buffer
+     * @param targetOffset first output byte
+     * @param expected exact decompressed length
+     */
+    public static void decompress(byte[] source, int sourceOffset, int length, byte[] target, int targetOffset, int expected) {
+        int in = sourceOffset;
+        int inEnd = sourceOffset + length;
+        int out = targetOffset;
+        int outEnd = targetOffset + expected;
+        while(true) {
+            if(in >= inEnd) {
+                throw new IllegalArgumentException("Compressed block is truncated");
+            }
+            int token = source[in++] & 0xFF;
+            int literals = token >>> 4;
+            if(literals == RUN_MASK) {
+                int extra;
+                do {
+                    if(in >= inEnd) {
+                        throw new IllegalArgumentException("Compressed block is truncated");
+                    }
+                    extra = source[in++] & 0xFF;
+                    literals += extra;
+                } while(extra == 255);
+            }
+            if(literals > inEnd - in || literals > outEnd - out) {
+                throw new IllegalArgumentException("Compressed block is corrupt (literal run of " + literals + " overruns)");
+            }
+            System.arraycopy(source, in, target, out, literals);
+            in += literals;
+            out += literals;
+            if(in == inEnd) {
+                break;
+            }
+            if(inEnd - in < 2) {
+                throw new IllegalArgumentException("Compressed block is truncated");
+            }
+            int offset = (source[in] & 0xFF) | (source[in + 1] & 0xFF) << 8;
+            in += 2;
+            int match = (token & RUN_MASK) + MIN_MATCH;
+            if((token & RUN_MASK) == RUN_MASK) {
+                int extra;
+                do {
+                    if(in >= inEnd) {
+                        throw new IllegalArgumentException("Compressed block is truncated");
+                    }
+                    extra = source[in++] & 0xFF;
+                    match += extra;
+                } while(extra == 255);
+            }
+            if(offset == 0 || offset > out - targetOffset || match > outEnd - out) {
+                throw new IllegalArgumentException("Compressed block is corrupt (match at offset " + offset + " overruns)");
+            }
+            int from = out - offset;
+            if(offset >= match) {
+                System.arraycopy(target, from, target, out, match);
+            } else {
+                // overlapping copy repeats the last offset bytes, byte by byte
+                for(int k = 0; k < match; k++) {
+                    target[out + k] = target[from + k];
+                }
+            }
+            out += match;
+        }
+        if(out != outEnd) {
+            throw new IllegalArgumentException("Compressed block decodes to " + (out - targetOffset) + " bytes (expected " + expected + ")");
+        }
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int writeSequence(byte[] source, int literalStart, int literals, byte[] target, int out, int offset, int match) {
+        int matchCode = match - MIN_MATCH;
+        int token = out++;
+        out = writeLength(target, out, literals);
+        System.arraycopy(source, literalStart, target, out, literals);
+        out += literals;
+        target[out++] = (byte) offset;
+        target[out++] = (byte) (offset >>> 8);
+        out = writeLength(target, out, matchCode);
+        target[token] = (byte) (Math.min(literals, RUN_MASK) << 4 | Math.min(matchCode, RUN_MASK));
+        return out;
+    }
+
+    private static int writeLiterals(byte[] source, int literalStart, int literals, byte[] target, int out) {
+        target[out++] = (byte) (Math.min(literals, RUN_MASK) << 4);
+        out = writeLength(target, out, literals);
+        System.arraycopy(source, literalStart, target, out, literals);
+        return out + literals;
+    }
+
+    /**
+     * Private helper for the length extension bytes that follow a token nibble of 15
+     */
+    private static int writeLength(byte[] target, int out, int length) {
+        if(length < RUN_MASK) {
+            return out;
+        }
+        int rest = length - RUN_MASK;
+        while(rest >= 255) {
+            target[out++] = (byte) 255;
+            rest -= 255;
+        }
+        target[out++] = (byte) rest;
+        return out;
+    }
+}
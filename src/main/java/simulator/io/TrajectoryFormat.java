@@ -0,0 +1,198 @@
+package simulator.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TrajectoryFormat class - the layout of a binary trajectory file and the settings it was
+ * written with. Everything is little-endian.
+ * <pre>
+ * file    header, then frames back to back
+ * header  int magic "NTRJ" | short version | short dimension | byte value bytes (4 or 8)
+ *         | byte flags (DELTA, COMPRESSED, VELOCITIES) | short reserved | int keyframe interval
+ * frame   int magic "FRME" | int flags (KEYFRAME, SHUFFLED, COMPRESSED) | long step | double time
+ *         | int count | int raw length | int stored length | int CRC32C of the stored bytes
+ *         | stored bytes
+ * raw     int ids[count] | masses[count] | radii[count] | positions[count * dimension]
+ *         | velocities[count * dimension] if VELOCITIES; reals are float32 or float64
+ * </pre>
+ * A frame that is not a KEYFRAME holds its raw bytes XORed with the previous frame's raw
+ * bytes, so values that did not change become zeros. SHUFFLED frames store each column as
+ * byte planes (every value's first byte, then every second byte, ...), which lines the
+ * slowly varying sign and exponent bytes up into long runs. COMPRESSED frames are an
+ * LzCodec block of those bytes. Keyframes start the file, follow every keyframe interval
+ * frames and whenever the particle count changes, so a reader can start at any of them.
+ */
+public class TrajectoryFormat {
+    public static final int FILE_MAGIC = 'N' | 'T' << 8 | 'R' << 16 | 'J' << 24;
+    public static final int FRAME_MAGIC = 'F' | 'R' << 8 | 'M' << 16 | 'E' << 24;
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int FRAME_HEADER_BYTES = 40;
+
+    static final int FILE_DELTA = 1;
+    static final int FILE_COMPRESSED = 2;
+    static final int FILE_VELOCITIES = 4;
+    static final int FRAME_KEYFRAME = 1;
+    static final int FRAME_SHUFFLED = 2;
+    static final int FRAME_COMPRESSED = 4;
+
+    private final int dimension;
+    private boolean singlePrecision = false;
+    private boolean delta = true;
+    private boolean compressed = true;
+    private boolean velocities = true;
+    private int keyframeInterval = 64;
+
+    /**
+     * Constructor - float64, delta-encoded, compressed, with velocities and a keyframe every 64 frames
+     * @param dimension components per position and velocity
+     */
+    public TrajectoryFormat(int dimension) {
+        if(dimension <= 0 || dimension > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Dimension must be positive (dimension is " + dimension + ")");
+        }
+        this.dimension = dimension;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    public boolean isSinglePrecision() {
+        return this.singlePrecision;
+    }
+
+    /**
+     * Store reals as float32, halving the size at about 7 significant digits
+     * @param singlePrecision true for float32, false for float64
+     * @return this format, for chaining
+     */
+    public TrajectoryFormat setSinglePrecision(boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+        return this;
+    }
+
+    public boolean isDelta() {
+        return this.delta;
+    }
+
+    /**
+     * Encode frames against the previous frame
+     * @param delta whether to delta-encode frames between keyframes
+     * @return this format, for chaining
+     */
+    public TrajectoryFormat setDelta(boolean delta) {
+        this.delta = delta;
+        return this;
+    }
+
+    public boolean isCompressed() {
+        return this.compressed;
+    }
+
+    /**
+     * Shuffle and LZ-compress frames; a frame that does not shrink is stored as is
+     * @param compressed whether to compress frames
+     * @return this format, for chaining
+     */
+    public TrajectoryFormat setCompressed(boolean compressed) {
+        this.compressed = compressed;
+        return this;
+    }
+
+    public boolean hasVelocities() {
+        return this.velocities;
+    }
+
+    /**
+     * Record velocities as well as positions
+     * @param velocities whether frames carry a velocity column
+     * @return this format, for chaining
+     */
+    public TrajectoryFormat setVelocities(boolean velocities) {
+        this.velocities = velocities;
+        return this;
+    }
+
+    public int getKeyframeInterval() {
+        return this.keyframeInterval;
+    }
+
+    /**
+     * Set how often a frame is written whole; readers seek to the nearest keyframe and replay from there
+     * @param keyframeInterval frames between keyframes, 1 for no delta frames at all
+     * @return this format, for chaining
+     */
+    public TrajectoryFormat setKeyframeInterval(int keyframeInterval) {
+        if(keyframeInterval <= 0) {
+            throw new IllegalArgumentException("Keyframe interval must be positive (currently " + keyframeInterval + ")");
+        }
+        this.keyframeInterval = keyframeInterval;
+        return this;
+    }
+
+    /**
+     * Value size getter
+     * @return bytes per stored real, 4 or 8
+     */
+    public int getValueBytes() {
+        return singlePrecision ? Float.BYTES : Double.BYTES;
+    }
+
+    /**
+     * Compute the raw, unencoded size of a frame's columns
+     * @param count number of particles
+     * @return the raw length in bytes
+     */
+    public int getRawLength(int count) {
+        long perParticle = Integer.BYTES + 2L * getValueBytes() + (long) dimension * getValueBytes() * (velocities ? 2 : 1);
+        long length = perParticle * count;
+        if(length > Integer.MAX_VALUE - FRAME_HEADER_BYTES) {
+            throw new IllegalArgumentException("Frame of " + count + " particles is too large");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Write the file header
+     * @param buffer little-endian buffer with at least HEADER_BYTES remaining
+     */
+    void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(FILE_MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) dimension);
+        buffer.put((byte) getValueBytes());
+        buffer.put((byte) ((delta ? FILE_DELTA : 0) | (compressed ? FILE_COMPRESSED : 0) | (velocities ? FILE_VELOCITIES : 0)));
+        buffer.putShort((short) 0);
+        buffer.putInt(keyframeInterval);
+    }
+
+    /**
+     * Read a file header
+     * @param buffer buffer positioned at the start of the file, with at least HEADER_BYTES remaining
+     * @return the format the file was written with
+     */
+    public static TrajectoryFormat readHeader(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.remaining() < HEADER_BYTES || buffer.getInt() != FILE_MAGIC) {
+            throw new IllegalArgumentException("Not a trajectory file");
+        }
+        short version = buffer.getShort();
+        if(version != VERSION) {
+            throw new IllegalArgumentException("Unsupported trajectory version " + version + " (expected " + VERSION + ")");
+        }
+        TrajectoryFormat format = new TrajectoryFormat(buffer.getShort());
+        int valueBytes = buffer.get();
+        if(valueBytes != Float.BYTES && valueBytes != Double.BYTES) {
+            throw new IllegalArgumentException("Unsupported value size " + valueBytes + " (expected 4 or 8)");
+        }
+        int flags = buffer.get();
+        buffer.getShort();
+        return format.setSinglePrecision(valueBytes == Float.BYTES)
+                .setDelta((flags & FILE_DELTA) != 0)
+                .setCompressed((flags & FILE_COMPRESSED) != 0)
+                .setVelocities((flags & FILE_VELOCITIES) != 0)
+                .setKeyframeInterval(buffer.getInt());
+    }
+}
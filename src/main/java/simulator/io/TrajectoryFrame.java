@@ -0,0 +1,104 @@
+package simulator.io;
+
+/**
+ * TrajectoryFrame class - one decoded frame of a trajectory file, always in float64 whatever
+ * precision the file stores. Readers reuse a frame's arrays from one frame to the next,
+ * so the arrays may be longer than the frame; only the first count (or count * dimension)
+ * entries are valid.
+ */
+public class TrajectoryFrame {
+    private long step;
+    private double time;
+    private int count;
+    private int dimension;
+    private boolean keyframe;
+    private int[] ids = new int[0];
+    private double[] masses = new double[0];
+    private double[] radii = new double[0];
+    private double[] positions = new double[0];
+    private double[] velocities = new double[0];
+
+    /**
+     * Set the frame's scalars and grow its arrays to fit
+     */
+    void reset(long step, double time, int count, int dimension, boolean keyframe) {
+        this.step = step;
+        this.time = time;
+        this.count = count;
+        this.dimension = dimension;
+        this.keyframe = keyframe;
+        if(ids.length < count) {
+            ids = new int[count];
+            masses = new double[count];
+            radii = new double[count];
+        }
+        if(positions.length < count * dimension) {
+            positions = new double[count * dimension];
+            velocities = new double[count * dimension];
+        }
+    }
+
+    /**
+     * Step getter
+     * @return the step the frame was recorded after
+     */
+    public long getStep() {
+        return this.step;
+    }
+
+    /**
+     * Time getter
+     * @return simulated time of the frame
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    public int getCount() {
+        return this.count;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Keyframe getter
+     * @return true if the frame was stored whole rather than as a delta
+     */
+    public boolean isKeyframe() {
+        return this.keyframe;
+    }
+
+    /**
+     * Ids getter
+     * @return body ids by slot
+     */
+    public int[] getIds() {
+        return this.ids;
+    }
+
+    public double[] getMasses() {
+        return this.masses;
+    }
+
+    public double[] getRadii() {
+        return this.radii;
+    }
+
+    /**
+     * Positions getter
+     * @return flat positions, component d of particle i at i * dimension + d
+     */
+    public double[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * Velocities getter
+     * @return flat velocities laid out like positions; all zero if the file has no velocities
+     */
+    public double[] getVelocities() {
+        return this.velocities;
+    }
+}
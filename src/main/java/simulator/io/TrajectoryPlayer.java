@@ -0,0 +1,183 @@
+package simulator.io;
+
+import simulator.models.Body;
+import simulator.models.BodyBuilder;
+import simulator.physics.SnapshotBuffer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * TrajectoryPlayer class - replays a recorded trajectory on its own thread, publishing each
+ * frame to a SnapshotBuffer exactly as SimulationLoop publishes live steps, so a
+ * FrameInterpolator and any Renderer can draw a recording unchanged. Playback moves at a
+ * number of recorded frames per wall-clock second times a speed factor, which may be
+ * fractional or negative to scrub backwards; frames that fall between two ticks are skipped
+ * rather than decoded. Each recorded id is drawn by the same placeholder Body in every
+ * frame, so interpolation follows particles across frames.
+ */
+public class TrajectoryPlayer {
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(4);
+
+    private final TrajectoryReader reader;
+    private final double framesPerSecond;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final AtomicInteger seekTo = new AtomicInteger(-1);
+
+    // owned by the playback thread
+    private final TrajectoryFrame frame = new TrajectoryFrame();
+    private final Map<Integer, Body> bodies = new HashMap<>();
+    private Body[] slots = new Body[0];
+
+    private volatile double speed = 1;
+    private volatile boolean playing = true;
+    private volatile boolean stopped = false;
+    private volatile int current = -1;
+    private Thread thread;
+
+    /**
+     * Constructor
+     * @param reader the recording to play; only the player's thread may touch it once started
+     * @param framesPerSecond recorded frames shown per wall-clock second at speed 1
+     */
+    public TrajectoryPlayer(TrajectoryReader reader, double framesPerSecond) {
+        if(framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frames per second must be positive (currently " + framesPerSecond + ")");
+        }
+        if(reader.getFrameCount() == 0) {
+            throw new IllegalArgumentException("Trajectory " + reader.getPath() + " has no frames");
+        }
+        this.reader = reader;
+        this.framesPerSecond = framesPerSecond;
+    }
+
+    /**
+     * Publish the first frame and start the playback thread
+     */
+    public synchronized void start() {
+        if(thread != null) {
+            throw new IllegalStateException("Trajectory player already started");
+        }
+        show(0);
+        thread = new Thread(this::run, "trajectory-player");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the playback thread and wait for the frame in progress to finish
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        Thread running;
+        synchronized(this) {
+            running = thread;
+        }
+        if(running != null) {
+            running.join();
+        }
+    }
+
+    public void play() {
+        this.playing = true;
+    }
+
+    public void pause() {
+        this.playing = false;
+    }
+
+    public boolean isPlaying() {
+        return this.playing;
+    }
+
+    /**
+     * Speed setter
+     * @param speed multiple of the recorded frame rate; negative plays backwards, 0 holds the frame
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    public double getSpeed() {
+        return this.speed;
+    }
+
+    /**
+     * Jump to a frame; playback continues from there at the current speed
+     * @param index frame index, clamped to the recording
+     */
+    public void seek(int index) {
+        seekTo.set(Math.max(0, Math.min(index, reader.getFrameCount() - 1)));
+    }
+
+    /**
+     * Jump to the frame showing a step
+     * @param step step number, see TrajectoryReader.indexOfStep
+     */
+    public void seekStep(long step) {
+        seek(reader.indexOfStep(step));
+    }
+
+    /**
+     * Current frame getter
+     * @return index of the frame last published, -1 before start
+     */
+    public int getCurrentFrame() {
+        return this.current;
+    }
+
+    public int getFrameCount() {
+        return reader.getFrameCount();
+    }
+
+    /**
+     * Snapshots getter
+     * @return the buffer the player publishes frames to
+     */
+    public SnapshotBuffer getSnapshots() {
+        return this.snapshots;
+    }
+
+    private void run() {
+        int last = reader.getFrameCount() - 1;
+        double position = current;
+        long previous = System.nanoTime();
+        while(!stopped) {
+            long now = System.nanoTime();
+            int target = seekTo.getAndSet(-1);
+            if(target >= 0) {
+                position = target;
+            } else if(playing) {
+                position += (now - previous) / 1e9 * framesPerSecond * speed;
+            }
+            previous = now;
+            position = Math.max(0, Math.min(position, last));
+            int index = (int) position;
+            if(index != current) {
+                show(index);
+            }
+            LockSupport.parkNanos(TICK_NANOS);
+        }
+    }
+
+    /**
+     * Private helper to decode a frame and publish it with stable bodies for its ids
+     */
+    private void show(int index) {
+        reader.read(index, frame);
+        int count = frame.getCount();
+        if(slots.length < count) {
+            slots = new Body[count];
+        }
+        int[] ids = frame.getIds();
+        for(int i = 0; i < count; i++) {
+            slots[i] = bodies.computeIfAbsent(ids[i], id -> new BodyBuilder(frame.getDimension()).buildBody());
+        }
+        snapshots.publish(frame.getDimension(), count, frame.getPositions(), frame.getRadii(), slots, frame.getStep(), frame.getTime());
+        current = index;
+    }
+}
@@ -0,0 +1,273 @@
+package simulator.io;
+
+import simulator.logging.Log;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * TrajectoryReader class - random access to the frames of a binary trajectory file.
+ * Opening a file reads only the frame headers to build an index of offsets, steps, times
+ * and keyframes; the frames themselves are memory-mapped, so the operating system pages
+ * in just the frames that are read and nothing is copied onto the heap up front. Reading
+ * frame i decodes from the nearest keyframe at or before it, or continues from frame i - 1
+ * when frames are read in order, as during playback. A frame cut short at the end of the
+ * file, e.g. by a run that is still recording or crashed, is left out of the index.
+ * Not thread-safe.
+ */
+public class TrajectoryReader implements Closeable {
+    private static final System.Logger LOG = Log.get(TrajectoryReader.class);
+    // each mapping holds whole frames and stays below the 2 GiB limit of a ByteBuffer
+    private static final long MAX_REGION_BYTES = 1L << 30;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final TrajectoryFormat format;
+    private final FrameDecoder decoder;
+
+    private int frameCount = 0;
+    // end of the last complete frame
+    private long indexedEnd = TrajectoryFormat.HEADER_BYTES;
+    private long[] offsets = new long[64];
+    private long[] steps = new long[64];
+    private double[] times = new double[64];
+    private int[] counts = new int[64];
+    private int[] keyframes = new int[64];
+    private int[] regionOf = new int[64];
+    private long[] regionStarts;
+    private MappedByteBuffer[] regions;
+
+    // index of the frame whose raw bytes the decoder holds, or -1
+    private int decoded = -1;
+
+    /**
+     * Constructor - opens the file, reads its header and indexes its frames
+     * @param path trajectory file written by TrajectoryWriter
+     * @throws IOException if the file cannot be read
+     */
+    public TrajectoryReader(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            header.flip();
+            this.format = TrajectoryFormat.readHeader(header);
+            this.decoder = new FrameDecoder(format);
+            index();
+            map();
+        } catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "trajectory_opened", "path", path, "frames", frameCount, "regions", regions.length));
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public TrajectoryFormat getFormat() {
+        return this.format;
+    }
+
+    /**
+     * Frame count getter
+     * @return number of complete frames in the file
+     */
+    public int getFrameCount() {
+        return this.frameCount;
+    }
+
+    /**
+     * Step getter
+     * @param index frame index
+     * @return the step the frame was recorded after
+     */
+    public long getStep(int index) {
+        checkIndex(index);
+        return this.steps[index];
+    }
+
+    /**
+     * Time getter
+     * @param index frame index
+     * @return simulated time of the frame
+     */
+    public double getTime(int index) {
+        checkIndex(index);
+        return this.times[index];
+    }
+
+    /**
+     * Count getter
+     * @param index frame index
+     * @return number of particles in the frame
+     */
+    public int getCount(int index) {
+        checkIndex(index);
+        return this.counts[index];
+    }
+
+    /**
+     * Keyframe getter
+     * @param index frame index
+     * @return the index of the keyframe decoding of the frame starts from
+     */
+    public int getKeyframe(int index) {
+        checkIndex(index);
+        return this.keyframes[index];
+    }
+
+    /**
+     * Find the frame showing a step
+     * @param step step number to look up
+     * @return index of the last frame recorded at or before the step, 0 if the step precedes every frame
+     */
+    public int indexOfStep(long step) {
+        int found = Arrays.binarySearch(steps, 0, frameCount, step);
+        if(found >= 0) {
+            return found;
+        }
+        return Math.max(0, -found - 2);
+    }
+
+    /**
+     * Decode a frame
+     * @param index frame index
+     * @param frame receives the frame; its arrays are reused
+     */
+    public void read(int index, TrajectoryFrame frame) {
+        checkIndex(index);
+        int keyframe = keyframes[index];
+        if(keyframe < 0) {
+            throw new IllegalArgumentException("Frame " + index + " has no keyframe before it");
+        }
+        int from = decoded >= keyframe && decoded < index ? decoded + 1 : keyframe;
+        if(from == keyframe) {
+            decoder.reset();
+        }
+        decoded = -1;
+        for(int i = from; i <= index; i++) {
+            MappedByteBuffer region = regions[regionOf[i]];
+            region.position((int) (offsets[i] - regionStarts[regionOf[i]]));
+            decoder.decode(region, frame);
+        }
+        decoded = index;
+    }
+
+    /**
+     * Close the file. Mapped regions are released once they are garbage collected.
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Private helper to walk the frame headers and record where each frame lives
+     */
+    private void index() throws IOException {
+        long size = channel.size();
+        long offset = TrajectoryFormat.HEADER_BYTES;
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.FRAME_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int lastKeyframe = -1;
+        while(offset + TrajectoryFormat.FRAME_HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, offset);
+            header.flip();
+            if(header.getInt() != TrajectoryFormat.FRAME_MAGIC) {
+                throw new IllegalArgumentException("Trajectory frame " + frameCount + " at byte " + offset + " is corrupt");
+            }
+            int flags = header.getInt();
+            long step = header.getLong();
+            double time = header.getDouble();
+            int count = header.getInt();
+            header.getInt();
+            int storedLength = header.getInt();
+            long end = offset + TrajectoryFormat.FRAME_HEADER_BYTES + storedLength;
+            if(storedLength < 0 || end > size) {
+                break;
+            }
+            if((flags & TrajectoryFormat.FRAME_KEYFRAME) != 0) {
+                lastKeyframe = frameCount;
+            }
+            ensureCapacity(frameCount + 1);
+            offsets[frameCount] = offset;
+            steps[frameCount] = step;
+            times[frameCount] = time;
+            counts[frameCount] = count;
+            keyframes[frameCount] = lastKeyframe;
+            frameCount++;
+            offset = end;
+        }
+        indexedEnd = offset;
+        if(offset < size) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "trajectory_truncated", "path", path, "frames", frameCount, "ignoredBytes", size - offset));
+        }
+    }
+
+    /**
+     * Private helper to map the indexed frames in as few regions as fit, never splitting a frame
+     */
+    private void map() throws IOException {
+        long[] starts = new long[4];
+        long[] ends = new long[4];
+        int count = 0;
+        for(int i = 0; i < frameCount; i++) {
+            long end = i + 1 < frameCount ? offsets[i + 1] : indexedEnd;
+            if(count == 0 || end - starts[count - 1] > MAX_REGION_BYTES) {
+                if(count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                starts[count++] = offsets[i];
+            }
+            ends[count - 1] = end;
+            regionOf[i] = count - 1;
+        }
+        regionStarts = Arrays.copyOf(starts, count);
+        regions = new MappedByteBuffer[count];
+        for(int r = 0; r < count; r++) {
+            regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, starts[r], ends[r] - starts[r]);
+            regions[r].order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while(buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if(read < 0) {
+                throw new EOFException("Unexpected end of trajectory file " + path);
+            }
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= offsets.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        steps = Arrays.copyOf(steps, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+        counts = Arrays.copyOf(counts, newCapacity);
+        keyframes = Arrays.copyOf(keyframes, newCapacity);
+        regionOf = Arrays.copyOf(regionOf, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= this.frameCount) {
+            throw new IndexOutOfBoundsException("Frame index " + index + " out of bounds for " + this.frameCount + " frames");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package simulator.io;
+
+import simulator.models.ParticleStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TrajectoryWriter class - streams frames of a binary trajectory to a file.
+ * Each frame is encoded in memory and appended to the file with a single FileChannel
+ * write, so recording costs one pass over the particles plus the encoding; nothing is
+ * formatted as text. See TrajectoryFormat for the layout. Not thread-safe: call write from
+ * the thread that steps the engine, between steps.
+ */
+public class TrajectoryWriter implements Closeable {
+    private final Path path;
+    private final TrajectoryFormat format;
+    private final FileChannel channel;
+    private final FrameEncoder encoder;
+
+    private long frames = 0;
+    private long bytesWritten = 0;
+    private long rawBytes = 0;
+
+    /**
+     * Constructor - creates or truncates the file and writes its header
+     * @param path file to write
+     * @param format layout and encoding of the frames
+     * @throws IOException if the file cannot be opened or written
+     */
+    public TrajectoryWriter(Path path, TrajectoryFormat format) throws IOException {
+        this.path = path;
+        this.format = format;
+        this.encoder = new FrameEncoder(format);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(TrajectoryFormat.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        format.writeHeader(header);
+        header.flip();
+        try {
+            writeFully(header);
+        } catch(IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Append one frame
+     * @param store the particle state to record; its dimension must match the format's
+     * @param step step number of the state
+     * @param time simulated time of the state
+     * @throws IOException if the frame cannot be written
+     */
+    public void write(ParticleStore store, long step, double time) throws IOException {
+        ByteBuffer frame = encoder.encode(store, step, time);
+        writeFully(frame);
+        frames++;
+        rawBytes += TrajectoryFormat.FRAME_HEADER_BYTES + format.getRawLength(store.size());
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public TrajectoryFormat getFormat() {
+        return this.format;
+    }
+
+    public long getFrames() {
+        return this.frames;
+    }
+
+    /**
+     * Bytes written getter
+     * @return size of the file so far, header included
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten;
+    }
+
+    /**
+     * Compression ratio getter
+     * @return frame bytes before delta encoding and compression divided by bytes written, 1 with no frames
+     */
+    public double getCompressionRatio() {
+        long frameBytes = bytesWritten - TrajectoryFormat.HEADER_BYTES;
+        return frameBytes > 0 ? (double) rawBytes / frameBytes : 1;
+    }
+
+    /**
+     * Flush and close the file
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package simulator.logging;
+
+/**
+ * Log class - entry point for the simulator's logging, built on the JDK's System.Logger so
+ * the backend (java.util.logging by default) is chosen at deployment time.
+ * Messages are structured as space-separated key=value fields. Logging inside per-body or
+ * per-pair loops must also be guarded by HOT_PATH: it is a static final read once at class
+ * load, so when it is off the JIT removes the guarded code entirely.
+ */
+public final class Log {
+    /** Set with -Dsimulator.log.hotpath=true to allow per-body and per-pair logging */
+    public static final boolean HOT_PATH = Boolean.getBoolean("simulator.log.hotpath");
+
+    private Log() {
+    }
+
+    /**
+     * Logger getter
+     * @param type class doing the logging; its name becomes the logger name
+     * @return the logger
+     */
+    public static System.Logger get(Class<?> type) {
+        return System.getLogger(type.getName());
+    }
+
+    /**
+     * Format alternating keys and values as "key=value key=value"
+     * @param keyValues keys and values; a trailing key without a value is ignored
+     * @return the formatted fields
+     */
+    public static String fields(Object... keyValues) {
+        StringBuilder line = new StringBuilder();
+        for(int i = 0; i + 1 < keyValues.length; i += 2) {
+            if(line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(keyValues[i]).append('=');
+            appendValue(line, keyValues[i + 1]);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Private helper to append a value, quoting strings that contain spaces
+     */
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        if(text.indexOf(' ') >= 0 || text.indexOf('"') >= 0) {
+            line.append('"').append(text.replace("\"", "\\\"")).append('"');
+        } else {
+            line.append(text);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package simulator.logging;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * ParticleTrace class - records the state of selected particles every step without slowing
+ * the step down. The simulation thread copies each traced particle's position, velocity and
+ * acceleration into a preallocated ring buffer; a daemon thread drains the ring, formats the
+ * records and hands them to a Sink. Recording never blocks or allocates: when the ring is
+ * full the record is dropped and counted.
+ * Enable from the command line with -Dsimulator.trace.ids=3,17 (and optionally
+ * -Dsimulator.trace.capacity=N); records then go to the "simulator.trace" logger at INFO.
+ */
+public class ParticleTrace {
+    private static final int MAX_DIMENSION = 3;
+    private static final int FIELDS = 3 * MAX_DIMENSION;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Destination for formatted trace records
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(String record);
+    }
+
+    private final Set<Integer> ids;
+    private final Sink sink;
+    private final int mask;
+    private final long[] steps;
+    private final int[] recordIds;
+    private final int[] dimensions;
+    private final double[] values;
+
+    // producer-owned
+    private long head = 0;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong consumed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed = false;
+    private final Thread drainer;
+
+    /**
+     * Constructor - starts the draining thread
+     * @param ids ids of the bodies to trace
+     * @param capacity ring size in records, rounded up to a power of two
+     * @param sink where formatted records go, called on the draining thread
+     */
+    public ParticleTrace(Set<Integer> ids, int capacity, Sink sink) {
+        if(capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive (currently " + capacity + ")");
+        }
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.ids = Set.copyOf(ids);
+        this.sink = sink;
+        this.mask = size - 1;
+        this.steps = new long[size];
+        this.recordIds = new int[size];
+        this.dimensions = new int[size];
+        this.values = new double[size * FIELDS];
+        this.drainer = new Thread(this::drain, "particle-trace");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * Build a trace from -Dsimulator.trace.ids and -Dsimulator.trace.capacity
+     * @return the trace, or null when no ids are configured
+     */
+    public static ParticleTrace fromSystemProperties() {
+        String property = System.getProperty("simulator.trace.ids", "").strip();
+        if(property.isEmpty()) {
+            return null;
+        }
+        Set<Integer> ids = new HashSet<>();
+        for(String id : property.split(",")) {
+            ids.add(Integer.parseInt(id.strip()));
+        }
+        int capacity = Integer.getInteger("simulator.trace.capacity", 4096);
+        System.Logger logger = System.getLogger("simulator.trace");
+        return new ParticleTrace(ids, capacity, record -> logger.log(System.Logger.Level.INFO, record));
+    }
+
+    /**
+     * Ids getter
+     * @return ids of the traced bodies
+     */
+    public Set<Integer> getIds() {
+        return this.ids;
+    }
+
+    /**
+     * Check whether a body is traced
+     * @param body the body to check
+     * @return true if the body's id is traced
+     */
+    public boolean isTraced(Body body) {
+        return ids.contains(body.getId());
+    }
+
+    /**
+     * Record one particle's state. Simulation thread only.
+     * @param step step number the state belongs to
+     * @param body the traced body
+     */
+    public void record(long step, Body body) {
+        if(head - consumed.get() > mask) {
+            dropped.incrementAndGet();
+            return;
+        }
+        ParticleStore store = body.getStore();
+        int dimension = Math.min(MAX_DIMENSION, store.getDimension());
+        int slot = (int) (head & mask);
+        int offset = body.getIndex() * store.getDimension();
+        steps[slot] = step;
+        recordIds[slot] = body.getId();
+        dimensions[slot] = dimension;
+        System.arraycopy(store.getPositions(), offset, values, slot * FIELDS, dimension);
+        System.arraycopy(store.getVelocities(), offset, values, slot * FIELDS + MAX_DIMENSION, dimension);
+        System.arraycopy(store.getAccelerations(), offset, values, slot * FIELDS + 2 * MAX_DIMENSION, dimension);
+        head++;
+        published.lazySet(head);
+    }
+
+    /**
+     * Dropped getter
+     * @return number of records dropped because the ring was full
+     */
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    /**
+     * Drain what is left, then stop the draining thread
+     * @throws InterruptedException if interrupted while waiting for the drain
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        drainer.join();
+    }
+
+    private void drain() {
+        long tail = 0;
+        while(true) {
+            boolean finishing = closed;
+            long available = published.get();
+            while(tail < available) {
+                sink.accept(format((int) (tail & mask)));
+                tail++;
+                consumed.lazySet(tail);
+            }
+            if(finishing) {
+                return;
+            }
+            LockSupport.parkNanos(IDLE_NANOS);
+        }
+    }
+
+    private String format(int slot) {
+        int dimension = dimensions[slot];
+        int offset = slot * FIELDS;
+        return Log.fields(
+                "event", "particle_trace",
+                "step", steps[slot],
+                "id", recordIds[slot],
+                "position", vector(offset, dimension),
+                "velocity", vector(offset + MAX_DIMENSION, dimension),
+                "acceleration", vector(offset + 2 * MAX_DIMENSION, dimension));
+    }
+
+    private String vector(int offset, int dimension) {
+        StringBuilder vector = new StringBuilder("[");
+        for(int dim = 0; dim < dimension; dim++) {
+            if(dim > 0) {
+                vector.append(',');
+            }
+            vector.append(values[offset + dim]);
+        }
+        return vector.append(']').toString();
+    }
+}
@@ -0,0 +1,282 @@
+package simulator.metrics;
+
+import simulator.logging.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EngineMetrics class - per-phase timings and throughput of one PhysicsEngine.
+ * The engine reports every step through recordStep; renderers and exporters report their
+ * own work through recordPhase. Each phase keeps a LatencyHistogram for percentiles, and
+ * steps, interactions and allocated bytes are turned into rates over windows of about a
+ * second. Everything is readable from any thread, pushed to MetricsListeners as it is
+ * recorded, and published over JMX once registered.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+    private static final System.Logger LOG = Log.get(EngineMetrics.class);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final com.sun.management.ThreadMXBean ALLOCATION = allocationBean();
+
+    private final Map<Phase, LatencyHistogram> histograms = new EnumMap<>(Phase.class);
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+    private final StepMetrics current = new StepMetrics();
+
+    private volatile long steps = 0;
+    private volatile long interactions = 0;
+    private volatile double stepsPerSecond = 0;
+    private volatile double interactionsPerSecond = 0;
+    private volatile double allocatedBytesPerSecond = 0;
+
+    // stepping thread only
+    private long windowStart = System.nanoTime();
+    private long windowSteps = 0;
+    private long windowInteractions = 0;
+    private long windowAllocated = 0;
+
+    private ObjectName objectName;
+
+    public EngineMetrics() {
+        for(Phase phase : Phase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Read the calling thread's allocation counter
+     * @return bytes allocated by the current thread so far, or -1 if the JVM cannot measure it
+     */
+    public static long currentThreadAllocatedBytes() {
+        return ALLOCATION != null ? ALLOCATION.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    /**
+     * Record one engine step. Stepping thread only.
+     * @param step the engine's step counter after the step
+     * @param bodies number of bodies at the end of the step
+     * @param stepNanos the whole step
+     * @param forceNanos force evaluation, including tree building
+     * @param buildNanos tree and grid building
+     * @param integrateNanos integration, excluding force evaluation
+     * @param collisionNanos collision handling, including grid building
+     * @param interactions interactions the force solver evaluated
+     * @param allocatedBytes bytes the stepping thread allocated, or -1 if unknown
+     */
+    public void recordStep(long step, int bodies, long stepNanos, long forceNanos, long buildNanos,
+                           long integrateNanos, long collisionNanos, long interactions, long allocatedBytes) {
+        histograms.get(Phase.STEP).record(stepNanos);
+        histograms.get(Phase.FORCE).record(forceNanos);
+        histograms.get(Phase.BUILD).record(buildNanos);
+        histograms.get(Phase.INTEGRATE).record(integrateNanos);
+        histograms.get(Phase.COLLISIONS).record(collisionNanos);
+        steps++;
+        this.interactions += interactions;
+
+        windowSteps++;
+        windowInteractions += interactions;
+        windowAllocated = allocatedBytes < 0 || windowAllocated < 0 ? -1 : windowAllocated + allocatedBytes;
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if(elapsed >= WINDOW_NANOS) {
+            double seconds = elapsed / 1e9;
+            stepsPerSecond = windowSteps / seconds;
+            interactionsPerSecond = windowInteractions / seconds;
+            allocatedBytesPerSecond = windowAllocated < 0 ? -1 : windowAllocated / seconds;
+            windowStart = now;
+            windowSteps = 0;
+            windowInteractions = 0;
+            windowAllocated = 0;
+        }
+
+        if(!listeners.isEmpty()) {
+            current.set(step, bodies, stepNanos, forceNanos, buildNanos, integrateNanos, collisionNanos, interactions, allocatedBytes);
+            for(MetricsListener listener : listeners) {
+                listener.onStep(current);
+            }
+        }
+    }
+
+    /**
+     * Record work timed outside the engine step, such as RENDER or EXPORT. Any thread.
+     * @param phase the phase that was timed
+     * @param nanos how long it took
+     */
+    public void recordPhase(Phase phase, long nanos) {
+        histograms.get(phase).record(nanos);
+        for(MetricsListener listener : listeners) {
+            listener.onPhase(phase, nanos);
+        }
+    }
+
+    public void addListener(MetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Histogram getter
+     * @param phase the phase to read
+     * @return the live histogram of the phase's durations
+     */
+    public LatencyHistogram getHistogram(Phase phase) {
+        return histograms.get(phase);
+    }
+
+    /**
+     * Summarize the phases and rates for an experiment record
+     * @return p50 and p99 per phase in milliseconds, plus the current rates, in a stable order
+     */
+    public Map<String, Double> summary() {
+        Map<String, Double> summary = new LinkedHashMap<>();
+        summary.put("stepsPerSecond", stepsPerSecond);
+        summary.put("interactionsPerSecond", interactionsPerSecond);
+        summary.put("allocatedBytesPerSecond", allocatedBytesPerSecond);
+        for(Phase phase : Phase.values()) {
+            LatencyHistogram histogram = histograms.get(phase);
+            if(histogram.getCount() == 0) {
+                continue;
+            }
+            String name = phase.name().toLowerCase(Locale.ROOT);
+            PhaseStats stats = PhaseStats.of(histogram);
+            summary.put(name + "P50Ms", stats.getP50Millis());
+            summary.put(name + "P99Ms", stats.getP99Millis());
+        }
+        return summary;
+    }
+
+    /**
+     * Publish these metrics on the platform MBean server as simulator:type=PhysicsEngine,name=...
+     * Failure is logged rather than thrown, since metrics must never stop a run.
+     * @param name the name key of the MBean, unique per JVM and free of ObjectName special characters
+     */
+    public synchronized void register(String name) {
+        unregister();
+        try {
+            ObjectName candidate = new ObjectName("simulator:type=PhysicsEngine,name=" + name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, candidate);
+            objectName = candidate;
+        } catch(JMException e) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "metrics_register_failed", "name", name, "error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Remove the MBean added by register, if any
+     */
+    public synchronized void unregister() {
+        if(objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch(JMException e) {
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "metrics_unregister_failed", "name", objectName, "error", e.getMessage()));
+        }
+        objectName = null;
+    }
+
+    /**
+     * Object name getter
+     * @return the name registered with JMX, or null when not registered
+     */
+    public synchronized ObjectName getObjectName() {
+        return this.objectName;
+    }
+
+    @Override
+    public long getSteps() {
+        return this.steps;
+    }
+
+    @Override
+    public long getInteractions() {
+        return this.interactions;
+    }
+
+    @Override
+    public double getStepsPerSecond() {
+        return this.stepsPerSecond;
+    }
+
+    @Override
+    public double getInteractionsPerSecond() {
+        return this.interactionsPerSecond;
+    }
+
+    @Override
+    public double getAllocatedBytesPerSecond() {
+        return this.allocatedBytesPerSecond;
+    }
+
+    @Override
+    public PhaseStats getStep() {
+        return PhaseStats.of(histograms.get(Phase.STEP));
+    }
+
+    @Override
+    public PhaseStats getForce() {
+        return PhaseStats.of(histograms.get(Phase.FORCE));
+    }
+
+    @Override
+    public PhaseStats getBuild() {
+        return PhaseStats.of(histograms.get(Phase.BUILD));
+    }
+
+    @Override
+    public PhaseStats getIntegrate() {
+        return PhaseStats.of(histograms.get(Phase.INTEGRATE));
+    }
+
+    @Override
+    public PhaseStats getCollisions() {
+        return PhaseStats.of(histograms.get(Phase.COLLISIONS));
+    }
+
+    @Override
+    public PhaseStats getRender() {
+        return PhaseStats.of(histograms.get(Phase.RENDER));
+    }
+
+    @Override
+    public PhaseStats getExport() {
+        return PhaseStats.of(histograms.get(Phase.EXPORT));
+    }
+
+    @Override
+    public void reset() {
+        histograms.values().forEach(LatencyHistogram::reset);
+    }
+
+    /**
+     * Private helper to find the HotSpot thread bean and switch allocation counting on
+     */
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) threads;
+        if(!hotspot.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        if(!hotspot.isThreadAllocatedMemoryEnabled()) {
+            hotspot.setThreadAllocatedMemoryEnabled(true);
+        }
+        return hotspot;
+    }
+}
@@ -0,0 +1,43 @@
+package simulator.metrics;
+
+/**
+ * JMX view of EngineMetrics, registered as simulator:type=PhysicsEngine,name=engine-N.
+ * Phase times are summarized since the engine started or since the last reset; rates
+ * cover the most recent window of about one second.
+ */
+public interface EngineMetricsMXBean {
+    long getSteps();
+
+    /**
+     * @return interactions evaluated by the force solver over every step so far
+     */
+    long getInteractions();
+
+    double getStepsPerSecond();
+
+    double getInteractionsPerSecond();
+
+    /**
+     * @return bytes per second allocated by the stepping thread, or -1 if the JVM cannot measure it
+     */
+    double getAllocatedBytesPerSecond();
+
+    PhaseStats getStep();
+
+    PhaseStats getForce();
+
+    PhaseStats getBuild();
+
+    PhaseStats getIntegrate();
+
+    PhaseStats getCollisions();
+
+    PhaseStats getRender();
+
+    PhaseStats getExport();
+
+    /**
+     * Clear every phase histogram
+     */
+    void reset();
+}
@@ -0,0 +1,24 @@
+package simulator.metrics;
+
+/**
+ * Receives measurements from EngineMetrics as they are taken.
+ * Calls arrive on the thread that did the measured work, so implementations must be quick
+ * and must not block; hand anything slow to another thread.
+ */
+public interface MetricsListener {
+
+    /**
+     * Called after every engine step, on the stepping thread
+     * @param metrics the step's measurements; the instance is reused for the next step
+     */
+    void onStep(StepMetrics metrics);
+
+    /**
+     * Called for work timed outside the step: RENDER on the render thread, EXPORT on the thread
+     * that wrote the snapshot
+     * @param phase the phase that was timed
+     * @param nanos how long it took
+     */
+    default void onPhase(Phase phase, long nanos) {
+    }
+}
@@ -0,0 +1,21 @@
+package simulator.metrics;
+
+/**
+ * The parts of a simulation step and of its output that EngineMetrics times separately
+ */
+public enum Phase {
+    /** A whole engine step: integration, force evaluation and collision handling */
+    STEP,
+    /** Force evaluation, summed over every solver call in the step, including tree building */
+    FORCE,
+    /** Building the solver's tree and the collision grid */
+    BUILD,
+    /** Integration, excluding the force evaluations it requests */
+    INTEGRATE,
+    /** Collision detection and response, including the grid build */
+    COLLISIONS,
+    /** Drawing one frame */
+    RENDER,
+    /** Writing or posting a snapshot of the state */
+    EXPORT
+}
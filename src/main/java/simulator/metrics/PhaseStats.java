@@ -0,0 +1,60 @@
+package simulator.metrics;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * PhaseStats class - an immutable summary of one phase's LatencyHistogram, in milliseconds.
+ * Shown by JMX consoles as a composite value.
+ */
+public class PhaseStats {
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    @ConstructorParameters({"count", "meanMillis", "p50Millis", "p99Millis", "maxMillis"})
+    public PhaseStats(long count, double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+        this.count = count;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    /**
+     * Summarize a histogram
+     * @param histogram the histogram to read
+     * @return the summary
+     */
+    public static PhaseStats of(LatencyHistogram histogram) {
+        return new PhaseStats(
+                histogram.getCount(),
+                histogram.getMeanNanos() / NANOS_PER_MILLI,
+                histogram.getPercentile(50) / NANOS_PER_MILLI,
+                histogram.getPercentile(99) / NANOS_PER_MILLI,
+                histogram.getMaxNanos() / NANOS_PER_MILLI);
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    public double getMeanMillis() {
+        return this.meanMillis;
+    }
+
+    public double getP50Millis() {
+        return this.p50Millis;
+    }
+
+    public double getP99Millis() {
+        return this.p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return this.maxMillis;
+    }
+}
@@ -0,0 +1,89 @@
+package simulator.metrics;
+
+/**
+ * StepMetrics class - what one engine step cost. EngineMetrics reuses a single instance,
+ * so listeners must copy any values they want to keep past onStep.
+ */
+public class StepMetrics {
+    private long step;
+    private int bodies;
+    private long stepNanos;
+    private long forceNanos;
+    private long buildNanos;
+    private long integrateNanos;
+    private long collisionNanos;
+    private long interactions;
+    private long allocatedBytes;
+
+    /**
+     * Fill in every field for a new step
+     */
+    void set(long step, int bodies, long stepNanos, long forceNanos, long buildNanos, long integrateNanos,
+             long collisionNanos, long interactions, long allocatedBytes) {
+        this.step = step;
+        this.bodies = bodies;
+        this.stepNanos = stepNanos;
+        this.forceNanos = forceNanos;
+        this.buildNanos = buildNanos;
+        this.integrateNanos = integrateNanos;
+        this.collisionNanos = collisionNanos;
+        this.interactions = interactions;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Step getter
+     * @return the engine's step counter after this step
+     */
+    public long getStep() {
+        return this.step;
+    }
+
+    /**
+     * Bodies getter
+     * @return number of bodies at the end of the step
+     */
+    public int getBodies() {
+        return this.bodies;
+    }
+
+    public long getStepNanos() {
+        return this.stepNanos;
+    }
+
+    public long getForceNanos() {
+        return this.forceNanos;
+    }
+
+    /**
+     * Build time getter
+     * @return nanoseconds spent building the solver's tree and the collision grid; part of the force and collision times
+     */
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+    public long getIntegrateNanos() {
+        return this.integrateNanos;
+    }
+
+    public long getCollisionNanos() {
+        return this.collisionNanos;
+    }
+
+    /**
+     * Interactions getter
+     * @return interactions the force solver evaluated, over every call it received in the step
+     */
+    public long getInteractions() {
+        return this.interactions;
+    }
+
+    /**
+     * Allocation getter
+     * @return bytes the stepping thread allocated during the step, or -1 if the JVM cannot measure it
+     */
+    public long getAllocatedBytes() {
+        return this.allocatedBytes;
+    }
+}
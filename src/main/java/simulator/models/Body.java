@@ -1,34 +1,106 @@
 package simulator.models;
 
+import simulator.logging.Log;
+
 import java.util.List;
-import java.util.concurrent.Phaser;
 
 /**
  * Body class - used to represent round physical bodies in a given dimension.
+ * A Body is a view over one slot of a ParticleStore; a freshly built body owns a
+ * single-slot store until it is added to a larger one.
  */
 public class Body {
+    private static final System.Logger LOG = Log.get(Body.class);
     private static Double G = Double.parseDouble("6.67430e-11");
     private static Integer nextId = 1;
 
     private int dimension;
-    private Vector position;
-    private Vector velocity;
-    private Vector acceleration;
-    private Double mass;
-    private Double radius;
-    private Integer id = nextId++;
+    private ParticleStore store;
+    private int index;
+    private Integer id;
 
     /**
      * Private constructor for builder pattern
      * @param builder builder object to create Body from
      */
+    // the store only records the view so it can rebind it when slots move; it calls nothing on it here
+    @SuppressWarnings("this-escape")
     public Body(BodyBuilder builder) {
+        if(builder.getId() != null) {
+            this.id = builder.getId();
+            reserveIds(this.id + 1);
+        } else {
+            this.id = nextId++;
+        }
         this.dimension = builder.getDimension();
-        this.position = builder.getPosition();
-        this.velocity = builder.getVelocity();
-        this.acceleration = builder.getAcceleration();
-        this.mass = builder.getMass();
-        this.radius = builder.getRadius();
+        this.store = new ParticleStore(this.dimension, 1);
+        this.index = this.store.allocate(this);
+        this.store.copyIn(this.store.getPositions(), this.index, builder.getPosition());
+        this.store.copyIn(this.store.getVelocities(), this.index, builder.getVelocity());
+        this.store.copyIn(this.store.getAccelerations(), this.index, builder.getAcceleration());
+        this.store.getMasses()[this.index] = builder.getMass();
+        this.store.getRadii()[this.index] = builder.getRadius();
+    }
+
+    /**
+     * Rebind this view to a slot of a store
+     * @param store the store holding this body's state
+     * @param index the slot of this body within the store
+     */
+    void bind(ParticleStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    /**
+     * Store getter
+     * @return the store holding this body's state
+     */
+    public ParticleStore getStore() {
+        return this.store;
+    }
+
+    /**
+     * Index getter
+     * @return the slot of this body within its store
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Gravitational constant getter
+     * @return the gravitational constant used for every body
+     */
+    public static double getGravitationalConstant() {
+        return G;
+    }
+
+    /**
+     * Next id getter
+     * @return the id the next body built without an explicit id will receive
+     */
+    public static int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Make sure bodies built without an explicit id are numbered from at least the given id,
+     * e.g. to continue a restored run with the ids it would have assigned
+     * @param next the lowest id to hand out next; the counter never moves backwards
+     */
+    public static void reserveIds(int next) {
+        if(next > nextId) {
+            nextId = next;
+        }
+    }
+
+    /**
+     * Id getter
+     * @return the id of the body
+     */
+    public Integer getId() {
+        return this.id;
     }
 
     /**
@@ -43,16 +115,16 @@ public class Body {
      * Mass getter
      * @return mass of body
      */
-    public Double getMass() {
-        return this.mass;
+    public double getMass() {
+        return this.store.getMasses()[this.index];
     }
 
     /**
      * Radius getter
      * @return radius of bod+ y
      */
-    public Double getRadius() {
-        return this.radius;
+    public double getRadius() {
+        return this.store.getRadii()[this.index];
     }
 
     /**
@@ -60,7 +132,7 @@ public class Body {
      * @param deltaPosition the vector by which to update the position
      */
     public void updatePosition(Vector deltaPosition) {
-        this.position = this.position.plus(deltaPosition);
+        addInto(this.store.getPositions(), deltaPosition);
     }
 
     /**
@@ -68,7 +140,7 @@ public class Body {
      * @return the position of the body
      */
     public Vector getPosition() {
-        return this.position;
+        return this.store.copyOut(this.store.getPositions(), this.index);
     }
 
     /**
@@ -76,7 +148,7 @@ public class Body {
      * @param deltaVelocity the vector by which to update the velocity
      */
     public void updateVelocity(Vector deltaVelocity) {
-        this.velocity = this.velocity.plus(deltaVelocity);
+        addInto(this.store.getVelocities(), deltaVelocity);
     }
 
     /**
@@ -84,11 +156,11 @@ public class Body {
      * @return the velocity of the body
      */
     public Vector getVelocity() {
-        return this.velocity;
+        return this.store.copyOut(this.store.getVelocities(), this.index);
     }
 
     public void setAcceleration(Vector acceleration) {
-        this.acceleration = acceleration;
+        this.store.copyIn(this.store.getAccelerations(), this.index, acceleration);
     }
 
     /**
@@ -96,7 +168,7 @@ public class Body {
      * @param deltaAcceleration the vector by which to update the acceleration
      */
     public void updateAcceleration(Vector deltaAcceleration) {
-        this.acceleration = this.acceleration.plus(deltaAcceleration);
+        addInto(this.store.getAccelerations(), deltaAcceleration);
     }
 
     /**
@@ -104,7 +176,20 @@ public class Body {
      * @return the acceleration of the body
      */
     public Vector getAcceleration() {
-        return this.acceleration;
+        return this.store.copyOut(this.store.getAccelerations(), this.index);
+    }
+
+    /**
+     * Private helper method to add a delta vector into this body's slot of a flat store array
+     * @param values flat store array to update
+     * @param delta the vector to add
+     */
+    private void addInto(double[] values, Vector delta) {
+        assert delta.getDimension() == this.dimension;
+        int offset = this.index * this.dimension;
+        for(int dim = 0; dim < this.dimension; dim++) {
+            values[offset + dim] += delta.getValue(dim);
+        }
     }
 
     /**
@@ -114,8 +199,8 @@ public class Body {
      */
     public Double getGravitationalForceMagnitudeTowards(Body attractor) {
         assert this.dimension == attractor.dimension;
-        Double radius = Math.abs(attractor.position.minus(this.position).getMagnitude());
-        return G * this.mass * attractor.mass / radius;
+        Double radius = Math.abs(attractor.getPosition().minus(this.getPosition()).getMagnitude());
+        return G * this.getMass() * attractor.getMass() / radius;
     }
 
     /**
@@ -125,55 +210,40 @@ public class Body {
      */
     public Vector getGravitationalForceTowards(Body attractor) {
         assert this.dimension == attractor.dimension;
-        Vector deltaPosition = attractor.position.minus(this.position);
-        System.out.println(this.id + "->" + attractor.id + "=" + deltaPosition);
+        Vector deltaPosition = attractor.getPosition().minus(this.getPosition());
+        if(Log.HOT_PATH && LOG.isLoggable(System.Logger.Level.TRACE)) {
+            LOG.log(System.Logger.Level.TRACE, Log.fields("event", "pair", "from", this.id, "to", attractor.id, "delta", deltaPosition));
+        }
         return deltaPosition.getUnit().times(getGravitationalForceMagnitudeTowards(attractor));
     }
 
     public Vector getNetGravitationalForce(List<? extends Body> bodies) {
-        Vector netGravitationalForce = new Vector(this.dimension);
+        return getNetGravitationalForce(bodies, Vector.zero(this.dimension), Vector.zero(this.dimension));
+    }
+
+    /**
+     * Compute the net gravitational force from all other bodies without allocating.
+     * All bodies must share this body's store.
+     * @param bodies the bodies acting on this one
+     * @param result vector to receive the net force
+     * @param scratch vector used to hold each displacement
+     * @return result, for chaining
+     */
+    public Vector getNetGravitationalForce(List<? extends Body> bodies, Vector result, Vector scratch) {
+        result.setZero();
+        double[] positions = this.store.getPositions();
+        double[] masses = this.store.getMasses();
+        int offset = this.index * this.dimension;
+        double mass = masses[this.index];
         for(Body body: bodies) {
             assert body.dimension == this.dimension;
-            if(!body.equals(this)) {
-                netGravitationalForce = netGravitationalForce.plus(this.getGravitationalForceTowards(body));
+            assert body.store == this.store;
+            if(body != this) {
+                // |F| = G m1 m2 / r along the unit displacement, i.e. delta * G m1 m2 / r^2
+                scratch.setDifference(positions, body.index * this.dimension, positions, offset);
+                result.scaledAddInPlace(G * mass * masses[body.index] / scratch.getMagnitudeSquared(), scratch);
             }
         }
-        return netGravitationalForce;
-    }
-
-    public void update(Double timestep, List<? extends Body> bodies, Phaser phaser) {
-        Vector gravitationalAcceleration = this.getNetGravitationalForce(bodies).divided(this.mass);
-
-        StringBuilder before = new StringBuilder()
-                .append("Initial state for particle " + id  + ": ")
-                .append(System.lineSeparator())
-                .append("\tPosition: " + this.position)
-                .append(System.lineSeparator())
-                .append("\tVelocity: " + this.velocity)
-                .append(System.lineSeparator())
-                .append("\tAcceleration: " + this.acceleration)
-                .append(System.lineSeparator())
-                .append("\tGravitational acceleration: " + gravitationalAcceleration)
-                .append(System.lineSeparator());
-        System.out.println(before);
-
-        phaser.arriveAndAwaitAdvance();
-
-        setAcceleration(gravitationalAcceleration.times(timestep));
-        updateVelocity(this.acceleration.times(timestep));
-        updatePosition(this.velocity.times(timestep));
-
-        StringBuilder after = new StringBuilder()
-                .append("Final state for particle " + id + ": ")
-                .append(System.lineSeparator())
-                .append("\tPosition: " + this.position)
-                .append(System.lineSeparator())
-                .append("\tVelocity: " + this.velocity)
-                .append(System.lineSeparator())
-                .append("\tAcceleration: " + this.acceleration)
-                .append(System.lineSeparator());
-        System.out.println(after);
-
-        phaser.arriveAndDeregister();
+        return result;
     }
 }
@@ -7,13 +7,16 @@ import javafx.scene.paint.Color;
  */
 public class BodyBuilder {
     private int dimension;
+    private Integer id;
     private Double mass = 0.0;
     private Double radius = 0.0;
     private Vector position;
     private Vector velocity;
     private Vector acceleration;
-    private Color fillColor = Color.WHITE;
-    private Color borderColor = Color.WHITE;
+    // colors stay null until set so that building plain Bodies never loads JavaFX;
+    // DrawableBody falls back to white
+    private Color fillColor;
+    private Color borderColor;
     private Integer borderWeight = 0;
 
     /**
@@ -35,6 +38,24 @@ public class BodyBuilder {
         return this.dimension;
     }
 
+    /**
+     * Id setter - give the body a fixed id instead of the next free one, e.g. when restoring a run
+     * @param id to which to set the id of the body, or null for the next free id
+     * @return BodyBuilder instance to allow chaining
+     */
+    public BodyBuilder setId(Integer id) {
+        this.id = id;
+        return this;
+    }
+
+    /**
+     * Id getter
+     * @return the fixed id of the BodyBuilder, or null if the body takes the next free id
+     */
+    public Integer getId() {
+        return this.id;
+    }
+
     /**
      * Mass setter
      * @param mass to which to set the mass of the body
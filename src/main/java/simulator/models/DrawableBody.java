@@ -15,8 +15,8 @@ public class DrawableBody extends Body {
 
     public DrawableBody(BodyBuilder builder) {
         super(builder);
-        this.fillColor = builder.getFillColor();
-        this.borderColor = builder.getBorderColor();
+        this.fillColor = builder.getFillColor() != null ? builder.getFillColor() : Color.WHITE;
+        this.borderColor = builder.getBorderColor() != null ? builder.getBorderColor() : Color.WHITE;
         this.borderWeight = builder.getBorderWeight();
     }
 
@@ -0,0 +1,239 @@
+package simulator.models;
+
+import java.util.Arrays;
+
+/**
+ * ParticleStore class - structure-of-arrays container for particle state.
+ * Vector quantities are kept in flat primitive arrays where component d of particle i
+ * lives at index i * dimension + d; scalar quantities hold one entry per particle.
+ * Body instances are thin views over one slot of a store.
+ */
+public class ParticleStore {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final int dimension;
+    private int size = 0;
+    private double[] positions;
+    private double[] velocities;
+    private double[] accelerations;
+    private double[] masses;
+    private double[] radii;
+    private Body[] views;
+
+    /**
+     * Constructor - create an empty store with default capacity
+     * @param dimension the dimension of every particle in the store
+     */
+    public ParticleStore(int dimension) {
+        this(dimension, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor - create an empty store
+     * @param dimension the dimension of every particle in the store
+     * @param capacity the number of particles to reserve room for
+     */
+    public ParticleStore(int dimension, int capacity) {
+        if(dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive (dimension is " + dimension + ")");
+        }
+        if(capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative (capacity is " + capacity + ")");
+        }
+        this.dimension = dimension;
+        this.positions = new double[capacity * dimension];
+        this.velocities = new double[capacity * dimension];
+        this.accelerations = new double[capacity * dimension];
+        this.masses = new double[capacity];
+        this.radii = new double[capacity];
+        this.views = new Body[capacity];
+    }
+
+    /**
+     * Dimension getter
+     * @return the dimension of every particle in the store
+     */
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Size getter
+     * @return the number of particles in the store
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Positions getter. The returned array is the live backing array and is replaced when the store grows.
+     * @return flat positions array, only the first size() * dimension entries are meaningful
+     */
+    public double[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * Velocities getter. The returned array is the live backing array and is replaced when the store grows.
+     * @return flat velocities array, only the first size() * dimension entries are meaningful
+     */
+    public double[] getVelocities() {
+        return this.velocities;
+    }
+
+    /**
+     * Accelerations getter. The returned array is the live backing array and is replaced when the store grows.
+     * @return flat accelerations array, only the first size() * dimension entries are meaningful
+     */
+    public double[] getAccelerations() {
+        return this.accelerations;
+    }
+
+    /**
+     * Masses getter. The returned array is the live backing array and is replaced when the store grows.
+     * @return masses array, only the first size() entries are meaningful
+     */
+    public double[] getMasses() {
+        return this.masses;
+    }
+
+    /**
+     * Radii getter. The returned array is the live backing array and is replaced when the store grows.
+     * @return radii array, only the first size() entries are meaningful
+     */
+    public double[] getRadii() {
+        return this.radii;
+    }
+
+    /**
+     * View getter
+     * @param index slot of the particle
+     * @return the Body viewing the given slot
+     */
+    public Body getView(int index) {
+        checkIndex(index);
+        return this.views[index];
+    }
+
+    /**
+     * Move a body into this store. Its state is copied from whichever store it currently views
+     * and the body is rebound to its new slot here.
+     * @param body the body to add
+     * @return the slot assigned to the body
+     */
+    public int add(Body body) {
+        ParticleStore source = body.getStore();
+        if(source == this) {
+            return body.getIndex();
+        }
+        if(source.dimension != this.dimension) {
+            throw new IllegalArgumentException("Body must be dimension " + this.dimension + " (currently " + source.dimension + ")");
+        }
+        int sourceIndex = body.getIndex();
+        int index = allocate(body);
+        System.arraycopy(source.positions, sourceIndex * dimension, this.positions, index * dimension, dimension);
+        System.arraycopy(source.velocities, sourceIndex * dimension, this.velocities, index * dimension, dimension);
+        System.arraycopy(source.accelerations, sourceIndex * dimension, this.accelerations, index * dimension, dimension);
+        this.masses[index] = source.masses[sourceIndex];
+        this.radii[index] = source.radii[sourceIndex];
+        source.views[sourceIndex] = null;
+        source.remove(sourceIndex);
+        body.bind(this, index);
+        return index;
+    }
+
+    /**
+     * Remove a particle. The last particle is moved into the freed slot and its view is rebound,
+     * so indices are only stable until the next removal. The removed particle's view keeps its
+     * final state in a single-slot store of its own.
+     * @param index slot of the particle to remove
+     */
+    public void remove(int index) {
+        checkIndex(index);
+        if(this.views[index] != null) {
+            detach(index);
+        }
+        int last = this.size - 1;
+        if(index != last) {
+            System.arraycopy(this.positions, last * dimension, this.positions, index * dimension, dimension);
+            System.arraycopy(this.velocities, last * dimension, this.velocities, index * dimension, dimension);
+            System.arraycopy(this.accelerations, last * dimension, this.accelerations, index * dimension, dimension);
+            this.masses[index] = this.masses[last];
+            this.radii[index] = this.radii[last];
+            this.views[index] = this.views[last];
+            if(this.views[index] != null) {
+                this.views[index].bind(this, index);
+            }
+        }
+        this.views[last] = null;
+        this.size = last;
+    }
+
+    /**
+     * Reserve a slot for a new view, growing the arrays if needed
+     * @param view the body that will view the slot
+     * @return the reserved slot
+     */
+    int allocate(Body view) {
+        ensureCapacity(this.size + 1);
+        this.views[this.size] = view;
+        return this.size++;
+    }
+
+    /**
+     * Copy one particle's vector quantity out of a flat array
+     * @param values flat array to read from
+     * @param index slot of the particle
+     * @return a new Vector holding the particle's components
+     */
+    Vector copyOut(double[] values, int index) {
+        checkIndex(index);
+        return new Vector(Arrays.copyOfRange(values, index * dimension, (index + 1) * dimension));
+    }
+
+    /**
+     * Copy a Vector into one particle's slot of a flat array
+     * @param values flat array to write to
+     * @param index slot of the particle
+     * @param vector the vector to copy in
+     */
+    void copyIn(double[] values, int index, Vector vector) {
+        checkIndex(index);
+        assert vector.getDimension() == this.dimension;
+        int offset = index * dimension;
+        for(int dim = 0; dim < dimension; dim++) {
+            values[offset + dim] = vector.getValue(dim);
+        }
+    }
+
+    private void detach(int index) {
+        Body view = this.views[index];
+        ParticleStore own = new ParticleStore(dimension, 1);
+        int slot = own.allocate(view);
+        System.arraycopy(this.positions, index * dimension, own.positions, 0, dimension);
+        System.arraycopy(this.velocities, index * dimension, own.velocities, 0, dimension);
+        System.arraycopy(this.accelerations, index * dimension, own.accelerations, 0, dimension);
+        own.masses[slot] = this.masses[index];
+        own.radii[slot] = this.radii[index];
+        view.bind(own, slot);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= this.masses.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(DEFAULT_CAPACITY, this.masses.length * 2));
+        this.positions = Arrays.copyOf(this.positions, newCapacity * dimension);
+        this.velocities = Arrays.copyOf(this.velocities, newCapacity * dimension);
+        this.accelerations = Arrays.copyOf(this.accelerations, newCapacity * dimension);
+        this.masses = Arrays.copyOf(this.masses, newCapacity);
+        this.radii = Arrays.copyOf(this.radii, newCapacity);
+        this.views = Arrays.copyOf(this.views, newCapacity);
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Particle index " + index + " out of bounds for size " + this.size);
+        }
+    }
+}
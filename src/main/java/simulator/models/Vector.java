@@ -5,8 +5,8 @@ package simulator.models;
  */
 public class Vector {
     private static double epsilon = Double.parseDouble("1e-20");
-    private int dimension;
-    private double[] values;
+    protected int dimension;
+    protected double[] values;
 
     public Vector(int dimension) {
         this.dimension = dimension;
@@ -18,9 +18,22 @@ public class Vector {
 
     public Vector(double[] values) {
         this.dimension = values.length;
-        this.values = new double[values.length];
-        for(int i = 0; i < dimension; i++) {
-            this.values[i] = values[i];
+        this.values = values.clone();
+    }
+
+    /**
+     * Zero vector factory - returns the fixed-dimension specialization when one exists
+     * @param dimension the dimension of the vector
+     * @return a new zero vector of the given dimension
+     */
+    public static Vector zero(int dimension) {
+        switch(dimension) {
+            case 2:
+                return new Vector2D();
+            case 3:
+                return new Vector3D();
+            default:
+                return new Vector(dimension);
         }
     }
 
@@ -98,6 +111,167 @@ public class Vector {
         return this.divided(this.getMagnitude());
     }
 
+    public double getMagnitudeSquared() {
+        double norm = 0;
+        for(double value: this.values) {
+            norm += value * value;
+        }
+        return norm;
+    }
+
+    /*
+     * In-place operations. These mutate and return this vector so that hot loops
+     * can reuse scratch vectors instead of allocating a copy per operation.
+     */
+
+    /**
+     * Set every component to zero
+     * @return this vector
+     */
+    public Vector setZero() {
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] = 0;
+        }
+        return this;
+    }
+
+    /**
+     * Copy another vector's components into this one
+     * @param other the vector to copy
+     * @return this vector
+     */
+    public Vector set(Vector other) {
+        assert other.dimension == this.dimension;
+        System.arraycopy(other.values, 0, this.values, 0, this.dimension);
+        return this;
+    }
+
+    /**
+     * this += delta
+     * @param delta the vector to add
+     * @return this vector
+     */
+    public Vector addInPlace(Vector delta) {
+        assert delta.dimension == this.dimension;
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] += delta.values[dim];
+        }
+        return this;
+    }
+
+    /**
+     * this -= delta
+     * @param delta the vector to subtract
+     * @return this vector
+     */
+    public Vector subtractInPlace(Vector delta) {
+        assert delta.dimension == this.dimension;
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] -= delta.values[dim];
+        }
+        return this;
+    }
+
+    /**
+     * this *= scalar
+     * @param scalar the factor to scale by
+     * @return this vector
+     */
+    public Vector scaleInPlace(double scalar) {
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] *= scalar;
+        }
+        return this;
+    }
+
+    /**
+     * this += scalar * x (axpy)
+     * @param scalar the factor applied to x
+     * @param x the vector to add
+     * @return this vector
+     */
+    public Vector scaledAddInPlace(double scalar, Vector x) {
+        assert x.dimension == this.dimension;
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] += scalar * x.values[dim];
+        }
+        return this;
+    }
+
+    /**
+     * this = a - b, reading both operands from flat arrays (see ParticleStore)
+     * @param a flat array holding the minuend
+     * @param aOffset index of the minuend's first component
+     * @param b flat array holding the subtrahend
+     * @param bOffset index of the subtrahend's first component
+     * @return this vector
+     */
+    public Vector setDifference(double[] a, int aOffset, double[] b, int bOffset) {
+        for(int dim = 0; dim < this.dimension; dim++) {
+            this.values[dim] = a[aOffset + dim] - b[bOffset + dim];
+        }
+        return this;
+    }
+
+    /**
+     * Scale this vector to unit length. A zero vector is left unchanged.
+     * @return this vector
+     */
+    public Vector normalizeInPlace() {
+        double magnitude = Math.sqrt(this.getMagnitudeSquared());
+        if(magnitude > 0) {
+            this.scaleInPlace(1.0 / magnitude);
+        }
+        return this;
+    }
+
+    /**
+     * Squared distance to another vector, without allocating the difference
+     * @param other the other vector
+     * @return |this - other|^2
+     */
+    public double distanceSquared(Vector other) {
+        assert other.dimension == this.dimension;
+        double distance = 0;
+        for(int dim = 0; dim < this.dimension; dim++) {
+            double delta = this.values[dim] - other.values[dim];
+            distance += delta * delta;
+        }
+        return distance;
+    }
+
+    /**
+     * Load this vector's components from a flat array
+     * @param source flat array to read from
+     * @param offset index of the first component
+     * @return this vector
+     */
+    public Vector copyFrom(double[] source, int offset) {
+        System.arraycopy(source, offset, this.values, 0, this.dimension);
+        return this;
+    }
+
+    /**
+     * Store this vector's components into a flat array
+     * @param target flat array to write to
+     * @param offset index of the first component
+     */
+    public void copyTo(double[] target, int offset) {
+        System.arraycopy(this.values, 0, target, offset, this.dimension);
+    }
+
+    /**
+     * target += scalar * this, writing into a flat array
+     * @param target flat array to update
+     * @param offset index of the first component
+     * @param scalar the factor applied to this vector
+     */
+    public void addScaledTo(double[] target, int offset, double scalar) {
+        for(int dim = 0; dim < this.dimension; dim++) {
+            target[offset + dim] += scalar * this.values[dim];
+        }
+    }
+
     public int getDimension() {
         return this.dimension;
     }
@@ -0,0 +1,102 @@
+package simulator.models;
+
+/**
+ * Vector2D class - fixed-dimension specialization of Vector with unrolled in-place operations.
+ */
+public class Vector2D extends Vector {
+
+    public Vector2D() {
+        super(2);
+    }
+
+    public Vector2D(double x, double y) {
+        super(2);
+        this.values[0] = x;
+        this.values[1] = y;
+    }
+
+    @Override
+    public double getMagnitudeSquared() {
+        return values[0] * values[0] + values[1] * values[1];
+    }
+
+    @Override
+    public Vector setZero() {
+        values[0] = 0;
+        values[1] = 0;
+        return this;
+    }
+
+    @Override
+    public Vector set(Vector other) {
+        assert other.dimension == 2;
+        values[0] = other.values[0];
+        values[1] = other.values[1];
+        return this;
+    }
+
+    @Override
+    public Vector addInPlace(Vector delta) {
+        assert delta.dimension == 2;
+        values[0] += delta.values[0];
+        values[1] += delta.values[1];
+        return this;
+    }
+
+    @Override
+    public Vector subtractInPlace(Vector delta) {
+        assert delta.dimension == 2;
+        values[0] -= delta.values[0];
+        values[1] -= delta.values[1];
+        return this;
+    }
+
+    @Override
+    public Vector scaleInPlace(double scalar) {
+        values[0] *= scalar;
+        values[1] *= scalar;
+        return this;
+    }
+
+    @Override
+    public Vector scaledAddInPlace(double scalar, Vector x) {
+        assert x.dimension == 2;
+        values[0] += scalar * x.values[0];
+        values[1] += scalar * x.values[1];
+        return this;
+    }
+
+    @Override
+    public Vector setDifference(double[] a, int aOffset, double[] b, int bOffset) {
+        values[0] = a[aOffset] - b[bOffset];
+        values[1] = a[aOffset + 1] - b[bOffset + 1];
+        return this;
+    }
+
+    @Override
+    public double distanceSquared(Vector other) {
+        assert other.dimension == 2;
+        double dx = values[0] - other.values[0];
+        double dy = values[1] - other.values[1];
+        return dx * dx + dy * dy;
+    }
+
+    @Override
+    public Vector copyFrom(double[] source, int offset) {
+        values[0] = source[offset];
+        values[1] = source[offset + 1];
+        return this;
+    }
+
+    @Override
+    public void copyTo(double[] target, int offset) {
+        target[offset] = values[0];
+        target[offset + 1] = values[1];
+    }
+
+    @Override
+    public void addScaledTo(double[] target, int offset, double scalar) {
+        target[offset] += scalar * values[0];
+        target[offset + 1] += scalar * values[1];
+    }
+}
@@ -0,0 +1,114 @@
+package simulator.models;
+
+/**
+ * Vector3D class - fixed-dimension specialization of Vector with unrolled in-place operations.
+ */
+public class Vector3D extends Vector {
+
+    public Vector3D() {
+        super(3);
+    }
+
+    public Vector3D(double x, double y, double z) {
+        super(3);
+        this.values[0] = x;
+        this.values[1] = y;
+        this.values[2] = z;
+    }
+
+    @Override
+    public double getMagnitudeSquared() {
+        return values[0] * values[0] + values[1] * values[1] + values[2] * values[2];
+    }
+
+    @Override
+    public Vector setZero() {
+        values[0] = 0;
+        values[1] = 0;
+        values[2] = 0;
+        return this;
+    }
+
+    @Override
+    public Vector set(Vector other) {
+        assert other.dimension == 3;
+        values[0] = other.values[0];
+        values[1] = other.values[1];
+        values[2] = other.values[2];
+        return this;
+    }
+
+    @Override
+    public Vector addInPlace(Vector delta) {
+        assert delta.dimension == 3;
+        values[0] += delta.values[0];
+        values[1] += delta.values[1];
+        values[2] += delta.values[2];
+        return this;
+    }
+
+    @Override
+    public Vector subtractInPlace(Vector delta) {
+        assert delta.dimension == 3;
+        values[0] -= delta.values[0];
+        values[1] -= delta.values[1];
+        values[2] -= delta.values[2];
+        return this;
+    }
+
+    @Override
+    public Vector scaleInPlace(double scalar) {
+        values[0] *= scalar;
+        values[1] *= scalar;
+        values[2] *= scalar;
+        return this;
+    }
+
+    @Override
+    public Vector scaledAddInPlace(double scalar, Vector x) {
+        assert x.dimension == 3;
+        values[0] += scalar * x.values[0];
+        values[1] += scalar * x.values[1];
+        values[2] += scalar * x.values[2];
+        return this;
+    }
+
+    @Override
+    public Vector setDifference(double[] a, int aOffset, double[] b, int bOffset) {
+        values[0] = a[aOffset] - b[bOffset];
+        values[1] = a[aOffset + 1] - b[bOffset + 1];
+        values[2] = a[aOffset + 2] - b[bOffset + 2];
+        return this;
+    }
+
+    @Override
+    public double distanceSquared(Vector other) {
+        assert other.dimension == 3;
+        double dx = values[0] - other.values[0];
+        double dy = values[1] - other.values[1];
+        double dz = values[2] - other.values[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    @Override
+    public Vector copyFrom(double[] source, int offset) {
+        values[0] = source[offset];
+        values[1] = source[offset + 1];
+        values[2] = source[offset + 2];
+        return this;
+    }
+
+    @Override
+    public void copyTo(double[] target, int offset) {
+        target[offset] = values[0];
+        target[offset + 1] = values[1];
+        target[offset + 2] = values[2];
+    }
+
+    @Override
+    public void addScaledTo(double[] target, int offset, double scalar) {
+        target[offset] += scalar * values[0];
+        target[offset + 1] += scalar * values[1];
+        target[offset + 2] += scalar * values[2];
+    }
+}
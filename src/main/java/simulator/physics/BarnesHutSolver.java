@@ -0,0 +1,344 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Barnes-Hut gravity solver - a quadtree in 2D, an octree in 3D.
+ * A cell whose width w and distance d to the evaluated particle satisfy w / d < theta is
+ * replaced by a point mass at its center of mass, giving O(N log N) work per step.
+ * Nodes are stored in flat arrays that are reused between steps, so rebuilding the
+ * tree every step does not allocate once the pool has grown to fit.
+ */
+public class BarnesHutSolver implements ForceSolver {
+    private static final int MAX_DEPTH = 48;
+    private static final int INITIAL_NODE_CAPACITY = 64;
+    private static final int NONE = -1;
+
+    private double theta;
+
+    private int dimension;
+    private int childCount;
+    private int nodeCount;
+    private int nodeCapacity;
+    private double[] nodeCenter = new double[0];
+    private double[] nodeHalfWidth = new double[0];
+    private double[] nodeMass = new double[0];
+    private double[] nodeCenterOfMass = new double[0];
+    private int[] nodeFirstChild = new int[0];
+    private int[] nodeBodyHead = new int[0];
+    private int[] nextBody = new int[0];
+
+    private final LongAdder interactions = new LongAdder();
+    private long buildNanos = 0;
+
+    public BarnesHutSolver() {
+        this(0.5);
+    }
+
+    /**
+     * Constructor
+     * @param theta opening angle; 0 reproduces direct summation, larger values trade accuracy for speed
+     */
+    public BarnesHutSolver(double theta) {
+        setTheta(theta);
+    }
+
+    public double getTheta() {
+        return this.theta;
+    }
+
+    public final void setTheta(double theta) {
+        if(theta < 0) {
+            throw new IllegalArgumentException("Opening angle must not be negative (currently " + theta + ")");
+        }
+        this.theta = theta;
+    }
+
+    /**
+     * Node count getter
+     * @return the number of nodes in the most recently built tree
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler) {
+        timedBuild(store);
+        double[] accelerations = store.getAccelerations();
+        scheduler.forEachChunk(store.size(), (from, to) -> {
+            int[] stack = new int[getStackSize()];
+            long evaluated = 0;
+            for(int i = from; i < to; i++) {
+                evaluated += accelerationOn(store, i, accelerations, stack);
+            }
+            interactions.add(evaluated);
+        });
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler, int[] targets, int count) {
+        timedBuild(store);
+        double[] accelerations = store.getAccelerations();
+        scheduler.forEachChunk(count, (from, to) -> {
+            int[] stack = new int[getStackSize()];
+            long evaluated = 0;
+            for(int k = from; k < to; k++) {
+                evaluated += accelerationOn(store, targets[k], accelerations, stack);
+            }
+            interactions.add(evaluated);
+        });
+    }
+
+    @Override
+    public long getInteractionCount() {
+        return this.interactions.sum();
+    }
+
+    @Override
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+    private void timedBuild(ParticleStore store) {
+        interactions.reset();
+        long start = System.nanoTime();
+        build(store);
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Rebuild the tree over the current particle positions, reusing the node pool.
+     * Building is sequential; the walks in computeAccelerations run in parallel.
+     * @param store the particle state to build over
+     */
+    public void build(ParticleStore store) {
+        if(store.getDimension() > 3) {
+            throw new IllegalArgumentException("Barnes-Hut supports dimension 2 or 3 (dimension is " + store.getDimension() + ")");
+        }
+        this.dimension = store.getDimension();
+        this.childCount = 1 << this.dimension;
+        int size = store.size();
+        if(this.nextBody.length < size) {
+            this.nextBody = new int[size];
+        }
+        this.nodeCount = 0;
+        if(size == 0) {
+            return;
+        }
+
+        double[] positions = store.getPositions();
+        int root = allocateNodes(1);
+        double halfWidth = 0;
+        for(int dim = 0; dim < dimension; dim++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for(int i = 0; i < size; i++) {
+                double value = positions[i * dimension + dim];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            nodeCenter[root * dimension + dim] = (min + max) / 2;
+            halfWidth = Math.max(halfWidth, (max - min) / 2);
+        }
+        initNode(root, Math.max(halfWidth * (1 + 1e-9), Double.MIN_NORMAL));
+
+        for(int i = 0; i < size; i++) {
+            insert(positions, i);
+        }
+        summarize(store);
+    }
+
+    /**
+     * Compute one particle's gravitational acceleration by walking the current tree
+     * @param store the particle state the tree was built over
+     * @param particle index of the particle to evaluate
+     * @param accelerations flat array receiving the acceleration at the particle's slot
+     * @param stack scratch traversal stack of at least getStackSize() entries
+     * @return number of bodies and nodes whose pull was added
+     */
+    public int accelerationOn(ParticleStore store, int particle, double[] accelerations, int[] stack) {
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        double G = Body.getGravitationalConstant();
+        double thetaSquared = theta * theta;
+        int offset = particle * dimension;
+        Arrays.fill(accelerations, offset, offset + dimension, 0);
+        if(nodeCount == 0) {
+            return 0;
+        }
+        int evaluated = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            if(nodeMass[node] == 0) {
+                continue;
+            }
+            if(nodeFirstChild[node] == NONE) {
+                for(int body = nodeBodyHead[node]; body != NONE; body = nextBody[body]) {
+                    if(body != particle) {
+                        addPointMass(positions, body * dimension, masses[body], positions, offset, accelerations, G);
+                        evaluated++;
+                    }
+                }
+                continue;
+            }
+            double distanceSquared = 0;
+            for(int dim = 0; dim < dimension; dim++) {
+                double delta = nodeCenterOfMass[node * dimension + dim] - positions[offset + dim];
+                distanceSquared += delta * delta;
+            }
+            double width = 2 * nodeHalfWidth[node];
+            if(width * width < thetaSquared * distanceSquared) {
+                addPointMass(nodeCenterOfMass, node * dimension, nodeMass[node], positions, offset, accelerations, G);
+                evaluated++;
+            } else {
+                int firstChild = nodeFirstChild[node];
+                for(int child = 0; child < childCount; child++) {
+                    stack[top++] = firstChild + child;
+                }
+            }
+        }
+        return evaluated;
+    }
+
+    /**
+     * Stack size getter
+     * @return the scratch stack length accelerationOn needs for the current dimension
+     */
+    public int getStackSize() {
+        return MAX_DEPTH * (1 << Math.max(this.dimension, 1)) + 1;
+    }
+
+    /**
+     * Private helper to add a point mass's pull to a particle, using the same force law as Body:
+     * |F| = G m1 m2 / r, so the acceleration is delta * G m / r^2.
+     */
+    private void addPointMass(double[] source, int sourceOffset, double mass,
+                              double[] positions, int offset, double[] accelerations, double G) {
+        double distanceSquared = 0;
+        for(int dim = 0; dim < dimension; dim++) {
+            double delta = source[sourceOffset + dim] - positions[offset + dim];
+            distanceSquared += delta * delta;
+        }
+        double scale = G * mass / distanceSquared;
+        for(int dim = 0; dim < dimension; dim++) {
+            accelerations[offset + dim] += scale * (source[sourceOffset + dim] - positions[offset + dim]);
+        }
+    }
+
+    private void insert(double[] positions, int particle) {
+        int node = 0;
+        int depth = 0;
+        while(true) {
+            if(nodeFirstChild[node] != NONE) {
+                node = nodeFirstChild[node] + childIndex(node, positions, particle);
+                depth++;
+                continue;
+            }
+            if(nodeBodyHead[node] == NONE || depth >= MAX_DEPTH) {
+                nextBody[particle] = nodeBodyHead[node];
+                nodeBodyHead[node] = particle;
+                return;
+            }
+            // occupied leaf above the depth limit: split it and push the resident body down one level
+            int resident = nodeBodyHead[node];
+            nodeBodyHead[node] = NONE;
+            split(node);
+            int child = nodeFirstChild[node] + childIndex(node, positions, resident);
+            nodeBodyHead[child] = resident;
+            nextBody[resident] = NONE;
+        }
+    }
+
+    private int childIndex(int node, double[] positions, int particle) {
+        int index = 0;
+        for(int dim = 0; dim < dimension; dim++) {
+            if(positions[particle * dimension + dim] >= nodeCenter[node * dimension + dim]) {
+                index |= 1 << dim;
+            }
+        }
+        return index;
+    }
+
+    private void split(int node) {
+        int firstChild = allocateNodes(childCount);
+        double quarter = nodeHalfWidth[node] / 2;
+        for(int child = 0; child < childCount; child++) {
+            int childNode = firstChild + child;
+            for(int dim = 0; dim < dimension; dim++) {
+                double sign = (child & (1 << dim)) != 0 ? 1 : -1;
+                nodeCenter[childNode * dimension + dim] = nodeCenter[node * dimension + dim] + sign * quarter;
+            }
+            initNode(childNode, quarter);
+        }
+        nodeFirstChild[node] = firstChild;
+    }
+
+    /**
+     * Private helper to compute masses and centers of mass bottom-up. Children are always
+     * allocated after their parent, so walking the pool backwards visits children first.
+     */
+    private void summarize(ParticleStore store) {
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        for(int node = nodeCount - 1; node >= 0; node--) {
+            double mass = 0;
+            int offset = node * dimension;
+            Arrays.fill(nodeCenterOfMass, offset, offset + dimension, 0);
+            if(nodeFirstChild[node] == NONE) {
+                for(int body = nodeBodyHead[node]; body != NONE; body = nextBody[body]) {
+                    mass += masses[body];
+                    for(int dim = 0; dim < dimension; dim++) {
+                        nodeCenterOfMass[offset + dim] += masses[body] * positions[body * dimension + dim];
+                    }
+                }
+            } else {
+                for(int child = nodeFirstChild[node]; child < nodeFirstChild[node] + childCount; child++) {
+                    mass += nodeMass[child];
+                    for(int dim = 0; dim < dimension; dim++) {
+                        nodeCenterOfMass[offset + dim] += nodeMass[child] * nodeCenterOfMass[child * dimension + dim];
+                    }
+                }
+            }
+            nodeMass[node] = mass;
+            for(int dim = 0; dim < dimension; dim++) {
+                nodeCenterOfMass[offset + dim] = mass > 0 ? nodeCenterOfMass[offset + dim] / mass : nodeCenter[offset + dim];
+            }
+        }
+    }
+
+    private void initNode(int node, double halfWidth) {
+        nodeHalfWidth[node] = halfWidth;
+        nodeMass[node] = 0;
+        nodeFirstChild[node] = NONE;
+        nodeBodyHead[node] = NONE;
+    }
+
+    private int allocateNodes(int count) {
+        ensureNodeCapacity(nodeCount + count);
+        int first = nodeCount;
+        nodeCount += count;
+        return first;
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if(capacity <= nodeCapacity && nodeCenter.length >= capacity * dimension) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, Math.max(INITIAL_NODE_CAPACITY, nodeCapacity * 2));
+        nodeCenter = Arrays.copyOf(nodeCenter, newCapacity * dimension);
+        nodeCenterOfMass = Arrays.copyOf(nodeCenterOfMass, newCapacity * dimension);
+        nodeHalfWidth = Arrays.copyOf(nodeHalfWidth, newCapacity);
+        nodeMass = Arrays.copyOf(nodeMass, newCapacity);
+        nodeFirstChild = Arrays.copyOf(nodeFirstChild, newCapacity);
+        nodeBodyHead = Arrays.copyOf(nodeBodyHead, newCapacity);
+        nodeCapacity = newCapacity;
+    }
+}
@@ -0,0 +1,239 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Leapfrog (kick-drift-kick) with hierarchical block timesteps.
+ * Each particle is placed on a level L and steps by timestep / 2^L, with L chosen so the
+ * step stays under eta * |a| / |da/dt| (the jerk estimated from successive accelerations).
+ * Within one engine step every particle drifts together, but forces are evaluated only for
+ * particles whose own step ends at the current sub-step, so slow particles in clustered
+ * scenarios cost one evaluation per engine step. A particle may move to a finer level at the
+ * end of any of its steps and to a coarser level only where that level's steps line up.
+ * New particles start on the finest level and coarsen as their jerk estimates come in.
+ */
+public class BlockTimestepIntegrator implements Integrator {
+    private final double eta;
+    private final int maxLevel;
+
+    private ParticleStore primedStore;
+    private int primedSize = -1;
+    private int[] level = new int[0];
+    private int[] nextTick = new int[0];
+    private int[] active = new int[0];
+    private double[] previousAccelerations = new double[0];
+    private long forceEvaluations = 0;
+
+    public BlockTimestepIntegrator() {
+        this(0.02, 10);
+    }
+
+    /**
+     * Constructor
+     * @param eta accuracy parameter; a particle's step is kept below eta * |a| / |da/dt|
+     * @param maxLevel finest level, giving a smallest step of timestep / 2^maxLevel
+     */
+    public BlockTimestepIntegrator(double eta, int maxLevel) {
+        if(eta <= 0) {
+            throw new IllegalArgumentException("Accuracy parameter must be positive (currently " + eta + ")");
+        }
+        if(maxLevel < 0 || maxLevel > 30) {
+            throw new IllegalArgumentException("Maximum level must be between 0 and 30 (currently " + maxLevel + ")");
+        }
+        this.eta = eta;
+        this.maxLevel = maxLevel;
+    }
+
+    @Override
+    public void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        if(size == 0) {
+            return;
+        }
+        if(store != primedStore || size != primedSize) {
+            prime(store, solver, scheduler);
+        }
+        int ticks = 1 << maxLevel;
+        double tick = timestep / ticks;
+        double[] accelerations = store.getAccelerations();
+        double[] velocities = store.getVelocities();
+
+        // open every particle's first step of this engine step with a half kick
+        scheduler.forEachChunk(size, (from, to) -> {
+            for(int i = from; i < to; i++) {
+                kick(velocities, accelerations, i, dimension, stepOf(level[i], timestep) / 2);
+                nextTick[i] = strideOf(level[i]);
+            }
+        });
+
+        int now = 0;
+        while(now < ticks) {
+            int next = ticks;
+            for(int i = 0; i < size; i++) {
+                next = Math.min(next, nextTick[i]);
+            }
+            Integrator.drift(store, scheduler, (next - now) * tick);
+            now = next;
+
+            int count = 0;
+            for(int i = 0; i < size; i++) {
+                if(nextTick[i] == now) {
+                    active[count++] = i;
+                }
+            }
+            solver.computeAccelerations(store, scheduler, active, count);
+            forceEvaluations += count;
+
+            int current = now;
+            scheduler.forEachChunk(count, (from, to) -> {
+                for(int k = from; k < to; k++) {
+                    int i = active[k];
+                    double oldStep = stepOf(level[i], timestep);
+                    kick(velocities, accelerations, i, dimension, oldStep / 2);
+                    int newLevel = chooseLevel(accelerations, i, dimension, oldStep, timestep, current);
+                    System.arraycopy(accelerations, i * dimension, previousAccelerations, i * dimension, dimension);
+                    level[i] = newLevel;
+                    if(current < ticks) {
+                        kick(velocities, accelerations, i, dimension, stepOf(newLevel, timestep) / 2);
+                        nextTick[i] = current + strideOf(newLevel);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public int getForceEvaluationsPerStep() {
+        // nominal: the actual count varies with the levels, see getForceEvaluations
+        return 1;
+    }
+
+    @Override
+    public void reset() {
+        primedStore = null;
+        primedSize = -1;
+    }
+
+    /**
+     * Record every particle's level and last acceleration, which choose its next level
+     */
+    @Override
+    public byte[] saveState(ParticleStore store) {
+        if(store != primedStore || store.size() != primedSize) {
+            return new byte[0];
+        }
+        int size = store.size();
+        int length = size * store.getDimension();
+        ByteBuffer state = ByteBuffer.allocate(Long.BYTES + size * Integer.BYTES + length * Double.BYTES);
+        state.putLong(forceEvaluations);
+        state.asIntBuffer().put(level, 0, size);
+        state.position(state.position() + size * Integer.BYTES);
+        state.asDoubleBuffer().put(previousAccelerations, 0, length);
+        return state.array();
+    }
+
+    @Override
+    public void restoreState(ParticleStore store, byte[] state) {
+        int size = store.size();
+        int length = size * store.getDimension();
+        if(state.length == 0) {
+            reset();
+            return;
+        }
+        if(state.length != Long.BYTES + size * Integer.BYTES + length * Double.BYTES) {
+            throw new IllegalArgumentException("Block timestep state does not match " + size + " particles (" + state.length + " bytes)");
+        }
+        ensureCapacity(size, length);
+        ByteBuffer buffer = ByteBuffer.wrap(state);
+        forceEvaluations = buffer.getLong();
+        buffer.asIntBuffer().get(level, 0, size);
+        buffer.position(buffer.position() + size * Integer.BYTES);
+        buffer.asDoubleBuffer().get(previousAccelerations, 0, length);
+        primedStore = store;
+        primedSize = size;
+    }
+
+    /**
+     * Force evaluations getter
+     * @return total number of single-particle force evaluations performed so far
+     */
+    public long getForceEvaluations() {
+        return this.forceEvaluations;
+    }
+
+    /**
+     * Level getter
+     * @param index slot of the particle
+     * @return the particle's current level; it steps by timestep / 2^level
+     */
+    public int getLevel(int index) {
+        return this.level[index];
+    }
+
+    private void prime(ParticleStore store, ForceSolver solver, StepScheduler scheduler) {
+        int size = store.size();
+        int length = size * store.getDimension();
+        ensureCapacity(size, length);
+        solver.computeAccelerations(store, scheduler);
+        forceEvaluations += size;
+        System.arraycopy(store.getAccelerations(), 0, previousAccelerations, 0, length);
+        Arrays.fill(level, 0, size, maxLevel);
+        primedStore = store;
+        primedSize = size;
+    }
+
+    private void ensureCapacity(int size, int length) {
+        if(level.length < size) {
+            level = new int[size];
+            nextTick = new int[size];
+            active = new int[size];
+        }
+        if(previousAccelerations.length < length) {
+            previousAccelerations = new double[length];
+        }
+    }
+
+    /**
+     * Private helper to pick a particle's next level from its jerk estimate, restricted to
+     * levels whose steps start at the current sub-step
+     */
+    private int chooseLevel(double[] accelerations, int i, int dimension, double oldStep, double timestep, int now) {
+        double accelerationSquared = 0;
+        double changeSquared = 0;
+        for(int dim = 0; dim < dimension; dim++) {
+            double a = accelerations[i * dimension + dim];
+            double change = a - previousAccelerations[i * dimension + dim];
+            accelerationSquared += a * a;
+            changeSquared += change * change;
+        }
+        int wanted = 0;
+        if(changeSquared > 0) {
+            double limit = eta * oldStep * Math.sqrt(accelerationSquared / changeSquared);
+            wanted = limit > 0 ? (int) Math.ceil(Math.log(timestep / limit) / Math.log(2)) : maxLevel;
+        }
+        wanted = Math.max(0, Math.min(maxLevel, wanted));
+        // coarsen at most to the coarsest level aligned with the current sub-step
+        while(wanted < level[i] && now % strideOf(wanted) != 0) {
+            wanted++;
+        }
+        return wanted;
+    }
+
+    private int strideOf(int level) {
+        return 1 << (maxLevel - level);
+    }
+
+    private static double stepOf(int level, double timestep) {
+        return timestep / (1 << level);
+    }
+
+    private static void kick(double[] velocities, double[] accelerations, int i, int dimension, double step) {
+        for(int dim = 0; dim < dimension; dim++) {
+            velocities[i * dimension + dim] += accelerations[i * dimension + dim] * step;
+        }
+    }
+}
@@ -0,0 +1,523 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.BodyBuilder;
+import simulator.models.ParticleStore;
+import simulator.models.Vector;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Checkpoint class - everything needed to resume a PhysicsEngine bit for bit: the particle
+ * arrays in slot order (so forces are summed in the same order), body ids and the next free
+ * id, the order of the engine's body list, the integrator's state between steps, the step
+ * counter, simulated time, collision mode and free-form settings such as the solver name
+ * and timestep. Bodies are restored as plain Bodies; the colors of DrawableBodies are not
+ * recorded.
+ * <pre>
+ * int magic "NCKP" | short version | short dimension | int count | long step | double time
+ * | int next id | string collision mode | int settings | (string key, string value)...
+ * | int ids[count] | int list order[count] | masses | radii | positions | velocities | accelerations
+ * | string integrator class | int state length | state bytes | int CRC32C of everything before it
+ * </pre>
+ * Little-endian; strings are an int byte length followed by UTF-8. Files are written to a
+ * temporary sibling, forced to disk and renamed over the target, so a crash mid-write
+ * leaves the previous checkpoint intact.
+ */
+public class Checkpoint {
+    public static final int MAGIC = 'N' | 'C' << 8 | 'K' << 16 | 'P' << 24;
+    public static final short VERSION = 1;
+    private static final int CHUNK_BYTES = 1 << 20;
+
+    private int dimension;
+    private int count;
+    private long step;
+    private double time;
+    private int nextId;
+    private CollisionMode collisionMode = CollisionMode.NONE;
+    private Map<String, String> settings = new LinkedHashMap<>();
+    private int[] ids = new int[0];
+    private int[] listOrder = new int[0];
+    private double[] masses = new double[0];
+    private double[] radii = new double[0];
+    private double[] positions = new double[0];
+    private double[] velocities = new double[0];
+    private double[] accelerations = new double[0];
+    private String integratorName = "";
+    private byte[] integratorState = new byte[0];
+
+    /**
+     * Copy an engine's state into this checkpoint, reusing its arrays. Stepping thread only,
+     * between steps; the copy is spread over the engine's scheduler.
+     * @param engine the engine to capture
+     * @param settings settings to keep alongside the state, e.g. the solver name and timestep
+     */
+    public void capture(PhysicsEngine engine, Map<String, String> settings) {
+        ParticleStore store = engine.getStore();
+        this.step = engine.getStep();
+        this.time = engine.getTime();
+        this.nextId = Body.getNextId();
+        this.collisionMode = engine.getCollisionMode();
+        this.settings = new LinkedHashMap<>(settings);
+        this.integratorName = engine.getIntegrator().getClass().getName();
+        if(store == null) {
+            this.dimension = 0;
+            this.count = 0;
+            this.integratorState = new byte[0];
+            return;
+        }
+        this.dimension = store.getDimension();
+        this.count = store.size();
+        int length = count * dimension;
+        if(ids.length < count) {
+            ids = new int[count];
+            listOrder = new int[count];
+            masses = new double[count];
+            radii = new double[count];
+        }
+        if(positions.length < length) {
+            positions = new double[length];
+            velocities = new double[length];
+            accelerations = new double[length];
+        }
+        engine.getScheduler().forEachChunk(count, (from, to) -> {
+            for(int i = from; i < to; i++) {
+                ids[i] = store.getView(i).getId();
+            }
+            System.arraycopy(store.getMasses(), from, masses, from, to - from);
+            System.arraycopy(store.getRadii(), from, radii, from, to - from);
+            System.arraycopy(store.getPositions(), from * dimension, positions, from * dimension, (to - from) * dimension);
+            System.arraycopy(store.getVelocities(), from * dimension, velocities, from * dimension, (to - from) * dimension);
+            System.arraycopy(store.getAccelerations(), from * dimension, accelerations, from * dimension, (to - from) * dimension);
+        });
+        int position = 0;
+        for(Body body : engine.getBodies()) {
+            listOrder[position++] = body.getIndex();
+        }
+        this.integratorState = engine.getIntegrator().saveState(store);
+    }
+
+    /**
+     * Build an engine in the captured state. Bodies keep their ids and the id counter is
+     * moved past the captured next id. The caller sets the force solver, which carries no
+     * state between steps.
+     * @param scheduler scheduler for the new engine
+     * @param integrator a new integrator of the captured class
+     * @param logSnapshots whether the engine posts snapshots to the experiment service
+     * @return the restored engine, at the captured step and time
+     */
+    public PhysicsEngine restore(StepScheduler scheduler, Integrator integrator, boolean logSnapshots) {
+        if(!integrator.getClass().getName().equals(integratorName)) {
+            throw new IllegalArgumentException("Checkpoint was taken with " + integratorName + " (currently " + integrator.getClass().getName() + ")");
+        }
+        List<Body> slots = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            double[] position = new double[dimension];
+            double[] velocity = new double[dimension];
+            double[] acceleration = new double[dimension];
+            System.arraycopy(positions, i * dimension, position, 0, dimension);
+            System.arraycopy(velocities, i * dimension, velocity, 0, dimension);
+            System.arraycopy(accelerations, i * dimension, acceleration, 0, dimension);
+            slots.add(new BodyBuilder(dimension)
+                    .setId(ids[i])
+                    .setMass(masses[i])
+                    .setRadius(radii[i])
+                    .setPosition(new Vector(position))
+                    .setVelocity(new Vector(velocity))
+                    .setAcceleration(new Vector(acceleration))
+                    .buildBody());
+        }
+        Body.reserveIds(nextId);
+
+        // bodies are attached in slot order, then the list is put back in its captured order
+        List<Body> bodies = new ArrayList<>(slots);
+        PhysicsEngine engine = new PhysicsEngine(bodies, scheduler, logSnapshots);
+        bodies.clear();
+        for(int i = 0; i < count; i++) {
+            bodies.add(slots.get(listOrder[i]));
+        }
+        engine.setIntegrator(integrator);
+        engine.setCollisionMode(collisionMode);
+        engine.restoreClock(step, time);
+        if(engine.getStore() != null) {
+            integrator.restoreState(engine.getStore(), integratorState);
+        }
+        return engine;
+    }
+
+    /**
+     * Write the checkpoint atomically: to a temporary file next to the target, forced to
+     * disk, then renamed over the target and the directory forced so the rename is durable.
+     * Any thread, while no capture is in progress.
+     * @param path file to write
+     * @throws IOException if the file cannot be written; the previous file is left intact
+     */
+    public void write(Path path) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putShort(VERSION);
+            out.putShort((short) dimension);
+            out.putInt(count);
+            out.putLong(step);
+            out.putDouble(time);
+            out.putInt(nextId);
+            out.putString(collisionMode.name());
+            out.putInt(settings.size());
+            for(Map.Entry<String, String> setting : settings.entrySet()) {
+                out.putString(setting.getKey());
+                out.putString(setting.getValue());
+            }
+            int length = count * dimension;
+            out.putInts(ids, count);
+            out.putInts(listOrder, count);
+            out.putDoubles(masses, count);
+            out.putDoubles(radii, count);
+            out.putDoubles(positions, length);
+            out.putDoubles(velocities, length);
+            out.putDoubles(accelerations, length);
+            out.putString(integratorName);
+            out.putInt(integratorState.length);
+            out.putBytes(integratorState);
+            out.finish();
+            channel.force(true);
+        } catch(IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Force a directory's entries to disk so a rename into it survives a crash. Platforms
+     * that cannot open a directory as a channel (Windows) are skipped.
+     * @param directory directory to force
+     * @throws IOException if the directory was opened but could not be forced
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        if(directory == null) {
+            return;
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch(IOException | UnsupportedOperationException e) {
+            return;
+        }
+        try(channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Read a checkpoint file
+     * @param path file written by write
+     * @return the checkpoint
+     * @throws IOException if the file cannot be read
+     */
+    public static Checkpoint read(Path path) throws IOException {
+        Checkpoint checkpoint = new Checkpoint();
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if(in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a checkpoint file: " + path);
+            }
+            short version = in.getShort();
+            if(version != VERSION) {
+                throw new IllegalArgumentException("Unsupported checkpoint version " + version + " (expected " + VERSION + ")");
+            }
+            checkpoint.dimension = in.getShort();
+            checkpoint.count = in.getInt();
+            if(checkpoint.dimension < 0 || checkpoint.count < 0 || (checkpoint.count > 0 && checkpoint.dimension == 0)) {
+                throw new IllegalArgumentException("Checkpoint " + path + " is corrupt");
+            }
+            checkpoint.step = in.getLong();
+            checkpoint.time = in.getDouble();
+            checkpoint.nextId = in.getInt();
+            checkpoint.collisionMode = CollisionMode.valueOf(in.getString());
+            int settings = in.getInt();
+            for(int i = 0; i < settings; i++) {
+                checkpoint.settings.put(in.getString(), in.getString());
+            }
+            int count = checkpoint.count;
+            int length = Math.multiplyExact(count, checkpoint.dimension);
+            checkpoint.ids = in.getInts(count);
+            checkpoint.listOrder = in.getInts(count);
+            checkpoint.masses = in.getDoubles(count);
+            checkpoint.radii = in.getDoubles(count);
+            checkpoint.positions = in.getDoubles(length);
+            checkpoint.velocities = in.getDoubles(length);
+            checkpoint.accelerations = in.getDoubles(length);
+            checkpoint.integratorName = in.getString();
+            checkpoint.integratorState = in.getBytes(in.getInt());
+            in.verify(path);
+        }
+        return checkpoint;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Count getter
+     * @return number of particles captured
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Step getter
+     * @return the engine's step counter when captured
+     */
+    public long getStep() {
+        return this.step;
+    }
+
+    /**
+     * Time getter
+     * @return the engine's simulated time when captured
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Settings getter
+     * @return the settings captured with the state, in the order they were given
+     */
+    public Map<String, String> getSettings() {
+        return Collections.unmodifiableMap(this.settings);
+    }
+
+    /**
+     * Private helper writing little-endian values through a reused buffer, checksumming every byte
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C checksum = new CRC32C();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            int done = 0;
+            while(done < values.length) {
+                ensure(1);
+                int n = Math.min(values.length - done, buffer.remaining());
+                buffer.put(values, done, n);
+                done += n;
+            }
+        }
+
+        void putInts(int[] values, int length) throws IOException {
+            int done = 0;
+            while(done < length) {
+                ensure(Integer.BYTES);
+                int n = Math.min(length - done, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                done += n;
+            }
+        }
+
+        void putDoubles(double[] values, int length) throws IOException {
+            int done = 0;
+            while(done < length) {
+                ensure(Double.BYTES);
+                int n = Math.min(length - done, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, done, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                done += n;
+            }
+        }
+
+        /**
+         * Append the checksum and write out what is left
+         */
+        void finish() throws IOException {
+            flush();
+            buffer.putInt((int) checksum.getValue());
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if(buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            checksum.update(buffer.duplicate());
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Private helper reading little-endian values through a reused buffer, checksumming every byte
+     */
+    private static final class Input {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32C checksum = new CRC32C();
+        // bytes before this position in the buffer are already checksummed
+        private int checked = 0;
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        short getShort() throws IOException {
+            ensure(Short.BYTES);
+            return buffer.getShort();
+        }
+
+        int getInt() throws IOException {
+            ensure(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        double getDouble() throws IOException {
+            ensure(Double.BYTES);
+            return buffer.getDouble();
+        }
+
+        String getString() throws IOException {
+            return new String(getBytes(getInt()), StandardCharsets.UTF_8);
+        }
+
+        byte[] getBytes(int length) throws IOException {
+            if(length < 0) {
+                throw new IllegalArgumentException("Checkpoint is corrupt (negative length " + length + ")");
+            }
+            byte[] values = new byte[length];
+            int done = 0;
+            while(done < length) {
+                ensure(1);
+                int n = Math.min(length - done, buffer.remaining());
+                buffer.get(values, done, n);
+                done += n;
+            }
+            return values;
+        }
+
+        int[] getInts(int length) throws IOException {
+            int[] values = new int[length];
+            int done = 0;
+            while(done < length) {
+                ensure(Integer.BYTES);
+                int n = Math.min(length - done, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(values, done, n);
+                buffer.position(buffer.position() + n * Integer.BYTES);
+                done += n;
+            }
+            return values;
+        }
+
+        double[] getDoubles(int length) throws IOException {
+            double[] values = new double[length];
+            int done = 0;
+            while(done < length) {
+                ensure(Double.BYTES);
+                int n = Math.min(length - done, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().get(values, done, n);
+                buffer.position(buffer.position() + n * Double.BYTES);
+                done += n;
+            }
+            return values;
+        }
+
+        /**
+         * Compare the trailing checksum with the bytes read
+         */
+        void verify(Path path) throws IOException {
+            updateChecksum();
+            int expected = getInt();
+            if((int) checksum.getValue() != expected) {
+                throw new IllegalArgumentException("Checkpoint " + path + " fails its checksum");
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if(buffer.remaining() >= bytes) {
+                return;
+            }
+            updateChecksum();
+            buffer.compact();
+            checked = 0;
+            while(buffer.position() < bytes) {
+                if(channel.read(buffer) < 0) {
+                    throw new EOFException("Checkpoint is truncated");
+                }
+            }
+            buffer.flip();
+        }
+
+        private void updateChecksum() {
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.limit(buffer.position());
+            consumed.position(checked);
+            checksum.update(consumed);
+            checked = buffer.position();
+        }
+    }
+}
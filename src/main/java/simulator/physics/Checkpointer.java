@@ -0,0 +1,154 @@
+package simulator.physics;
+
+import simulator.logging.Log;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Checkpointer class - writes a PhysicsEngine's state to disk every few steps without
+ * holding the steps up for the disk. Between steps the state is copied into a reused
+ * Checkpoint, spread over the engine's worker threads, and a background thread writes
+ * the copy out atomically while stepping continues. If the previous write is still
+ * running when the next checkpoint falls due, that checkpoint is skipped rather than
+ * waited for, so a slow disk costs checkpoint frequency, never step time.
+ */
+public class Checkpointer {
+    private static final System.Logger LOG = Log.get(Checkpointer.class);
+
+    private final Path path;
+    private final long interval;
+    private final Map<String, String> settings;
+    private final Checkpoint checkpoint = new Checkpoint();
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long written = 0;
+    private volatile long skipped = 0;
+    private volatile long failed = 0;
+    private volatile long lastStep = -1;
+
+    /**
+     * Constructor
+     * @param path file to keep the latest checkpoint in
+     * @param interval steps between checkpoints
+     * @param settings settings stored with every checkpoint, e.g. the solver name and timestep
+     */
+    public Checkpointer(Path path, long interval, Map<String, String> settings) {
+        if(interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive (currently " + interval + ")");
+        }
+        this.path = path;
+        this.interval = interval;
+        this.settings = new LinkedHashMap<>(settings);
+    }
+
+    /**
+     * Checkpoint the engine if its step counter is due. Called by the engine after each step.
+     * @param engine the engine that just stepped
+     */
+    void afterStep(PhysicsEngine engine) {
+        if(engine.getStep() % interval == 0) {
+            checkpoint(engine);
+        }
+    }
+
+    /**
+     * Capture the engine now and write it in the background. Stepping thread only, between steps.
+     * @param engine the engine to checkpoint
+     * @return true if a write was started, false if the previous one is still running
+     */
+    public boolean checkpoint(PhysicsEngine engine) {
+        if(!writing.compareAndSet(false, true)) {
+            skipped++;
+            LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "checkpoint_skipped", "step", engine.getStep(), "path", path));
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            checkpoint.capture(engine, settings);
+            long captureNanos = System.nanoTime() - start;
+            writer.execute(() -> write(captureNanos));
+        } catch(RuntimeException | Error e) {
+            // nothing was handed to the writer, so release the slot or every later checkpoint is skipped
+            writing.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Wait for the write in progress, if any, and stop the writer thread
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void close() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    public long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Written getter
+     * @return number of checkpoints written to disk
+     */
+    public long getWritten() {
+        return this.written;
+    }
+
+    /**
+     * Skipped getter
+     * @return number of checkpoints skipped because the previous write was still running
+     */
+    public long getSkipped() {
+        return this.skipped;
+    }
+
+    /**
+     * Failed getter
+     * @return number of checkpoints that could not be written
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Last step getter
+     * @return step of the newest checkpoint on disk, -1 if none was written
+     */
+    public long getLastStep() {
+        return this.lastStep;
+    }
+
+    private void write(long captureNanos) {
+        long start = System.nanoTime();
+        try {
+            checkpoint.write(path);
+            written++;
+            lastStep = checkpoint.getStep();
+            LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "checkpoint_written", "step", checkpoint.getStep(), "bodies", checkpoint.getCount(),
+                    "captureMs", captureNanos / 1e6, "writeMs", (System.nanoTime() - start) / 1e6, "path", path));
+        } catch(IOException | RuntimeException e) {
+            failed++;
+            LOG.log(System.Logger.Level.WARNING, Log.fields("event", "checkpoint_failed", "step", checkpoint.getStep(), "path", path, "error", e.getMessage()));
+        } finally {
+            writing.set(false);
+        }
+    }
+}
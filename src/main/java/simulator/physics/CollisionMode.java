@@ -0,0 +1,13 @@
+package simulator.physics;
+
+/**
+ * How the engine responds when two bodies overlap
+ */
+public enum CollisionMode {
+    /** Bodies pass through each other; only gravity acts */
+    NONE,
+    /** Bodies bounce off each other, conserving momentum and kinetic energy */
+    ELASTIC,
+    /** Bodies fuse into one, conserving mass, momentum and volume */
+    MERGE
+}
@@ -0,0 +1,164 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Detects overlapping bodies with a SpatialHashGrid and applies a CollisionMode response.
+ * Contacts are resolved one pair at a time in grid order against the live state, so a body
+ * touched by several others sees each response in turn.
+ */
+public class CollisionResolver {
+    private final SpatialHashGrid grid = new SpatialHashGrid();
+    private boolean[] absorbed = new boolean[0];
+    private long contacts = 0;
+    private long buildNanos = 0;
+    private boolean moved = false;
+
+    /**
+     * Resolve every contact in the store
+     * @param store the particle state to resolve
+     * @param mode the response to apply; NONE does nothing
+     * @return views of the bodies absorbed by a merge, already removed from the store, in no particular order
+     */
+    public List<Body> resolve(ParticleStore store, CollisionMode mode) {
+        buildNanos = 0;
+        moved = false;
+        if(mode == CollisionMode.NONE || store.size() < 2) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        grid.build(store);
+        buildNanos = System.nanoTime() - start;
+        if(mode == CollisionMode.ELASTIC) {
+            grid.forEachContact(store, (i, j) -> bounce(store, i, j));
+            return List.of();
+        }
+
+        int size = store.size();
+        if(absorbed.length < size) {
+            absorbed = new boolean[size];
+        }
+        Arrays.fill(absorbed, 0, size, false);
+        grid.forEachContact(store, (i, j) -> merge(store, i, j));
+
+        List<Body> removed = new ArrayList<>();
+        // remove from the back so the particle swapped into each freed slot is never itself pending removal
+        for(int i = size - 1; i >= 0; i--) {
+            if(absorbed[i]) {
+                removed.add(store.getView(i));
+                store.remove(i);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Spatial hash getter
+     * @return the grid used for the broadphase
+     */
+    public SpatialHashGrid getGrid() {
+        return this.grid;
+    }
+
+    /**
+     * Contact count getter
+     * @return total number of contacts resolved so far
+     */
+    public long getContacts() {
+        return this.contacts;
+    }
+
+    /**
+     * Build time getter
+     * @return nanoseconds the last resolve spent building the grid, 0 if it did not build one
+     */
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+    /**
+     * Moved getter
+     * @return true if the last resolve pushed overlapping bodies apart, so positions changed after the forces were computed
+     */
+    public boolean hasMoved() {
+        return this.moved;
+    }
+
+    /**
+     * Private helper for an elastic collision: exchange momentum along the line of centres if
+     * the pair is approaching, then push the bodies apart in inverse proportion to their masses
+     */
+    private void bounce(ParticleStore store, int i, int j) {
+        int dimension = store.getDimension();
+        double[] positions = store.getPositions();
+        double[] velocities = store.getVelocities();
+        double[] masses = store.getMasses();
+        double[] radii = store.getRadii();
+        double total = masses[i] + masses[j];
+        double distanceSquared = 0;
+        double approach = 0;
+        for(int dim = 0; dim < dimension; dim++) {
+            double delta = positions[j * dimension + dim] - positions[i * dimension + dim];
+            distanceSquared += delta * delta;
+            approach += delta * (velocities[j * dimension + dim] - velocities[i * dimension + dim]);
+        }
+        if(distanceSquared == 0 || total <= 0) {
+            return;
+        }
+        contacts++;
+        double distance = Math.sqrt(distanceSquared);
+        // normal velocity (v_j - v_i) . n with n the unit vector from i to j
+        double normalSpeed = approach / distance;
+        double impulse = normalSpeed < 0 ? 2 * normalSpeed / total : 0;
+        double overlap = (radii[i] + radii[j] - distance) / total;
+        if(overlap != 0) {
+            moved = true;
+        }
+        for(int dim = 0; dim < dimension; dim++) {
+            double normal = (positions[j * dimension + dim] - positions[i * dimension + dim]) / distance;
+            velocities[i * dimension + dim] += impulse * masses[j] * normal;
+            velocities[j * dimension + dim] -= impulse * masses[i] * normal;
+            positions[i * dimension + dim] -= overlap * masses[j] * normal;
+            positions[j * dimension + dim] += overlap * masses[i] * normal;
+        }
+    }
+
+    /**
+     * Private helper to fuse the lighter body of a pair into the heavier one at their common
+     * center of mass; the combined body keeps the total volume
+     */
+    private void merge(ParticleStore store, int i, int j) {
+        if(absorbed[i] || absorbed[j]) {
+            return;
+        }
+        double[] masses = store.getMasses();
+        int survivor = masses[i] >= masses[j] ? i : j;
+        int other = survivor == i ? j : i;
+        double total = masses[survivor] + masses[other];
+        if(total <= 0) {
+            return;
+        }
+        contacts++;
+        int dimension = store.getDimension();
+        double weight = masses[other] / total;
+        blend(store.getPositions(), survivor, other, dimension, weight);
+        blend(store.getVelocities(), survivor, other, dimension, weight);
+        blend(store.getAccelerations(), survivor, other, dimension, weight);
+        double[] radii = store.getRadii();
+        radii[survivor] = Math.pow(Math.pow(radii[survivor], dimension) + Math.pow(radii[other], dimension), 1.0 / dimension);
+        masses[survivor] = total;
+        absorbed[other] = true;
+    }
+
+    private static void blend(double[] values, int survivor, int other, int dimension, double weight) {
+        for(int dim = 0; dim < dimension; dim++) {
+            int offset = survivor * dimension + dim;
+            values[offset] += (values[other * dimension + dim] - values[offset]) * weight;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * Exact O(N^2) gravity solver. Every particle sums the pull of every other particle,
+ * using the same force law as Body.getNetGravitationalForce.
+ * In 2D and 3D the sum can run on the SIMD kernel in VectorGravityKernel when the
+ * jdk.incubator.vector module is available (run with --add-modules jdk.incubator.vector);
+ * otherwise, or when switched off, the scalar loop is used.
+ */
+public class DirectSumSolver implements ForceSolver {
+    private static final boolean VECTOR_SUPPORTED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private boolean vectorized;
+
+    // per-component coordinate columns and G-scaled masses for the SIMD kernel
+    private double[][] columns = new double[0][];
+    private double[] scaledMasses = new double[0];
+    private long interactions = 0;
+
+    /**
+     * Constructor - vectorized when supported, unless the simulator.simd system property is false
+     */
+    public DirectSumSolver() {
+        this(Boolean.parseBoolean(System.getProperty("simulator.simd", "true")));
+    }
+
+    /**
+     * Constructor
+     * @param vectorized whether to use the SIMD kernel when it is supported
+     */
+    public DirectSumSolver(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    /**
+     * Check for the Vector API at runtime
+     * @return true when jdk.incubator.vector is in the boot layer
+     */
+    public static boolean isVectorSupported() {
+        return VECTOR_SUPPORTED;
+    }
+
+    /**
+     * Vectorized getter
+     * @return true when the next step will run on the SIMD kernel
+     */
+    public boolean isVectorized() {
+        return this.vectorized && VECTOR_SUPPORTED;
+    }
+
+    /**
+     * Switch between the SIMD kernel and the scalar loop. Requesting SIMD without
+     * jdk.incubator.vector present silently keeps the scalar loop.
+     * @param vectorized whether to use the SIMD kernel
+     */
+    public void setVectorized(boolean vectorized) {
+        this.vectorized = vectorized;
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler) {
+        boolean vector = prepare(store, scheduler);
+        scheduler.forEachChunk(store.size(), (from, to) -> evaluate(store, vector, from, to));
+        this.interactions = (long) store.size() * Math.max(0, store.size() - 1);
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler, int[] targets, int count) {
+        boolean vector = prepare(store, scheduler);
+        scheduler.forEachChunk(count, (from, to) -> {
+            for(int k = from; k < to; k++) {
+                evaluate(store, vector, targets[k], targets[k] + 1);
+            }
+        });
+        this.interactions = (long) count * Math.max(0, store.size() - 1);
+    }
+
+    @Override
+    public long getInteractionCount() {
+        return this.interactions;
+    }
+
+    /**
+     * Private helper to decide on the SIMD kernel for this evaluation and, if used,
+     * refresh its coordinate columns from the store
+     * @return true when the SIMD kernel should be used
+     */
+    private boolean prepare(ParticleStore store, StepScheduler scheduler) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        if(!isVectorized() || (dimension != 2 && dimension != 3)) {
+            return false;
+        }
+        if(columns.length != dimension || columns[0].length < size) {
+            columns = new double[dimension][size];
+            scaledMasses = new double[size];
+        }
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        double G = Body.getGravitationalConstant();
+        scheduler.forEachChunk(size, (from, to) -> {
+            for(int i = from; i < to; i++) {
+                for(int dim = 0; dim < dimension; dim++) {
+                    columns[dim][i] = positions[i * dimension + dim];
+                }
+                scaledMasses[i] = G * masses[i];
+            }
+        });
+        return true;
+    }
+
+    private void evaluate(ParticleStore store, boolean vector, int from, int to) {
+        if(!vector) {
+            accumulate(store, from, to);
+        } else if(store.getDimension() == 2) {
+            VectorGravityKernel.accumulate2D(columns[0], columns[1], scaledMasses, store.size(),
+                    from, to, store.getAccelerations());
+        } else {
+            VectorGravityKernel.accumulate3D(columns[0], columns[1], columns[2], scaledMasses, store.size(),
+                    from, to, store.getAccelerations());
+        }
+    }
+
+    /**
+     * Compute the accelerations of particles [from, to) against the whole store
+     * @param store the particle state to evaluate
+     * @param from first particle to evaluate
+     * @param to one past the last particle to evaluate
+     */
+    void accumulate(ParticleStore store, int from, int to) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        double[] accelerations = store.getAccelerations();
+        double G = Body.getGravitationalConstant();
+        double[] sum = new double[dimension];
+        for(int i = from; i < to; i++) {
+            int offset = i * dimension;
+            Arrays.fill(sum, 0);
+            for(int j = 0; j < size; j++) {
+                if(j == i) {
+                    continue;
+                }
+                double distanceSquared = 0;
+                for(int dim = 0; dim < dimension; dim++) {
+                    double delta = positions[j * dimension + dim] - positions[offset + dim];
+                    distanceSquared += delta * delta;
+                }
+                // |F| = G m1 m2 / r along the unit displacement, i.e. delta * G m2 / r^2 per unit mass
+                double scale = G * masses[j] / distanceSquared;
+                for(int dim = 0; dim < dimension; dim++) {
+                    sum[dim] += scale * (positions[j * dimension + dim] - positions[offset + dim]);
+                }
+            }
+            System.arraycopy(sum, 0, accelerations, offset, dimension);
+        }
+    }
+}
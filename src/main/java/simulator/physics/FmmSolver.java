@@ -0,0 +1,499 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fast multipole method gravity solver for 2D.
+ * The engine's force law, |F| = G m1 m2 / r, is the gradient of the logarithmic potential,
+ * so each box carries a complex multipole expansion (Greengard-Rokhlin) truncated at a
+ * configurable order. Expansions are passed up a uniform quadtree, converted to local
+ * expansions across interaction lists and passed back down, and only particles in
+ * neighbouring leaf boxes interact directly - O(N) work per step for a fixed order.
+ * All coefficient and binning arrays are reused between steps.
+ */
+public class FmmSolver implements ForceSolver {
+    private static final int MIN_LEVELS = 2;
+    private static final int MAX_LEVELS = 10;
+    private static final int BOX_GRAIN = 64;
+
+    private int order;
+    private int leafSize;
+
+    private int levels;
+    private double originX;
+    private double originY;
+    private double width;
+    private double[][] binomial;
+
+    // expansion coefficients per level, laid out as [box * (order + 1) + k]
+    private double[][] multipoleRe = new double[MAX_LEVELS + 1][];
+    private double[][] multipoleIm = new double[MAX_LEVELS + 1][];
+    private double[][] localRe = new double[MAX_LEVELS + 1][];
+    private double[][] localIm = new double[MAX_LEVELS + 1][];
+
+    // particles sorted by leaf box: box b owns sorted[leafStart[b] .. leafStart[b + 1])
+    private int[] leafStart = new int[0];
+    private int[] sorted = new int[0];
+    private int[] leafOf = new int[0];
+
+    private final LongAdder interactions = new LongAdder();
+    private long buildNanos = 0;
+
+
+    public FmmSolver() {
+        this(12);
+    }
+
+    /**
+     * Constructor
+     * @param order number of expansion terms; error falls roughly geometrically with the order
+     */
+    public FmmSolver(int order) {
+        this(order, 32);
+    }
+
+    /**
+     * Constructor
+     * @param order number of expansion terms; error falls roughly geometrically with the order
+     * @param leafSize target number of particles per leaf box, used to pick the tree depth
+     */
+    public FmmSolver(int order, int leafSize) {
+        if(order < 1) {
+            throw new IllegalArgumentException("Expansion order must be positive (currently " + order + ")");
+        }
+        if(leafSize < 1) {
+            throw new IllegalArgumentException("Leaf size must be positive (currently " + leafSize + ")");
+        }
+        this.order = order;
+        this.leafSize = leafSize;
+        this.binomial = binomialTable(2 * order + 1);
+    }
+
+    public int getOrder() {
+        return this.order;
+    }
+
+    /**
+     * Levels getter
+     * @return the depth of the quadtree used for the most recent evaluation
+     */
+    public int getLevels() {
+        return this.levels;
+    }
+
+    /**
+     * Interaction count getter
+     * @return near-field pairs plus one far-field evaluation per particle, for the last evaluation
+     */
+    @Override
+    public long getInteractionCount() {
+        return this.interactions.sum();
+    }
+
+    /**
+     * Build time getter
+     * @return nanoseconds the last evaluation spent sizing the grid and binning particles into leaves
+     */
+    @Override
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler) {
+        if(store.getDimension() != 2) {
+            throw new IllegalArgumentException("FMM supports dimension 2 (dimension is " + store.getDimension() + ")");
+        }
+        int size = store.size();
+        Arrays.fill(store.getAccelerations(), 0, size * 2, 0);
+        interactions.reset();
+        buildNanos = 0;
+        if(size == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        chooseGrid(store);
+        binParticles(store);
+        buildNanos = System.nanoTime() - start;
+        upwardPass(store, scheduler);
+        downwardPass(scheduler);
+        evaluate(store, scheduler);
+    }
+
+    /**
+     * Private helper to fit a square domain around the particles and pick the tree depth
+     */
+    private void chooseGrid(ParticleStore store) {
+        double[] positions = store.getPositions();
+        int size = store.size();
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for(int i = 0; i < size; i++) {
+            minX = Math.min(minX, positions[2 * i]);
+            maxX = Math.max(maxX, positions[2 * i]);
+            minY = Math.min(minY, positions[2 * i + 1]);
+            maxY = Math.max(maxY, positions[2 * i + 1]);
+        }
+        this.width = Math.max(Math.max(maxX - minX, maxY - minY) * (1 + 1e-9), Double.MIN_NORMAL);
+        this.originX = (minX + maxX - width) / 2;
+        this.originY = (minY + maxY - width) / 2;
+
+        int depth = MIN_LEVELS;
+        while(depth < MAX_LEVELS && (long) size > (long) leafSize << (2 * depth)) {
+            depth++;
+        }
+        this.levels = depth;
+
+        int coefficients = order + 1;
+        for(int level = MIN_LEVELS; level <= levels; level++) {
+            int boxes = 1 << (2 * level);
+            if(multipoleRe[level] == null || multipoleRe[level].length < boxes * coefficients) {
+                multipoleRe[level] = new double[boxes * coefficients];
+                multipoleIm[level] = new double[boxes * coefficients];
+                localRe[level] = new double[boxes * coefficients];
+                localIm[level] = new double[boxes * coefficients];
+            } else {
+                Arrays.fill(multipoleRe[level], 0, boxes * coefficients, 0);
+                Arrays.fill(multipoleIm[level], 0, boxes * coefficients, 0);
+                Arrays.fill(localRe[level], 0, boxes * coefficients, 0);
+                Arrays.fill(localIm[level], 0, boxes * coefficients, 0);
+            }
+        }
+    }
+
+    /**
+     * Private helper to counting-sort particles into leaf boxes
+     */
+    private void binParticles(ParticleStore store) {
+        double[] positions = store.getPositions();
+        int size = store.size();
+        int side = 1 << levels;
+        int boxes = side * side;
+        if(leafStart.length < boxes + 1) {
+            leafStart = new int[boxes + 1];
+        } else {
+            Arrays.fill(leafStart, 0, boxes + 1, 0);
+        }
+        if(sorted.length < size) {
+            sorted = new int[size];
+            leafOf = new int[size];
+        }
+        for(int i = 0; i < size; i++) {
+            int ix = cell(positions[2 * i] - originX, side);
+            int iy = cell(positions[2 * i + 1] - originY, side);
+            leafOf[i] = iy * side + ix;
+            leafStart[leafOf[i] + 1]++;
+        }
+        for(int box = 0; box < boxes; box++) {
+            leafStart[box + 1] += leafStart[box];
+        }
+        for(int i = 0; i < size; i++) {
+            sorted[leafStart[leafOf[i]]++] = i;
+        }
+        // the fill loop advanced each start to the next box's start; shift back
+        for(int box = boxes; box > 0; box--) {
+            leafStart[box] = leafStart[box - 1];
+        }
+        leafStart[0] = 0;
+    }
+
+    private int cell(double offset, int side) {
+        int index = (int) (offset / width * side);
+        return Math.min(Math.max(index, 0), side - 1);
+    }
+
+    /**
+     * Private helper to form leaf multipoles from particles (P2M) and merge them up the tree (M2M)
+     */
+    private void upwardPass(ParticleStore store, StepScheduler scheduler) {
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        int coefficients = order + 1;
+        int side = 1 << levels;
+        double[] re = multipoleRe[levels];
+        double[] im = multipoleIm[levels];
+        scheduler.forEachChunk(side * side, BOX_GRAIN, (from, to) -> {
+            for(int box = from; box < to; box++) {
+                double centerX = boxCenter(box % side, levels, originX);
+                double centerY = boxCenter(box / side, levels, originY);
+                int base = box * coefficients;
+                for(int slot = leafStart[box]; slot < leafStart[box + 1]; slot++) {
+                    int particle = sorted[slot];
+                    double q = masses[particle];
+                    double dx = positions[2 * particle] - centerX;
+                    double dy = positions[2 * particle + 1] - centerY;
+                    re[base] += q;
+                    // a_k = -q (z - c)^k / k
+                    double pr = 1, pi = 0;
+                    for(int k = 1; k <= order; k++) {
+                        double nr = pr * dx - pi * dy;
+                        pi = pr * dy + pi * dx;
+                        pr = nr;
+                        re[base + k] -= q * pr / k;
+                        im[base + k] -= q * pi / k;
+                    }
+                }
+            }
+        });
+
+        for(int level = levels - 1; level >= MIN_LEVELS; level--) {
+            int parentSide = 1 << level;
+            double childHalf = width / (1 << (level + 1)) / 2;
+            double[] childRe = multipoleRe[level + 1];
+            double[] childIm = multipoleIm[level + 1];
+            double[] parentRe = multipoleRe[level];
+            double[] parentIm = multipoleIm[level];
+            scheduler.forEachChunk(parentSide * parentSide, BOX_GRAIN, (from, to) -> {
+                double[] scratchRe = new double[order + 1];
+                double[] scratchIm = new double[order + 1];
+                for(int parent = from; parent < to; parent++) {
+                    int px = parent % parentSide;
+                    int py = parent / parentSide;
+                    for(int child = 0; child < 4; child++) {
+                        int cx = 2 * px + (child & 1);
+                        int cy = 2 * py + (child >> 1);
+                        int childBase = (cy * 2 * parentSide + cx) * coefficients;
+                        // child center relative to parent center
+                        double z0r = (child & 1) != 0 ? childHalf : -childHalf;
+                        double z0i = (child >> 1) != 0 ? childHalf : -childHalf;
+                        shiftMultipole(childRe, childIm, childBase, z0r, z0i,
+                                parentRe, parentIm, parent * coefficients, scratchRe, scratchIm);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Private helper for M2M: b_l = -a_0 z0^l / l + sum_{k=1..l} a_k z0^(l-k) C(l-1, k-1)
+     */
+    private void shiftMultipole(double[] aRe, double[] aIm, int aBase, double z0r, double z0i,
+                                double[] bRe, double[] bIm, int bBase, double[] scratchRe, double[] scratchIm) {
+        double q = aRe[aBase];
+        if(q == 0) {
+            return;
+        }
+        bRe[bBase] += q;
+        // scratch holds powers z0^0 .. z0^order
+        scratchRe[0] = 1;
+        scratchIm[0] = 0;
+        for(int k = 1; k <= order; k++) {
+            scratchRe[k] = scratchRe[k - 1] * z0r - scratchIm[k - 1] * z0i;
+            scratchIm[k] = scratchRe[k - 1] * z0i + scratchIm[k - 1] * z0r;
+        }
+        for(int l = 1; l <= order; l++) {
+            double sumRe = -q * scratchRe[l] / l;
+            double sumIm = -q * scratchIm[l] / l;
+            for(int k = 1; k <= l; k++) {
+                double c = binomial[l - 1][k - 1];
+                double ar = aRe[aBase + k], ai = aIm[aBase + k];
+                double pr = scratchRe[l - k], pi = scratchIm[l - k];
+                sumRe += c * (ar * pr - ai * pi);
+                sumIm += c * (ar * pi + ai * pr);
+            }
+            bRe[bBase + l] += sumRe;
+            bIm[bBase + l] += sumIm;
+        }
+    }
+
+    /**
+     * Private helper to build local expansions top-down: inherit from the parent (L2L) and
+     * add every box in the interaction list (M2L)
+     */
+    private void downwardPass(StepScheduler scheduler) {
+        int coefficients = order + 1;
+        for(int level = MIN_LEVELS; level <= levels; level++) {
+            int side = 1 << level;
+            double boxWidth = width / side;
+            double[] mRe = multipoleRe[level];
+            double[] mIm = multipoleIm[level];
+            double[] lRe = localRe[level];
+            double[] lIm = localIm[level];
+            double[] parentRe = localRe[level - 1];
+            double[] parentIm = localIm[level - 1];
+            boolean inherit = level > MIN_LEVELS;
+            scheduler.forEachChunk(side * side, BOX_GRAIN, (from, to) -> {
+                double[] scratchRe = new double[order + 1];
+                double[] scratchIm = new double[order + 1];
+                for(int box = from; box < to; box++) {
+                    int ix = box % side;
+                    int iy = box / side;
+                    int base = box * coefficients;
+                    if(inherit) {
+                        int parentBase = ((iy / 2) * (side / 2) + ix / 2) * coefficients;
+                        // parent center relative to child center
+                        double z0r = (ix & 1) != 0 ? -boxWidth / 2 : boxWidth / 2;
+                        double z0i = (iy & 1) != 0 ? -boxWidth / 2 : boxWidth / 2;
+                        shiftLocal(parentRe, parentIm, parentBase, z0r, z0i, lRe, lIm, base, scratchRe, scratchIm);
+                    }
+                    int pxMin = Math.max(ix / 2 - 1, 0), pxMax = Math.min(ix / 2 + 1, side / 2 - 1);
+                    int pyMin = Math.max(iy / 2 - 1, 0), pyMax = Math.min(iy / 2 + 1, side / 2 - 1);
+                    for(int jy = 2 * pyMin; jy <= 2 * pyMax + 1; jy++) {
+                        for(int jx = 2 * pxMin; jx <= 2 * pxMax + 1; jx++) {
+                            if(Math.abs(jx - ix) <= 1 && Math.abs(jy - iy) <= 1) {
+                                continue;
+                            }
+                            int sourceBase = (jy * side + jx) * coefficients;
+                            if(mRe[sourceBase] == 0) {
+                                continue;
+                            }
+                            // source center relative to target center
+                            double z0r = (jx - ix) * boxWidth;
+                            double z0i = (jy - iy) * boxWidth;
+                            multipoleToLocal(mRe, mIm, sourceBase, z0r, z0i, lRe, lIm, base, scratchRe, scratchIm);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Private helper for M2L. The constant term is skipped since only the gradient is needed:
+     * b_l = -a_0 / (l z0^l) + z0^-l sum_{k=1..p} a_k z0^-k C(l+k-1, k-1) (-1)^k
+     */
+    private void multipoleToLocal(double[] aRe, double[] aIm, int aBase, double z0r, double z0i,
+                                  double[] bRe, double[] bIm, int bBase, double[] scratchRe, double[] scratchIm) {
+        double q = aRe[aBase];
+        double norm = z0r * z0r + z0i * z0i;
+        double invR = z0r / norm, invI = -z0i / norm;
+        // scratch holds (-1)^k a_k / z0^k for k = 1..order
+        double pr = 1, pi = 0;
+        for(int k = 1; k <= order; k++) {
+            double nr = pr * invR - pi * invI;
+            pi = pr * invI + pi * invR;
+            pr = nr;
+            double sign = (k & 1) != 0 ? -1 : 1;
+            double ar = aRe[aBase + k], ai = aIm[aBase + k];
+            scratchRe[k] = sign * (ar * pr - ai * pi);
+            scratchIm[k] = sign * (ar * pi + ai * pr);
+        }
+        double powRe = 1, powIm = 0;
+        for(int l = 1; l <= order; l++) {
+            double nr = powRe * invR - powIm * invI;
+            powIm = powRe * invI + powIm * invR;
+            powRe = nr;
+            double sumRe = -q / l, sumIm = 0;
+            for(int k = 1; k <= order; k++) {
+                double c = binomial[l + k - 1][k - 1];
+                sumRe += c * scratchRe[k];
+                sumIm += c * scratchIm[k];
+            }
+            bRe[bBase + l] += sumRe * powRe - sumIm * powIm;
+            bIm[bBase + l] += sumRe * powIm + sumIm * powRe;
+        }
+    }
+
+    /**
+     * Private helper for L2L: re-center sum_k a_k (z - z0)^k, giving b_l = sum_{k>=l} a_k C(k, l) (-z0)^(k-l)
+     */
+    private void shiftLocal(double[] aRe, double[] aIm, int aBase, double z0r, double z0i,
+                            double[] bRe, double[] bIm, int bBase, double[] scratchRe, double[] scratchIm) {
+        scratchRe[0] = 1;
+        scratchIm[0] = 0;
+        for(int k = 1; k <= order; k++) {
+            scratchRe[k] = -(scratchRe[k - 1] * z0r - scratchIm[k - 1] * z0i);
+            scratchIm[k] = -(scratchRe[k - 1] * z0i + scratchIm[k - 1] * z0r);
+        }
+        for(int l = 1; l <= order; l++) {
+            double sumRe = 0, sumIm = 0;
+            for(int k = l; k <= order; k++) {
+                double c = binomial[k][l];
+                double ar = aRe[aBase + k], ai = aIm[aBase + k];
+                double pr = scratchRe[k - l], pi = scratchIm[k - l];
+                sumRe += c * (ar * pr - ai * pi);
+                sumIm += c * (ar * pi + ai * pr);
+            }
+            bRe[bBase + l] += sumRe;
+            bIm[bBase + l] += sumIm;
+        }
+    }
+
+    /**
+     * Private helper to evaluate each particle's field from its leaf's local expansion plus
+     * direct interactions with the 3x3 neighbourhood of leaf boxes.
+     * With E(z) = sum q / (z - z_j), the acceleration is (-G Re E, G Im E).
+     */
+    private void evaluate(ParticleStore store, StepScheduler scheduler) {
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        double[] accelerations = store.getAccelerations();
+        double G = Body.getGravitationalConstant();
+        int coefficients = order + 1;
+        int side = 1 << levels;
+        double[] lRe = localRe[levels];
+        double[] lIm = localIm[levels];
+        scheduler.forEachChunk(side * side, BOX_GRAIN, (from, to) -> {
+            long evaluated = 0;
+            for(int box = from; box < to; box++) {
+                int ix = box % side;
+                int iy = box / side;
+                if(leafStart[box] == leafStart[box + 1]) {
+                    continue;
+                }
+                // one far-field evaluation plus every near-field neighbour but itself, per particle
+                int neighbours = 0;
+                for(int ny = Math.max(iy - 1, 0); ny <= Math.min(iy + 1, side - 1); ny++) {
+                    neighbours += leafStart[ny * side + Math.min(ix + 1, side - 1) + 1] - leafStart[ny * side + Math.max(ix - 1, 0)];
+                }
+                evaluated += (long) (leafStart[box + 1] - leafStart[box]) * neighbours;
+                int base = box * coefficients;
+                double centerX = boxCenter(ix, levels, originX);
+                double centerY = boxCenter(iy, levels, originY);
+                for(int slot = leafStart[box]; slot < leafStart[box + 1]; slot++) {
+                    int particle = sorted[slot];
+                    double x = positions[2 * particle], y = positions[2 * particle + 1];
+                    // far field: d/dz sum_l b_l (z - c)^l = sum_l l b_l (z - c)^(l-1), via Horner
+                    double dx = x - centerX, dy = y - centerY;
+                    double fieldRe = 0, fieldIm = 0;
+                    for(int l = order; l >= 1; l--) {
+                        double nr = fieldRe * dx - fieldIm * dy + l * lRe[base + l];
+                        fieldIm = fieldRe * dy + fieldIm * dx + l * lIm[base + l];
+                        fieldRe = nr;
+                    }
+                    // near field: q / (z - z_j) = q conj(z - z_j) / |z - z_j|^2
+                    for(int ny = Math.max(iy - 1, 0); ny <= Math.min(iy + 1, side - 1); ny++) {
+                        for(int nx = Math.max(ix - 1, 0); nx <= Math.min(ix + 1, side - 1); nx++) {
+                            int neighbour = ny * side + nx;
+                            for(int other = leafStart[neighbour]; other < leafStart[neighbour + 1]; other++) {
+                                int source = sorted[other];
+                                if(source == particle) {
+                                    continue;
+                                }
+                                double rx = x - positions[2 * source];
+                                double ry = y - positions[2 * source + 1];
+                                double scale = masses[source] / (rx * rx + ry * ry);
+                                fieldRe += scale * rx;
+                                fieldIm -= scale * ry;
+                            }
+                        }
+                    }
+                    accelerations[2 * particle] = -G * fieldRe;
+                    accelerations[2 * particle + 1] = G * fieldIm;
+                }
+            }
+            interactions.add(evaluated);
+        });
+    }
+
+    private double boxCenter(int index, int level, double origin) {
+        return origin + (index + 0.5) * width / (1 << level);
+    }
+
+    private static double[][] binomialTable(int size) {
+        double[][] table = new double[size + 1][];
+        for(int n = 0; n <= size; n++) {
+            table[n] = new double[n + 1];
+            table[n][0] = 1;
+            table[n][n] = 1;
+            for(int k = 1; k < n; k++) {
+                table[n][k] = table[n - 1][k - 1] + table[n - 1][k];
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,48 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Strategy used by PhysicsEngine to evaluate gravitational accelerations.
+ */
+public interface ForceSolver {
+
+    /**
+     * Compute the gravitational acceleration of every particle in the store and write it
+     * into the store's accelerations array.
+     * @param store the particle state to evaluate
+     * @param scheduler scheduler to spread the work over; the call returns once all work is done
+     */
+    void computeAccelerations(ParticleStore store, StepScheduler scheduler);
+
+    /**
+     * Compute the gravitational acceleration of a subset of particles, against every particle.
+     * Solvers that cannot evaluate a subset more cheaply compute all accelerations, so only the
+     * target slots are guaranteed to be written and other slots may be overwritten too.
+     * @param store the particle state to evaluate
+     * @param scheduler scheduler to spread the work over
+     * @param targets indices of the particles to evaluate
+     * @param count number of leading entries of targets to use
+     */
+    default void computeAccelerations(ParticleStore store, StepScheduler scheduler, int[] targets, int count) {
+        computeAccelerations(store, scheduler);
+    }
+
+    /**
+     * Interaction count getter, for throughput metrics
+     * @return particle interactions (pairwise or particle-node) evaluated by the last
+     *         computeAccelerations call, or 0 if the solver does not count them
+     */
+    default long getInteractionCount() {
+        return 0;
+    }
+
+    /**
+     * Build time getter, for metrics
+     * @return nanoseconds the last computeAccelerations call spent building a tree or grid,
+     *         0 for solvers without one
+     */
+    default long getBuildNanos() {
+        return 0;
+    }
+}
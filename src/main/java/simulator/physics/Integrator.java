@@ -0,0 +1,81 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Time integration scheme used by PhysicsEngine to advance particles by one step.
+ * Implementations call the force solver as many times as the scheme needs and leave the
+ * store's accelerations holding the most recently evaluated gravitational acceleration.
+ */
+public interface Integrator {
+
+    /**
+     * Advance every particle in the store by one timestep
+     * @param store the particle state to advance
+     * @param solver solver used for every force evaluation
+     * @param scheduler scheduler to spread the work over
+     * @param timestep the timestep to advance by
+     */
+    void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep);
+
+    /**
+     * Number of force evaluations one step performs
+     * @return force evaluations per step
+     */
+    int getForceEvaluationsPerStep();
+
+    /**
+     * Discard state carried between steps. Called whenever particles are added or removed.
+     */
+    default void reset() {}
+
+    /**
+     * Copy the state carried between steps, for a checkpoint. Called between steps.
+     * @param store the particle state the integrator is advancing
+     * @return the state as bytes, empty for integrators that carry none
+     */
+    default byte[] saveState(ParticleStore store) {
+        return new byte[0];
+    }
+
+    /**
+     * Resume from state saved by saveState, so the next step matches the one the saved run would have taken
+     * @param store the restored particle state, with the same slots as when the state was saved
+     * @param state bytes returned by saveState
+     */
+    default void restoreState(ParticleStore store, byte[] state) {}
+
+    /**
+     * Kick: v += a * timestep for every particle
+     * @param store the particle state to update
+     * @param scheduler scheduler to spread the work over
+     * @param timestep the (possibly fractional) timestep to kick by
+     */
+    static void kick(ParticleStore store, StepScheduler scheduler, double timestep) {
+        double[] velocities = store.getVelocities();
+        double[] accelerations = store.getAccelerations();
+        int dimension = store.getDimension();
+        scheduler.forEachChunk(store.size(), (from, to) -> {
+            for(int i = from * dimension; i < to * dimension; i++) {
+                velocities[i] += accelerations[i] * timestep;
+            }
+        });
+    }
+
+    /**
+     * Drift: x += v * timestep for every particle
+     * @param store the particle state to update
+     * @param scheduler scheduler to spread the work over
+     * @param timestep the (possibly fractional) timestep to drift by
+     */
+    static void drift(ParticleStore store, StepScheduler scheduler, double timestep) {
+        double[] positions = store.getPositions();
+        double[] velocities = store.getVelocities();
+        int dimension = store.getDimension();
+        scheduler.forEachChunk(store.size(), (from, to) -> {
+            for(int i = from * dimension; i < to * dimension; i++) {
+                positions[i] += velocities[i] * timestep;
+            }
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Leapfrog in kick-drift-kick form, equivalent to velocity Verlet.
+ * Second order and symplectic, so energy error stays bounded over long runs. The
+ * acceleration computed at the end of a step is reused at the start of the next,
+ * so after the first step there is one force evaluation per step.
+ */
+public class LeapfrogIntegrator implements Integrator {
+    private ParticleStore primedStore;
+    private int primedSize = -1;
+
+    @Override
+    public void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep) {
+        if(store != primedStore || store.size() != primedSize) {
+            solver.computeAccelerations(store, scheduler);
+            primedStore = store;
+            primedSize = store.size();
+        }
+        Integrator.kick(store, scheduler, timestep / 2);
+        Integrator.drift(store, scheduler, timestep);
+        solver.computeAccelerations(store, scheduler);
+        Integrator.kick(store, scheduler, timestep / 2);
+    }
+
+    @Override
+    public int getForceEvaluationsPerStep() {
+        return 1;
+    }
+
+    /**
+     * Record whether the store's accelerations are those of the current positions, so a
+     * restored run skips the priming force evaluation just as the saved run would have
+     */
+    @Override
+    public byte[] saveState(ParticleStore store) {
+        return new byte[]{(byte) (store == primedStore && store.size() == primedSize ? 1 : 0)};
+    }
+
+    @Override
+    public void restoreState(ParticleStore store, byte[] state) {
+        if(state.length == 1 && state[0] == 1) {
+            primedStore = store;
+            primedSize = store.size();
+        } else {
+            reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        primedStore = null;
+        primedSize = -1;
+    }
+}
@@ -0,0 +1,72 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Wraps the engine's force solver for one step at a time, adding up the time, build time
+ * and interactions of every call the integrator makes, so the force phase can be told
+ * apart from the integration around it.
+ */
+class MeteredForceSolver implements ForceSolver {
+    private ForceSolver solver;
+    private long nanos;
+    private long buildNanos;
+    private long interactions;
+
+    /**
+     * Start metering a new step
+     * @param solver the solver to delegate to
+     */
+    void begin(ForceSolver solver) {
+        this.solver = solver;
+        this.nanos = 0;
+        this.buildNanos = 0;
+        this.interactions = 0;
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler) {
+        long start = System.nanoTime();
+        solver.computeAccelerations(store, scheduler);
+        finish(start);
+    }
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler, int[] targets, int count) {
+        long start = System.nanoTime();
+        solver.computeAccelerations(store, scheduler, targets, count);
+        finish(start);
+    }
+
+    /**
+     * Interaction count getter
+     * @return interactions over every call since begin
+     */
+    @Override
+    public long getInteractionCount() {
+        return this.interactions;
+    }
+
+    /**
+     * Build time getter
+     * @return build nanoseconds over every call since begin
+     */
+    @Override
+    public long getBuildNanos() {
+        return this.buildNanos;
+    }
+
+    /**
+     * Time getter
+     * @return nanoseconds spent in the solver over every call since begin
+     */
+    long getNanos() {
+        return this.nanos;
+    }
+
+    private void finish(long start) {
+        nanos += System.nanoTime() - start;
+        buildNanos += solver.getBuildNanos();
+        interactions += solver.getInteractionCount();
+    }
+}
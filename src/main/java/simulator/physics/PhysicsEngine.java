@@ -1,54 +1,104 @@
 package simulator.physics;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-import simulator.models.DrawableBody;
-import simulator.models.Vector;
+import simulator.models.Body;
+import simulator.models.ParticleStore;
 import simulator.cloud.ExperimentLogger;
+import simulator.logging.Log;
+import simulator.logging.ParticleTrace;
+import simulator.metrics.EngineMetrics;
+import simulator.metrics.Phase;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Phaser;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * PhysicsEngine class - owns the bodies and advances them in time.
+ * The engine has no UI dependency; drawing lives in simulator.render and headless
+ * batch runs in simulator.batch. Every step is timed phase by phase into an EngineMetrics,
+ * which is published over JMX as simulator:type=PhysicsEngine,name=engine-N.
+ */
 public class PhysicsEngine {
-    private Boolean running = true;
-    private static Phaser phaser = new Phaser();
-    ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
-    private ScheduledExecutorService snapshotScheduler = Executors.newSingleThreadScheduledExecutor();
+    private static final System.Logger LOG = Log.get(PhysicsEngine.class);
+    private static final AtomicInteger ENGINE_IDS = new AtomicInteger();
 
-    private List<DrawableBody> bodies = new LinkedList();
+    private volatile Boolean running = true;
+    private static final long SNAPSHOT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private final boolean logSnapshots;
+    // the experiment service files this engine's snapshots as frames of one run
+    private final String runId = UUID.randomUUID().toString();
+    private long nextSnapshotNanos;
+
+    private List<Body> bodies = new LinkedList<>();
+    private ParticleStore store;
+    private ForceSolver forceSolver = new DirectSumSolver();
+    private Integrator integrator = new SemiImplicitEulerIntegrator();
+    private CollisionMode collisionMode = CollisionMode.NONE;
+    private final CollisionResolver collisionResolver = new CollisionResolver();
+    private ParticleTrace particleTrace = ParticleTrace.fromSystemProperties();
+    private final List<Body> tracedBodies = new ArrayList<>();
+    private final StepScheduler scheduler;
+    private final EngineMetrics metrics = new EngineMetrics();
+    private final MeteredForceSolver meteredSolver = new MeteredForceSolver();
 
     private long frameCount = 0;
-    private long fpsStartTime = System.currentTimeMillis();
+    private double time = 0;
+    private Checkpointer checkpointer;
 
     public PhysicsEngine() {
-        startSnapshotScheduler();
+        this(new LinkedList<>());
+    }
+
+    public PhysicsEngine(List<Body> bodies) {
+        this(bodies, new StepScheduler());
+    }
+
+    /**
+     * Constructor
+     * @param bodies initial bodies
+     * @param scheduler scheduler that runs the force and integration phases of each step
+     */
+    public PhysicsEngine(List<Body> bodies, StepScheduler scheduler) {
+        this(bodies, scheduler, true);
     }
 
-    public PhysicsEngine(List<DrawableBody> bodies) {
+    /**
+     * Constructor
+     * @param bodies initial bodies
+     * @param scheduler scheduler that runs the force and integration phases of each step
+     * @param logSnapshots whether to post a snapshot to the experiment service every 5 seconds
+     */
+    public PhysicsEngine(List<Body> bodies, StepScheduler scheduler, boolean logSnapshots) {
         this.bodies = bodies;
-        startSnapshotScheduler();
-    }
-
-    private void startSnapshotScheduler() {
-        snapshotScheduler.scheduleAtFixedRate(() -> {
-            if (running && !bodies.isEmpty()) {
-                long now = System.currentTimeMillis();
-                double avgFPS = calculateAvgFPS(now);
-                long computeTime = now - fpsStartTime;
-
-                ExperimentLogger.logSnapshot(
-                    "NBODY_GRAVITATIONAL",
-                    bodies,
-                    avgFPS,
-                    computeTime
-                );
-            }
-        }, 5, 5, TimeUnit.SECONDS);
+        this.scheduler = scheduler;
+        bodies.forEach(this::attach);
+        metrics.register("engine-" + ENGINE_IDS.incrementAndGet());
+        this.logSnapshots = logSnapshots;
+        this.nextSnapshotNanos = System.nanoTime() + SNAPSHOT_INTERVAL_NANOS;
+    }
+
+    /**
+     * Queue a snapshot for the experiment service. Runs on the stepping thread between steps,
+     * so the copy is consistent; posting happens on the pipeline's exporter thread.
+     */
+    private void logSnapshot() {
+        long start = System.nanoTime();
+        ExperimentLogger.logSnapshot(
+            runId,
+            frameCount,
+            "NBODY_GRAVITATIONAL",
+            store,
+            metrics.getStepsPerSecond(),
+            TimeUnit.NANOSECONDS.toMillis(metrics.getHistogram(Phase.STEP).getTotalNanos()),
+            metrics.summary()
+        );
+        metrics.recordPhase(Phase.EXPORT, System.nanoTime() - start);
     }
 
     public void start() {
@@ -63,68 +113,237 @@ public class PhysicsEngine {
         return this.running;
     }
 
-    public void addBody(DrawableBody body) {
+    public void addBody(Body body) {
+        attach(body);
         bodies.add(body);
     }
 
-    public List<DrawableBody> getBodies() {
+    public List<Body> getBodies() {
         return bodies;
     }
 
+    /**
+     * Store getter
+     * @return the flat particle state backing every body in the engine, or null before the first body is added
+     */
+    public ParticleStore getStore() {
+        return store;
+    }
+
+    /**
+     * Force solver getter
+     * @return the solver used for gravity
+     */
+    public ForceSolver getForceSolver() {
+        return forceSolver;
+    }
+
+    /**
+     * Select how gravity is evaluated each step
+     * @param forceSolver solver to use, e.g. DirectSumSolver (the default), BarnesHutSolver or FmmSolver
+     */
+    public void setForceSolver(ForceSolver forceSolver) {
+        if (forceSolver == null) {
+            throw new IllegalArgumentException("Force solver must not be null");
+        }
+        this.forceSolver = forceSolver;
+    }
+
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    /**
+     * Select the time integration scheme
+     * @param integrator scheme to use, e.g. SemiImplicitEulerIntegrator (the default), LeapfrogIntegrator,
+     *                   YoshidaIntegrator or RungeKutta4Integrator
+     */
+    public void setIntegrator(Integrator integrator) {
+        if (integrator == null) {
+            throw new IllegalArgumentException("Integrator must not be null");
+        }
+        this.integrator = integrator;
+    }
+
+    public CollisionMode getCollisionMode() {
+        return collisionMode;
+    }
+
+    /**
+     * Select how overlapping bodies respond after each step
+     * @param collisionMode NONE (the default), ELASTIC, or MERGE, which removes absorbed bodies from the engine
+     */
+    public void setCollisionMode(CollisionMode collisionMode) {
+        if (collisionMode == null) {
+            throw new IllegalArgumentException("Collision mode must not be null");
+        }
+        this.collisionMode = collisionMode;
+    }
+
+    public CollisionResolver getCollisionResolver() {
+        return collisionResolver;
+    }
+
+    public ParticleTrace getParticleTrace() {
+        return particleTrace;
+    }
+
+    /**
+     * Record the state of selected bodies after every step
+     * @param particleTrace trace to record into, or null to stop tracing; by default one is
+     *                      built from -Dsimulator.trace.ids
+     */
+    public void setParticleTrace(ParticleTrace particleTrace) {
+        this.particleTrace = particleTrace;
+        tracedBodies.clear();
+        if (particleTrace != null) {
+            bodies.stream().filter(particleTrace::isTraced).forEach(tracedBodies::add);
+        }
+    }
+
+    public StepScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Step getter
+     * @return number of steps taken, counting those of the run a checkpoint was restored from
+     */
+    public long getStep() {
+        return frameCount;
+    }
+
+    /**
+     * Run id getter
+     * @return id the experiment service stores this engine's snapshots under, as frames of one run
+     */
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * Time getter
+     * @return simulated time advanced so far, the sum of every step's timestep
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * Continue the step counter and clock of a checkpointed run
+     */
+    void restoreClock(long step, double time) {
+        this.frameCount = step;
+        this.time = time;
+    }
+
+    public Checkpointer getCheckpointer() {
+        return checkpointer;
+    }
+
+    /**
+     * Write checkpoints in the background after every checkpointer.getInterval() steps
+     * @param checkpointer checkpointer to hand the state to, or null to stop checkpointing
+     */
+    public void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Metrics getter
+     * @return per-phase timings and rates of this engine; add a MetricsListener to it to receive every step
+     */
+    public EngineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stop the worker threads. The engine cannot be updated afterwards.
+     */
+    public void shutdown() {
+        running = false;
+        if (particleTrace != null) {
+            try {
+                particleTrace.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        scheduler.shutdown();
+        metrics.unregister();
+    }
+
+    private void attach(Body body) {
+        if (store == null) {
+            store = new ParticleStore(body.getDimension());
+        }
+        store.add(body);
+        integrator.reset();
+        if (particleTrace != null && particleTrace.isTraced(body)) {
+            tracedBodies.add(body);
+        }
+    }
+
     public void update(Double timeStep) {
-        System.out.println("Timestep: " + timeStep);
-        phaser.bulkRegister(bodies.size() + 1);
-        bodies.forEach(body -> executorService.submit(() -> {
-            body.update(timeStep, bodies, phaser);
-        }));
-        phaser.arriveAndAwaitAdvance();
-        phaser.arriveAndDeregister();
+        long start = System.nanoTime();
+        long allocatedBefore = EngineMetrics.currentThreadAllocatedBytes();
+        long collisionNanos = 0;
+        meteredSolver.begin(forceSolver);
+        if (store != null) {
+            integrator.step(store, meteredSolver, scheduler, timeStep);
+            long integrated = System.nanoTime();
+            resolveCollisions();
+            collisionNanos = System.nanoTime() - integrated;
+        }
 
         frameCount++;
-    }
+        time += timeStep;
+        long stepNanos = System.nanoTime() - start;
+        long allocatedAfter = EngineMetrics.currentThreadAllocatedBytes();
+        long forceNanos = meteredSolver.getNanos();
+        metrics.recordStep(
+            frameCount,
+            bodies.size(),
+            stepNanos,
+            forceNanos,
+            meteredSolver.getBuildNanos() + collisionResolver.getBuildNanos(),
+            stepNanos - forceNanos - collisionNanos,
+            collisionNanos,
+            meteredSolver.getInteractionCount(),
+            allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore
+        );
 
-    private double calculateAvgFPS(long now) {
-        long elapsedTime = now - fpsStartTime;
-        if (elapsedTime == 0) return 0;
-        return (frameCount * 1000.0) / elapsedTime;
+        if (particleTrace != null) {
+            for (Body body : tracedBodies) {
+                particleTrace.record(frameCount, body);
+            }
+        }
+        if (checkpointer != null) {
+            checkpointer.afterStep(this);
+        }
+        if (logSnapshots && running && !bodies.isEmpty() && System.nanoTime() - nextSnapshotNanos >= 0) {
+            nextSnapshotNanos = System.nanoTime() + SNAPSHOT_INTERVAL_NANOS;
+            logSnapshot();
+        }
     }
 
-    public void draw(
-            GraphicsContext graphicsContext,
-            Color backgroundColor,
-            Integer canvasWidth,
-            Integer canvasHeight,
-            Double scale
-    ) {
-        if(!running) {
+    private void resolveCollisions() {
+        List<Body> absorbed = collisionResolver.resolve(store, collisionMode);
+        if (absorbed.isEmpty()) {
+            if (collisionResolver.hasMoved()) {
+                // elastic contacts pushed bodies apart, so accelerations cached at the old positions are stale
+                integrator.reset();
+            }
             return;
         }
-        graphicsContext.setFill(backgroundColor);
-        graphicsContext.fillRect(0, 0, canvasWidth, canvasHeight);
-
-        bodies.forEach(body -> {
-            Vector position = body.getPosition();
-            Double screenX = position.getValue(0) * scale;
-            Double screenY = canvasHeight - (position.getValue(1) * scale);
-            double screenRadius = body.getRadius() * scale;
-            System.out.println("Drawing body at " + screenX + ", " + screenY);
-
-            graphicsContext.setFill(body.getFillColor());
-            graphicsContext.fillOval(
-                    screenX - screenRadius,
-                    screenY - screenRadius,
-                    screenRadius * 2 ,
-                    screenRadius * 2
-            );
-
-            graphicsContext.setStroke(body.getBorderColor());
-            graphicsContext.setLineWidth(body.getBorderWeight());
-            graphicsContext.strokeOval(
-                    screenX - screenRadius,
-                    screenY - screenRadius,
-                    screenRadius * 2,
-                    screenRadius * 2
-            );
-        });
-    }
-}
\ No newline at end of file
+        Set<Body> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(absorbed);
+        bodies.removeIf(removed::contains);
+        tracedBodies.removeIf(removed::contains);
+        if (LOG.isLoggable(System.Logger.Level.DEBUG)) {
+            LOG.log(System.Logger.Level.DEBUG, Log.fields("event", "merge", "step", frameCount, "absorbed", absorbed.size(), "remaining", bodies.size()));
+        }
+        // slots were reshuffled and masses changed, so integrator history no longer applies
+        integrator.reset();
+    }
+}
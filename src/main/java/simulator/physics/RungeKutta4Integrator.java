@@ -0,0 +1,75 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * Classic fourth-order Runge-Kutta. Accurate per step but not symplectic, so energy
+ * drifts over long orbital runs; four force evaluations per step.
+ * Intermediate stages are evaluated by temporarily moving the store's positions, and
+ * the step buffers are reused between steps.
+ */
+public class RungeKutta4Integrator implements Integrator {
+    private double[] initialPositions = new double[0];
+    private double[] initialVelocities = new double[0];
+    private double[] stageVelocities = new double[0];
+    private double[] velocitySum = new double[0];
+    private double[] accelerationSum = new double[0];
+
+    private static final double[] STAGE = {0.5, 0.5, 1.0};
+    private static final double[] WEIGHT = {1, 2, 2, 1};
+
+    @Override
+    public void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep) {
+        int dimension = store.getDimension();
+        int length = store.size() * dimension;
+        ensureCapacity(length);
+        double[] positions = store.getPositions();
+        double[] velocities = store.getVelocities();
+        double[] accelerations = store.getAccelerations();
+
+        System.arraycopy(positions, 0, initialPositions, 0, length);
+        System.arraycopy(velocities, 0, initialVelocities, 0, length);
+        System.arraycopy(velocities, 0, stageVelocities, 0, length);
+        Arrays.fill(velocitySum, 0, length, 0);
+        Arrays.fill(accelerationSum, 0, length, 0);
+
+        for(int stage = 0; stage < WEIGHT.length; stage++) {
+            solver.computeAccelerations(store, scheduler);
+            double weight = WEIGHT[stage];
+            double next = stage < STAGE.length ? STAGE[stage] * timestep : 0;
+            boolean last = stage == WEIGHT.length - 1;
+            scheduler.forEachChunk(store.size(), (from, to) -> {
+                for(int i = from * dimension; i < to * dimension; i++) {
+                    // k_v = stage velocity, k_a = acceleration at the stage position
+                    velocitySum[i] += weight * stageVelocities[i];
+                    accelerationSum[i] += weight * accelerations[i];
+                    if(last) {
+                        positions[i] = initialPositions[i] + velocitySum[i] * timestep / 6;
+                        velocities[i] = initialVelocities[i] + accelerationSum[i] * timestep / 6;
+                    } else {
+                        positions[i] = initialPositions[i] + stageVelocities[i] * next;
+                        stageVelocities[i] = initialVelocities[i] + accelerations[i] * next;
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public int getForceEvaluationsPerStep() {
+        return WEIGHT.length;
+    }
+
+    private void ensureCapacity(int length) {
+        if(initialPositions.length >= length) {
+            return;
+        }
+        initialPositions = new double[length];
+        initialVelocities = new double[length];
+        stageVelocities = new double[length];
+        velocitySum = new double[length];
+        accelerationSum = new double[length];
+    }
+}
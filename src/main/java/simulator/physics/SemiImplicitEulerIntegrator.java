@@ -0,0 +1,22 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Semi-implicit (symplectic) Euler: v += a dt, then x += v dt with the new velocity.
+ * First order, one force evaluation per step.
+ */
+public class SemiImplicitEulerIntegrator implements Integrator {
+
+    @Override
+    public void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep) {
+        solver.computeAccelerations(store, scheduler);
+        Integrator.kick(store, scheduler, timestep);
+        Integrator.drift(store, scheduler, timestep);
+    }
+
+    @Override
+    public int getForceEvaluationsPerStep() {
+        return 1;
+    }
+}
@@ -0,0 +1,134 @@
+package simulator.physics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SimulationLoop class - advances a PhysicsEngine on its own thread at a fixed timestep.
+ * After every step the state is published to a SnapshotBuffer, so a renderer can draw
+ * the latest state at its own rate without ever touching the live store. While the
+ * engine is paused the loop idles. Changes to the engine, such as adding bodies, must
+ * be handed to runBetweenSteps once the loop has started.
+ */
+public class SimulationLoop {
+    // after falling this far behind the loop stops trying to catch up
+    private static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final PhysicsEngine engine;
+    private final double timestep;
+    private final double stepsPerSecond;
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean stopped = false;
+    private volatile long steps = 0;
+    private double time = 0;
+    private Thread thread;
+
+    /**
+     * Constructor
+     * @param engine the engine to advance; only the loop's thread may touch it once started
+     * @param timestep simulated time per step
+     * @param stepsPerSecond wall-clock step rate; 0 or less steps as fast as possible
+     */
+    public SimulationLoop(PhysicsEngine engine, double timestep, double stepsPerSecond) {
+        if(timestep <= 0) {
+            throw new IllegalArgumentException("Timestep must be positive (currently " + timestep + ")");
+        }
+        this.engine = engine;
+        this.timestep = timestep;
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    /**
+     * Start the simulation thread
+     */
+    public synchronized void start() {
+        if(thread != null) {
+            throw new IllegalStateException("Simulation loop already started");
+        }
+        snapshots.publish(engine.getStore(), steps, time);
+        thread = new Thread(this::run, "simulation-loop");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the simulation thread and wait for the step in progress to finish
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        stopped = true;
+        Thread running;
+        synchronized(this) {
+            running = thread;
+        }
+        if(running != null) {
+            running.join();
+        }
+    }
+
+    /**
+     * Run a change to the engine on the simulation thread before the next step
+     * @param change the change to apply
+     */
+    public void runBetweenSteps(Runnable change) {
+        pending.add(change);
+    }
+
+    /**
+     * Snapshots getter
+     * @return the buffer the loop publishes to after every step
+     */
+    public SnapshotBuffer getSnapshots() {
+        return this.snapshots;
+    }
+
+    /**
+     * Steps getter
+     * @return number of steps taken so far
+     */
+    public long getSteps() {
+        return this.steps;
+    }
+
+    private void run() {
+        long interval = stepsPerSecond > 0 ? (long) (1e9 / stepsPerSecond) : 0;
+        long next = System.nanoTime();
+        while(!stopped) {
+            Runnable change;
+            boolean changed = false;
+            while((change = pending.poll()) != null) {
+                change.run();
+                changed = true;
+            }
+            if(!engine.isRunning()) {
+                if(changed) {
+                    snapshots.publish(engine.getStore(), steps, time);
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+                next = System.nanoTime();
+                continue;
+            }
+            engine.update(timestep);
+            time += timestep;
+            steps++;
+            snapshots.publish(engine.getStore(), steps, time);
+
+            if(interval > 0) {
+                next += interval;
+                long now = System.nanoTime();
+                if(now - next > MAX_LAG_NANOS) {
+                    next = now;
+                }
+                while(next > now && !stopped) {
+                    LockSupport.parkNanos(next - now);
+                    now = System.nanoTime();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer handing StateSnapshots from one writer thread to one reader thread.
+ * The writer fills its back buffer and swaps it with the shared middle one; the reader swaps
+ * its front buffer with the middle one only when a newer snapshot is waiting. Neither side
+ * ever blocks or waits for the other, and the reader always sees the newest complete state.
+ */
+public class SnapshotBuffer {
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final StateSnapshot[] buffers = {new StateSnapshot(), new StateSnapshot(), new StateSnapshot()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    // owned by the writer
+    private int back = 0;
+    // owned by the reader
+    private int front = 2;
+
+    /**
+     * Capture and publish the current state. Writer thread only.
+     * @param store the state to copy, may be null for an empty engine
+     * @param step number of steps taken so far
+     * @param time simulated time so far
+     */
+    public void publish(ParticleStore store, long step, double time) {
+        buffers[back].capture(store, step, time, System.nanoTime());
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Publish state that does not live in a ParticleStore, such as a recorded frame. Writer thread only.
+     * @param dimension components per position
+     * @param count number of particles
+     * @param positions flat positions, at least count * dimension entries
+     * @param radii radii, at least count entries
+     * @param bodies identity and appearance of each particle, at least count entries
+     * @param step step number of the state
+     * @param time simulated time of the state
+     */
+    public void publish(int dimension, int count, double[] positions, double[] radii, Body[] bodies, long step, double time) {
+        buffers[back].capture(dimension, count, positions, radii, bodies, step, time, System.nanoTime());
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * Check for a snapshot newer than the one last acquired. Reader thread only.
+     * @return true if acquire() would return a new snapshot
+     */
+    public boolean hasFresh() {
+        return (middle.get() & FRESH) != 0;
+    }
+
+    /**
+     * Take the newest snapshot. Reader thread only. The returned snapshot stays valid until
+     * the next call that picks up a fresher one.
+     * @return the newest published snapshot, or the previous one if nothing new was published
+     */
+    public StateSnapshot acquire() {
+        if(hasFresh()) {
+            front = middle.getAndSet(front) & INDEX;
+        }
+        return buffers[front];
+    }
+}
@@ -0,0 +1,103 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+import simulator.models.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Accuracy of an approximate ForceSolver, measured against the direct sum in
+ * Body.getNetGravitationalForce on a random sample of particles.
+ */
+public class SolverAccuracyReport {
+    private final int samples;
+    private final double meanRelativeError;
+    private final double rmsRelativeError;
+    private final double maxRelativeError;
+
+    private SolverAccuracyReport(int samples, double meanRelativeError, double rmsRelativeError, double maxRelativeError) {
+        this.samples = samples;
+        this.meanRelativeError = meanRelativeError;
+        this.rmsRelativeError = rmsRelativeError;
+        this.maxRelativeError = maxRelativeError;
+    }
+
+    /**
+     * Run the solver once and compare sampled particles with the exact direct sum.
+     * The store's accelerations are restored afterwards, so this is safe between steps.
+     * Every particle in the store must have a Body view.
+     * @param solver the solver to evaluate
+     * @param store the particle state to evaluate on
+     * @param scheduler scheduler the solver runs on
+     * @param samples number of particles to compare (capped at the store size)
+     * @param seed seed for choosing the sample
+     * @return the error statistics, relative to the magnitude of each exact acceleration
+     */
+    public static SolverAccuracyReport measure(ForceSolver solver, ParticleStore store, StepScheduler scheduler,
+                                               int samples, long seed) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        samples = Math.min(samples, size);
+        if(samples <= 0) {
+            return new SolverAccuracyReport(0, 0, 0, 0);
+        }
+
+        double[] saved = store.getAccelerations().clone();
+        solver.computeAccelerations(store, scheduler);
+        double[] approximate = store.getAccelerations().clone();
+        System.arraycopy(saved, 0, store.getAccelerations(), 0, saved.length);
+
+        List<Body> bodies = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            bodies.add(store.getView(i));
+        }
+
+        Random random = new Random(seed);
+        Vector exact = Vector.zero(dimension);
+        Vector scratch = Vector.zero(dimension);
+        double sum = 0;
+        double sumSquares = 0;
+        double max = 0;
+        for(int sample = 0; sample < samples; sample++) {
+            int index = samples == size ? sample : random.nextInt(size);
+            Body body = bodies.get(index);
+            body.getNetGravitationalForce(bodies, exact, scratch).scaleInPlace(1.0 / body.getMass());
+            double errorSquared = 0;
+            for(int dim = 0; dim < dimension; dim++) {
+                double delta = approximate[index * dimension + dim] - exact.getValue(dim);
+                errorSquared += delta * delta;
+            }
+            double magnitude = exact.getMagnitude();
+            double error = magnitude > 0 ? Math.sqrt(errorSquared) / magnitude : Math.sqrt(errorSquared);
+            sum += error;
+            sumSquares += error * error;
+            max = Math.max(max, error);
+        }
+        return new SolverAccuracyReport(samples, sum / samples, Math.sqrt(sumSquares / samples), max);
+    }
+
+    public int getSamples() {
+        return this.samples;
+    }
+
+    public double getMeanRelativeError() {
+        return this.meanRelativeError;
+    }
+
+    public double getRmsRelativeError() {
+        return this.rmsRelativeError;
+    }
+
+    public double getMaxRelativeError() {
+        return this.maxRelativeError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d samples: mean %.3e, rms %.3e, max %.3e relative error",
+                samples, meanRelativeError, rmsRelativeError, maxRelativeError);
+    }
+}
@@ -0,0 +1,199 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * Uniform spatial hash for short-range queries such as contact detection.
+ * Space is cut into cubic cells of width twice the largest radius, so two particles can only
+ * touch if they sit in the same or neighbouring cells. Cells are hashed into a power-of-two
+ * table and particles are counting-sorted by bucket, giving an O(N) rebuild into arrays that
+ * are reused between steps. When no particle has changed cell since the last build the sort
+ * is skipped entirely.
+ */
+public class SpatialHashGrid {
+    private static final int COORDINATE_BITS = 21;
+    private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+    private static final long COORDINATE_BIAS = 1L << (COORDINATE_BITS - 1);
+
+    /**
+     * Callback for each candidate pair of a query
+     */
+    @FunctionalInterface
+    public interface PairVisitor {
+        void visit(int i, int j);
+    }
+
+    private int dimension;
+    private int size;
+    private double cellSize;
+    private int tableMask;
+    private long[] cellKey = new long[0];
+    private int[] bucketOf = new int[0];
+    private int[] bucketStart = new int[0];
+    private int[] sorted = new int[0];
+    private final int[] neighbourBuckets = new int[27];
+    private final long[] cell = new long[3];
+    private long rebuilds = 0;
+
+    /**
+     * Bin every particle of the store by its current position
+     * @param store the particle state to index
+     */
+    public void build(ParticleStore store) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        if(dimension > 3) {
+            throw new IllegalArgumentException("Spatial hash supports up to 3 dimensions (currently " + dimension + ")");
+        }
+        double[] radii = store.getRadii();
+        double maxRadius = 0;
+        for(int i = 0; i < size; i++) {
+            maxRadius = Math.max(maxRadius, radii[i]);
+        }
+        double cellSize = 2 * maxRadius;
+        boolean layoutChanged = size != this.size || dimension != this.dimension || cellSize != this.cellSize;
+        this.size = size;
+        this.dimension = dimension;
+        this.cellSize = cellSize;
+        if(size == 0 || cellSize == 0) {
+            return;
+        }
+        if(cellKey.length < size) {
+            cellKey = new long[size];
+            bucketOf = new int[size];
+            sorted = new int[size];
+        }
+        int tableSize = Integer.highestOneBit(Math.max(1, size - 1)) << 2;
+        if(tableSize - 1 != tableMask) {
+            tableMask = tableSize - 1;
+            bucketStart = new int[tableSize + 1];
+            layoutChanged = true;
+        }
+
+        double[] positions = store.getPositions();
+        boolean moved = layoutChanged;
+        for(int i = 0; i < size; i++) {
+            long key = 0;
+            for(int dim = 0; dim < dimension; dim++) {
+                long coordinate = (long) Math.floor(positions[i * dimension + dim] / cellSize);
+                key |= ((coordinate + COORDINATE_BIAS) & COORDINATE_MASK) << (dim * COORDINATE_BITS);
+            }
+            if(key != cellKey[i]) {
+                cellKey[i] = key;
+                moved = true;
+            }
+        }
+        if(!moved) {
+            return;
+        }
+
+        // counting sort by bucket
+        Arrays.fill(bucketStart, 0);
+        for(int i = 0; i < size; i++) {
+            bucketOf[i] = bucket(cellKey[i]);
+            bucketStart[bucketOf[i] + 1]++;
+        }
+        for(int b = 0; b < tableSize; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        for(int i = size - 1; i >= 0; i--) {
+            sorted[--bucketStart[bucketOf[i] + 1]] = i;
+        }
+        // the decrements above shifted each start one bucket up; restore the exclusive prefix sums
+        System.arraycopy(bucketStart, 1, bucketStart, 0, tableSize);
+        bucketStart[tableSize] = size;
+        rebuilds++;
+    }
+
+    /**
+     * Visit every pair (i, j), i < j, whose spheres overlap: |x_i - x_j| < r_i + r_j.
+     * The grid must have been built from the same store and positions.
+     * @param store the particle state the grid was built from
+     * @param visitor callback invoked once per overlapping pair
+     */
+    public void forEachContact(ParticleStore store, PairVisitor visitor) {
+        if(size == 0 || cellSize == 0) {
+            return;
+        }
+        double[] positions = store.getPositions();
+        double[] radii = store.getRadii();
+        for(int i = 0; i < size; i++) {
+            int offset = i * dimension;
+            int buckets = neighbourBuckets(cellKey[i]);
+            for(int n = 0; n < buckets; n++) {
+                int b = neighbourBuckets[n];
+                for(int slot = bucketStart[b]; slot < bucketStart[b + 1]; slot++) {
+                    int j = sorted[slot];
+                    if(j <= i) {
+                        continue;
+                    }
+                    double distanceSquared = 0;
+                    for(int dim = 0; dim < dimension; dim++) {
+                        double delta = positions[j * dimension + dim] - positions[offset + dim];
+                        distanceSquared += delta * delta;
+                    }
+                    double reach = radii[i] + radii[j];
+                    if(distanceSquared < reach * reach) {
+                        visitor.visit(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Cell size getter
+     * @return the width of a cell in the most recent build, twice the largest radius
+     */
+    public double getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Rebuild count getter
+     * @return how many builds actually re-sorted the particles; builds where no particle changed cell are not counted
+     */
+    public long getRebuilds() {
+        return this.rebuilds;
+    }
+
+    /**
+     * Private helper to collect the distinct buckets of a cell and its 3^d - 1 neighbours;
+     * distinct cells may hash together, and each bucket must be scanned only once
+     */
+    private int neighbourBuckets(long key) {
+        for(int dim = 0; dim < dimension; dim++) {
+            cell[dim] = (key >>> (dim * COORDINATE_BITS)) & COORDINATE_MASK;
+        }
+        int neighbours = 1;
+        for(int dim = 0; dim < dimension; dim++) {
+            neighbours *= 3;
+        }
+        int count = 0;
+        for(int n = 0; n < neighbours; n++) {
+            long neighbour = 0;
+            int code = n;
+            for(int dim = 0; dim < dimension; dim++) {
+                long coordinate = (cell[dim] + code % 3 - 1) & COORDINATE_MASK;
+                neighbour |= coordinate << (dim * COORDINATE_BITS);
+                code /= 3;
+            }
+            int b = bucket(neighbour);
+            boolean seen = false;
+            for(int k = 0; k < count && !seen; k++) {
+                seen = neighbourBuckets[k] == b;
+            }
+            if(!seen) {
+                neighbourBuckets[count++] = b;
+            }
+        }
+        return count;
+    }
+
+    private int bucket(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+}
@@ -0,0 +1,149 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * StateSnapshot class - a copy of the particle state at the end of one step.
+ * Snapshots are pooled by SnapshotBuffer: while a reader holds one it is never written,
+ * and its arrays are reused once the reader hands it back.
+ */
+public class StateSnapshot {
+    private long step;
+    private double time;
+    private long publishedNanos;
+    private int dimension;
+    private int count;
+    private double[] positions = new double[0];
+    private double[] radii = new double[0];
+    private Body[] bodies = new Body[0];
+
+    /**
+     * Copy the store's current state into this snapshot, growing the arrays if needed
+     * @param store the state to copy, may be null for an empty engine
+     * @param step number of steps taken so far
+     * @param time simulated time so far
+     * @param publishedNanos System.nanoTime() at which the state was captured
+     */
+    void capture(ParticleStore store, long step, double time, long publishedNanos) {
+        this.step = step;
+        this.time = time;
+        this.publishedNanos = publishedNanos;
+        if(store == null) {
+            this.count = 0;
+            return;
+        }
+        this.dimension = store.getDimension();
+        this.count = store.size();
+        int length = count * dimension;
+        if(positions.length < length) {
+            positions = new double[length];
+        }
+        if(radii.length < count) {
+            radii = new double[count];
+            bodies = new Body[count];
+        }
+        System.arraycopy(store.getPositions(), 0, positions, 0, length);
+        System.arraycopy(store.getRadii(), 0, radii, 0, count);
+        for(int i = 0; i < count; i++) {
+            bodies[i] = store.getView(i);
+        }
+        // drop references to removed bodies so they can be collected
+        Arrays.fill(bodies, count, bodies.length, null);
+    }
+
+    /**
+     * Copy state that does not live in a ParticleStore, such as a recorded frame, into this snapshot
+     * @param dimension components per position
+     * @param count number of particles
+     * @param positions flat positions, at least count * dimension entries
+     * @param radii radii, at least count entries
+     * @param bodies identity and appearance of each particle, at least count entries
+     * @param step step number of the state
+     * @param time simulated time of the state
+     * @param publishedNanos System.nanoTime() at which the state was captured
+     */
+    void capture(int dimension, int count, double[] positions, double[] radii, Body[] bodies, long step, double time, long publishedNanos) {
+        this.step = step;
+        this.time = time;
+        this.publishedNanos = publishedNanos;
+        this.dimension = dimension;
+        this.count = count;
+        int length = count * dimension;
+        if(this.positions.length < length) {
+            this.positions = new double[length];
+        }
+        if(this.radii.length < count) {
+            this.radii = new double[count];
+            this.bodies = new Body[count];
+        }
+        System.arraycopy(positions, 0, this.positions, 0, length);
+        System.arraycopy(radii, 0, this.radii, 0, count);
+        System.arraycopy(bodies, 0, this.bodies, 0, count);
+        Arrays.fill(this.bodies, count, this.bodies.length, null);
+    }
+
+    /**
+     * Step getter
+     * @return number of engine steps taken when the snapshot was captured
+     */
+    public long getStep() {
+        return this.step;
+    }
+
+    /**
+     * Time getter
+     * @return simulated time when the snapshot was captured
+     */
+    public double getTime() {
+        return this.time;
+    }
+
+    /**
+     * Published time getter
+     * @return System.nanoTime() at which the snapshot was captured
+     */
+    public long getPublishedNanos() {
+        return this.publishedNanos;
+    }
+
+    public int getDimension() {
+        return this.dimension;
+    }
+
+    /**
+     * Count getter
+     * @return number of particles in the snapshot
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * Positions getter
+     * @return flat positions, component d of particle i at i * dimension + d; do not modify
+     */
+    public double[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * Radii getter
+     * @return one radius per particle; do not modify
+     */
+    public double[] getRadii() {
+        return this.radii;
+    }
+
+    /**
+     * Body getter - the body's identity and appearance; read its position from the snapshot,
+     * not from the body, which keeps moving on the simulation thread
+     * @param index slot of the particle in this snapshot
+     * @return the body occupying that slot when the snapshot was captured
+     */
+    public Body getBody(int index) {
+        return this.bodies[index];
+    }
+}
@@ -0,0 +1,122 @@
+package simulator.physics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the phases of a simulation step in parallel over a fixed ForkJoinPool.
+ * A particle range is cut into contiguous chunks small enough to stay cache-resident,
+ * and chunks are split recursively across the pool so that no per-particle tasks are created.
+ * Each call returns only once every chunk has finished, which makes a call a phase barrier.
+ */
+public class StepScheduler {
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /**
+     * Range task - processes particles [from, to)
+     */
+    @FunctionalInterface
+    public interface RangeTask {
+        void run(int from, int to);
+    }
+
+    public StepScheduler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     * @param parallelism number of worker threads
+     */
+    public StepScheduler(int parallelism) {
+        this(parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param parallelism number of worker threads
+     * @param chunkSize number of particles processed by one task
+     */
+    public StepScheduler(int parallelism, int chunkSize) {
+        if(parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive (currently " + parallelism + ")");
+        }
+        if(chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive (currently " + chunkSize + ")");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = chunkSize;
+    }
+
+    public int getParallelism() {
+        return this.pool.getParallelism();
+    }
+
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * Run a task over [0, size) in chunks of the default chunk size and wait for all of them
+     * @param size number of items to process
+     * @param task the work for one chunk
+     */
+    public void forEachChunk(int size, RangeTask task) {
+        forEachChunk(size, this.chunkSize, task);
+    }
+
+    /**
+     * Run a task over [0, size) in chunks of the given size and wait for all of them
+     * @param size number of items to process
+     * @param grain number of items in one chunk
+     * @param task the work for one chunk
+     */
+    public void forEachChunk(int size, int grain, RangeTask task) {
+        if(size <= 0) {
+            return;
+        }
+        if(size <= grain || getParallelism() == 1) {
+            task.run(0, size);
+            return;
+        }
+        this.pool.invoke(new ChunkAction(task, 0, size, grain));
+    }
+
+    /**
+     * Stop the worker threads. The scheduler cannot be used afterwards.
+     */
+    public void shutdown() {
+        this.pool.shutdown();
+    }
+
+    // fork/join tasks are never serialized
+    @SuppressWarnings("serial")
+    private static class ChunkAction extends RecursiveAction {
+        private final RangeTask task;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        ChunkAction(RangeTask task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= grain) {
+                task.run(from, to);
+                return;
+            }
+            // split on a chunk boundary so every leaf task covers whole chunks
+            int chunks = (to - from + grain - 1) / grain;
+            int middle = from + (chunks / 2) * grain;
+            invokeAll(new ChunkAction(task, from, middle, grain), new ChunkAction(task, middle, to, grain));
+        }
+    }
+}
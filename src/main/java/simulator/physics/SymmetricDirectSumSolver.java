@@ -0,0 +1,124 @@
+package simulator.physics;
+
+import simulator.models.Body;
+import simulator.models.ParticleStore;
+
+import java.util.Arrays;
+
+/**
+ * Exact O(N^2) gravity solver that evaluates each pair once.
+ * The pull on i from j and the pull on j from i share one displacement and one division
+ * (Newton's third law), halving the work of DirectSumSolver. Rows of the pair triangle are
+ * split into blocks of roughly equal pair counts; each block accumulates into its own buffer,
+ * and the buffers are summed once all blocks finish, so no two threads write the same slot.
+ */
+public class SymmetricDirectSumSolver implements ForceSolver {
+    private double[][] buffers = new double[0][];
+    private int[] blockStart = new int[0];
+    private long interactions = 0;
+
+    @Override
+    public void computeAccelerations(ParticleStore store, StepScheduler scheduler) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        int length = size * dimension;
+        int blocks = Math.max(1, Math.min(scheduler.getParallelism(), size / 2));
+        prepare(blocks, length);
+        partition(size, blocks);
+
+        scheduler.forEachChunk(blocks, 1, (from, to) -> {
+            for(int block = from; block < to; block++) {
+                double[] buffer = buffers[block];
+                Arrays.fill(buffer, 0, length, 0);
+                accumulate(store, blockStart[block], blockStart[block + 1], buffer);
+            }
+        });
+
+        double[] accelerations = store.getAccelerations();
+        scheduler.forEachChunk(length, (from, to) -> {
+            System.arraycopy(buffers[0], from, accelerations, from, to - from);
+            for(int block = 1; block < blocks; block++) {
+                double[] buffer = buffers[block];
+                for(int i = from; i < to; i++) {
+                    accelerations[i] += buffer[i];
+                }
+            }
+        });
+        // each pair is evaluated once and applied to both particles
+        this.interactions = (long) size * Math.max(0, size - 1) / 2;
+    }
+
+    @Override
+    public long getInteractionCount() {
+        return this.interactions;
+    }
+
+    /**
+     * Accumulate every pair (i, j) with i in [from, to) and j > i into a buffer
+     * @param store the particle state to evaluate
+     * @param from first row of the pair triangle
+     * @param to one past the last row
+     * @param buffer flat acceleration buffer owned by the calling block
+     */
+    void accumulate(ParticleStore store, int from, int to, double[] buffer) {
+        int size = store.size();
+        int dimension = store.getDimension();
+        double[] positions = store.getPositions();
+        double[] masses = store.getMasses();
+        double G = Body.getGravitationalConstant();
+        double[] delta = new double[dimension];
+        for(int i = from; i < to; i++) {
+            int offset = i * dimension;
+            double massI = masses[i];
+            for(int j = i + 1; j < size; j++) {
+                int otherOffset = j * dimension;
+                double distanceSquared = 0;
+                for(int dim = 0; dim < dimension; dim++) {
+                    delta[dim] = positions[otherOffset + dim] - positions[offset + dim];
+                    distanceSquared += delta[dim] * delta[dim];
+                }
+                // |F| = G m1 m2 / r, so each side accelerates by delta * G m_other / r^2
+                double scale = G / distanceSquared;
+                double towardsJ = scale * masses[j];
+                double towardsI = scale * massI;
+                for(int dim = 0; dim < dimension; dim++) {
+                    buffer[offset + dim] += towardsJ * delta[dim];
+                    buffer[otherOffset + dim] -= towardsI * delta[dim];
+                }
+            }
+        }
+    }
+
+    private void prepare(int blocks, int length) {
+        if(buffers.length < blocks) {
+            buffers = Arrays.copyOf(buffers, blocks);
+        }
+        for(int block = 0; block < blocks; block++) {
+            if(buffers[block] == null || buffers[block].length < length) {
+                buffers[block] = new double[length];
+            }
+        }
+        if(blockStart.length < blocks + 1) {
+            blockStart = new int[blocks + 1];
+        }
+    }
+
+    /**
+     * Private helper to cut rows into blocks of near-equal pair counts; row i owns size - 1 - i pairs
+     */
+    private void partition(int size, int blocks) {
+        long total = (long) size * (size - 1) / 2;
+        long pairs = 0;
+        int block = 1;
+        blockStart[0] = 0;
+        for(int row = 0; row < size && block < blocks; row++) {
+            pairs += size - 1 - row;
+            while(block < blocks && pairs * blocks >= total * block) {
+                blockStart[block++] = row + 1;
+            }
+        }
+        while(block <= blocks) {
+            blockStart[block++] = size;
+        }
+    }
+}
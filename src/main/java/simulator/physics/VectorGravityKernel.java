@@ -0,0 +1,100 @@
+package simulator.physics;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD direct-sum gravity kernels built on the JDK Vector API.
+ * Operates on per-component coordinate columns (x[], y[], z[]) and G-scaled masses so that
+ * one vector load covers several source particles. Zero-distance lanes, which include the
+ * particle itself, are masked out.
+ * Only referenced once DirectSumSolver has confirmed jdk.incubator.vector is present.
+ */
+final class VectorGravityKernel {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorGravityKernel() {}
+
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    static void accumulate2D(double[] x, double[] y, double[] gm, int size, int from, int to, double[] accelerations) {
+        int upper = SPECIES.loopBound(size);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        for(int i = from; i < to; i++) {
+            double xi = x[i], yi = y[i];
+            DoubleVector vxi = DoubleVector.broadcast(SPECIES, xi);
+            DoubleVector vyi = DoubleVector.broadcast(SPECIES, yi);
+            DoubleVector ax = zero;
+            DoubleVector ay = zero;
+            int j = 0;
+            for(; j < upper; j += SPECIES.length()) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vxi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vyi);
+                DoubleVector distanceSquared = dx.fma(dx, dy.mul(dy));
+                VectorMask<Double> other = distanceSquared.compare(VectorOperators.NE, 0.0);
+                DoubleVector scale = zero.blend(DoubleVector.fromArray(SPECIES, gm, j).div(distanceSquared), other);
+                ax = scale.fma(dx, ax);
+                ay = scale.fma(dy, ay);
+            }
+            double sumX = ax.reduceLanes(VectorOperators.ADD);
+            double sumY = ay.reduceLanes(VectorOperators.ADD);
+            for(; j < size; j++) {
+                double dx = x[j] - xi, dy = y[j] - yi;
+                double distanceSquared = dx * dx + dy * dy;
+                if(distanceSquared != 0) {
+                    double scale = gm[j] / distanceSquared;
+                    sumX += scale * dx;
+                    sumY += scale * dy;
+                }
+            }
+            accelerations[2 * i] = sumX;
+            accelerations[2 * i + 1] = sumY;
+        }
+    }
+
+    static void accumulate3D(double[] x, double[] y, double[] z, double[] gm, int size, int from, int to, double[] accelerations) {
+        int upper = SPECIES.loopBound(size);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        for(int i = from; i < to; i++) {
+            double xi = x[i], yi = y[i], zi = z[i];
+            DoubleVector vxi = DoubleVector.broadcast(SPECIES, xi);
+            DoubleVector vyi = DoubleVector.broadcast(SPECIES, yi);
+            DoubleVector vzi = DoubleVector.broadcast(SPECIES, zi);
+            DoubleVector ax = zero;
+            DoubleVector ay = zero;
+            DoubleVector az = zero;
+            int j = 0;
+            for(; j < upper; j += SPECIES.length()) {
+                DoubleVector dx = DoubleVector.fromArray(SPECIES, x, j).sub(vxi);
+                DoubleVector dy = DoubleVector.fromArray(SPECIES, y, j).sub(vyi);
+                DoubleVector dz = DoubleVector.fromArray(SPECIES, z, j).sub(vzi);
+                DoubleVector distanceSquared = dx.fma(dx, dy.fma(dy, dz.mul(dz)));
+                VectorMask<Double> other = distanceSquared.compare(VectorOperators.NE, 0.0);
+                DoubleVector scale = zero.blend(DoubleVector.fromArray(SPECIES, gm, j).div(distanceSquared), other);
+                ax = scale.fma(dx, ax);
+                ay = scale.fma(dy, ay);
+                az = scale.fma(dz, az);
+            }
+            double sumX = ax.reduceLanes(VectorOperators.ADD);
+            double sumY = ay.reduceLanes(VectorOperators.ADD);
+            double sumZ = az.reduceLanes(VectorOperators.ADD);
+            for(; j < size; j++) {
+                double dx = x[j] - xi, dy = y[j] - yi, dz = z[j] - zi;
+                double distanceSquared = dx * dx + dy * dy + dz * dz;
+                if(distanceSquared != 0) {
+                    double scale = gm[j] / distanceSquared;
+                    sumX += scale * dx;
+                    sumY += scale * dy;
+                    sumZ += scale * dz;
+                }
+            }
+            accelerations[3 * i] = sumX;
+            accelerations[3 * i + 1] = sumY;
+            accelerations[3 * i + 2] = sumZ;
+        }
+    }
+}
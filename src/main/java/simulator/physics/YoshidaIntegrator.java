@@ -0,0 +1,30 @@
+package simulator.physics;
+
+import simulator.models.ParticleStore;
+
+/**
+ * Fourth-order symplectic integrator of Yoshida (1990): three leapfrog sub-steps with
+ * weights w1, w0, w1 where w1 = 1 / (2 - 2^(1/3)) and w0 = 1 - 2 w1.
+ * Written in drift-kick form, three force evaluations per step.
+ */
+public class YoshidaIntegrator implements Integrator {
+    private static final double W1 = 1 / (2 - Math.cbrt(2));
+    private static final double W0 = 1 - 2 * W1;
+    private static final double[] DRIFT = {W1 / 2, (W0 + W1) / 2, (W0 + W1) / 2, W1 / 2};
+    private static final double[] KICK = {W1, W0, W1};
+
+    @Override
+    public void step(ParticleStore store, ForceSolver solver, StepScheduler scheduler, double timestep) {
+        for(int stage = 0; stage < KICK.length; stage++) {
+            Integrator.drift(store, scheduler, DRIFT[stage] * timestep);
+            solver.computeAccelerations(store, scheduler);
+            Integrator.kick(store, scheduler, KICK[stage] * timestep);
+        }
+        Integrator.drift(store, scheduler, DRIFT[KICK.length] * timestep);
+    }
+
+    @Override
+    public int getForceEvaluationsPerStep() {
+        return KICK.length;
+    }
+}
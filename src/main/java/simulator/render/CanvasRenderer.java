@@ -0,0 +1,68 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import simulator.logging.Log;
+import simulator.models.Body;
+import simulator.models.DrawableBody;
+import simulator.physics.StateSnapshot;
+
+/**
+ * CanvasRenderer class - draws a frame's bodies as outlined circles on a JavaFX canvas.
+ * Bodies that are not DrawableBody instances are drawn white without a border.
+ * Every body costs several canvas calls, so this suits up to a few thousand bodies;
+ * PointSpriteRenderer scales further.
+ */
+public class CanvasRenderer implements Renderer {
+    private static final System.Logger LOG = Log.get(CanvasRenderer.class);
+
+    @Override
+    public void draw(
+            FrameInterpolator frame,
+            GraphicsContext graphicsContext,
+            Color backgroundColor,
+            Integer canvasWidth,
+            Integer canvasHeight,
+            Double scale
+    ) {
+        graphicsContext.setFill(backgroundColor);
+        graphicsContext.fillRect(0, 0, canvasWidth, canvasHeight);
+
+        StateSnapshot snapshot = frame.getSnapshot();
+        double[] positions = frame.getPositions();
+        int dimension = snapshot.getDimension();
+        for(int i = 0; i < snapshot.getCount(); i++) {
+            Body body = snapshot.getBody(i);
+            Double screenX = positions[i * dimension] * scale;
+            Double screenY = canvasHeight - (positions[i * dimension + 1] * scale);
+            double screenRadius = snapshot.getRadii()[i] * scale;
+            if(Log.HOT_PATH && LOG.isLoggable(System.Logger.Level.TRACE)) {
+                LOG.log(System.Logger.Level.TRACE, Log.fields("event", "draw", "id", body.getId(), "x", screenX, "y", screenY));
+            }
+
+            graphicsContext.setFill(fillColorOf(body));
+            graphicsContext.fillOval(
+                    screenX - screenRadius,
+                    screenY - screenRadius,
+                    screenRadius * 2 ,
+                    screenRadius * 2
+            );
+
+            if(body instanceof DrawableBody) {
+                DrawableBody drawable = (DrawableBody) body;
+                graphicsContext.setStroke(drawable.getBorderColor());
+                graphicsContext.setLineWidth(drawable.getBorderWeight());
+                graphicsContext.strokeOval(
+                        screenX - screenRadius,
+                        screenY - screenRadius,
+                        screenRadius * 2,
+                        screenRadius * 2
+                );
+            }
+        }
+    }
+
+    private static Color fillColorOf(Body body) {
+        return body instanceof DrawableBody ? ((DrawableBody) body).getFillColor() : Color.WHITE;
+    }
+}
@@ -0,0 +1,177 @@
+package simulator.render;
+
+import simulator.physics.StepScheduler;
+
+import java.util.Arrays;
+
+/**
+ * DensityMap class - renders particles as a tone-mapped screen-space histogram.
+ * Each particle adds one count to the cell under its center, so the cost is one pass over
+ * the particles plus one pass over the cells, whatever the zoom. Particle blocks accumulate
+ * into private histograms in parallel; these are summed and tone-mapped in parallel over
+ * cell ranges, with brightness following log(1 + count) relative to the densest cell.
+ * Has no JavaFX dependency.
+ */
+public class DensityMap {
+    private static final int LEVELS = 256;
+    private static final int COLOR_CACHE = 4096;
+    // magma-like ramp from the background through purple and red to pale yellow
+    private static final int[] RAMP = {0x3B0F70, 0x8C2981, 0xDE4968, 0xFE9F6D, 0xFCFDBF};
+
+    private final StepScheduler scheduler;
+    private final int cellSize;
+
+    private float[][] partials = new float[0][];
+    private float[] blockMax = new float[0];
+    private int[] palette = new int[0];
+    private final int[] colorOfCount = new int[COLOR_CACHE];
+    private int paletteBackground;
+
+    /**
+     * Constructor
+     * @param scheduler scheduler that runs accumulation and tone mapping
+     * @param cellSize width and height of one histogram cell in pixels; larger cells are smoother and cheaper
+     */
+    public DensityMap(StepScheduler scheduler, int cellSize) {
+        if(cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive (currently " + cellSize + ")");
+        }
+        this.scheduler = scheduler;
+        this.cellSize = cellSize;
+    }
+
+    public int getCellSize() {
+        return this.cellSize;
+    }
+
+    /**
+     * Render one frame
+     * @param pixels width * height pixels, row-major, premultiplied ARGB
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param background premultiplied ARGB of empty cells
+     * @param positions flat world positions, component d of particle i at i * dimension + d
+     * @param dimension components per position; only the first two are used
+     * @param count number of particles
+     * @param scale pixels per world unit; world y points up, screen y down
+     */
+    public void render(int[] pixels, int width, int height, int background,
+                       double[] positions, int dimension, int count, double scale) {
+        int columns = (width + cellSize - 1) / cellSize;
+        int rows = (height + cellSize - 1) / cellSize;
+        int cells = columns * rows;
+        int blocks = Math.max(1, Math.min(scheduler.getParallelism(), count / scheduler.getChunkSize()));
+        prepare(blocks, cells, background);
+        int blockSize = (count + blocks - 1) / blocks;
+
+        scheduler.forEachChunk(blocks, 1, (fromBlock, toBlock) -> {
+            for(int block = fromBlock; block < toBlock; block++) {
+                float[] histogram = partials[block];
+                Arrays.fill(histogram, 0, cells, 0);
+                int end = Math.min(count, (block + 1) * blockSize);
+                for(int i = block * blockSize; i < end; i++) {
+                    double x = positions[i * dimension] * scale;
+                    double y = height - positions[i * dimension + 1] * scale;
+                    if(x < 0 || x >= width || y < 0 || y >= height) {
+                        continue;
+                    }
+                    histogram[(int) (y / cellSize) * columns + (int) (x / cellSize)]++;
+                }
+            }
+        });
+
+        // sum the partial histograms into the first one and find the densest cell
+        int ranges = scheduler.getParallelism();
+        int rangeSize = (cells + ranges - 1) / ranges;
+        if(blockMax.length < ranges) {
+            blockMax = new float[ranges];
+        }
+        scheduler.forEachChunk(ranges, 1, (fromRange, toRange) -> {
+            for(int range = fromRange; range < toRange; range++) {
+                float max = 0;
+                float[] total = partials[0];
+                int end = Math.min(cells, (range + 1) * rangeSize);
+                for(int cell = range * rangeSize; cell < end; cell++) {
+                    float sum = total[cell];
+                    for(int block = 1; block < blocks; block++) {
+                        sum += partials[block][cell];
+                    }
+                    total[cell] = sum;
+                    max = Math.max(max, sum);
+                }
+                blockMax[range] = max;
+            }
+        });
+        float max = 0;
+        for(int range = 0; range < ranges; range++) {
+            max = Math.max(max, blockMax[range]);
+        }
+        double levelScale = max > 0 ? (LEVELS - 1) / Math.log1p(max) : 0;
+        // counts are whole numbers, so most cells can look their color up instead of taking a log
+        int cached = (int) Math.min(max, COLOR_CACHE - 1);
+        colorOfCount[0] = background;
+        for(int n = 1; n <= cached; n++) {
+            colorOfCount[n] = palette[Math.max(1, (int) (Math.log1p(n) * levelScale))];
+        }
+
+        // tone map one histogram row of cells at a time: fill the first pixel row, copy it down
+        scheduler.forEachChunk(rows, 1, (fromRow, toRow) -> {
+            float[] total = partials[0];
+            for(int row = fromRow; row < toRow; row++) {
+                int top = row * cellSize;
+                int bottom = Math.min(height, top + cellSize);
+                int offset = top * width;
+                for(int column = 0; column < columns; column++) {
+                    int density = (int) total[row * columns + column];
+                    int color = density <= cached ? colorOfCount[density] : palette[Math.max(1, (int) (Math.log1p(density) * levelScale))];
+                    int right = Math.min(width, (column + 1) * cellSize);
+                    for(int x = column * cellSize; x < right; x++) {
+                        pixels[offset + x] = color;
+                    }
+                }
+                for(int y = top + 1; y < bottom; y++) {
+                    System.arraycopy(pixels, offset, pixels, y * width, width);
+                }
+            }
+        });
+    }
+
+    private void prepare(int blocks, int cells, int background) {
+        if(partials.length < blocks) {
+            partials = Arrays.copyOf(partials, blocks);
+        }
+        for(int block = 0; block < blocks; block++) {
+            if(partials[block] == null || partials[block].length < cells) {
+                partials[block] = new float[cells];
+            }
+        }
+        if(palette.length != LEVELS || paletteBackground != background) {
+            palette = palette(background);
+            paletteBackground = background;
+        }
+    }
+
+    /**
+     * Private helper to build the tone-mapping palette: level 0 is the background, then the
+     * ramp's colors at even spacing with linear blends between them
+     */
+    private static int[] palette(int background) {
+        int[] stops = new int[RAMP.length + 1];
+        stops[0] = background & 0xFFFFFF;
+        System.arraycopy(RAMP, 0, stops, 1, RAMP.length);
+        int[] palette = new int[LEVELS];
+        for(int level = 0; level < LEVELS; level++) {
+            double position = (double) level / (LEVELS - 1) * (stops.length - 1);
+            int stop = Math.min(stops.length - 2, (int) position);
+            double t = position - stop;
+            int rgb = 0;
+            for(int shift = 0; shift <= 16; shift += 8) {
+                int from = (stops[stop] >> shift) & 0xFF;
+                int to = (stops[stop + 1] >> shift) & 0xFF;
+                rgb |= (int) Math.round(from + (to - from) * t) << shift;
+            }
+            palette[level] = 0xFF000000 | rgb;
+        }
+        return palette;
+    }
+}
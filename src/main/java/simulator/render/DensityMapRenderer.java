@@ -0,0 +1,51 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import simulator.physics.StateSnapshot;
+import simulator.physics.StepScheduler;
+
+/**
+ * DensityMapRenderer class - draws a frame as a DensityMap image instead of individual bodies.
+ * Render cost follows the number of screen pixels rather than the number of bodies.
+ */
+public class DensityMapRenderer implements Renderer {
+    private final StepScheduler scheduler;
+    private final DensityMap densityMap;
+    private final PixelImage image = new PixelImage();
+
+    public DensityMapRenderer() {
+        this(new StepScheduler(), 2);
+    }
+
+    /**
+     * Constructor
+     * @param scheduler scheduler that runs accumulation and tone mapping; shut down with the renderer
+     * @param cellSize width and height of one histogram cell in pixels
+     */
+    public DensityMapRenderer(StepScheduler scheduler, int cellSize) {
+        this.scheduler = scheduler;
+        this.densityMap = new DensityMap(scheduler, cellSize);
+    }
+
+    @Override
+    public void draw(
+            FrameInterpolator frame,
+            GraphicsContext graphicsContext,
+            Color backgroundColor,
+            Integer canvasWidth,
+            Integer canvasHeight,
+            Double scale
+    ) {
+        int[] pixels = image.ensureSize(canvasWidth, canvasHeight);
+        StateSnapshot snapshot = frame.getSnapshot();
+        densityMap.render(pixels, canvasWidth, canvasHeight, PixelImage.toArgb(backgroundColor),
+                frame.getPositions(), snapshot.getDimension(), snapshot.getCount(), scale);
+        image.drawTo(graphicsContext);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
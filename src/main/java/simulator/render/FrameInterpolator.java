@@ -0,0 +1,98 @@
+package simulator.render;
+
+import simulator.models.Body;
+import simulator.physics.SnapshotBuffer;
+import simulator.physics.StateSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * FrameInterpolator class - turns published snapshots into smooth per-frame positions.
+ * Each frame shows the state between the last two snapshots received, placed by how much of
+ * the gap between their publish times has elapsed since the newer one arrived. The display
+ * therefore trails the simulation by at most one snapshot interval but never jumps when the
+ * step rate and the frame rate beat against each other. Render thread only.
+ */
+public class FrameInterpolator {
+    private final SnapshotBuffer buffer;
+
+    private StateSnapshot latest;
+    private int previousCount = 0;
+    private long previousNanos;
+    private double[] previousPositions = new double[0];
+    private Body[] previousBodies = new Body[0];
+    private double[] positions = new double[0];
+
+    public FrameInterpolator(SnapshotBuffer buffer) {
+        this.buffer = buffer;
+        this.latest = buffer.acquire();
+        this.previousNanos = latest.getPublishedNanos();
+    }
+
+    /**
+     * Pick up any new snapshot and interpolate positions for a frame
+     * @param nowNanos System.nanoTime() of the frame
+     * @return number of particles in the frame
+     */
+    public int update(long nowNanos) {
+        if(buffer.hasFresh()) {
+            // the current snapshot goes back to the writer on acquire, so keep a copy of it
+            keepPrevious();
+            latest = buffer.acquire();
+        }
+        int count = latest.getCount();
+        int dimension = latest.getDimension();
+        int length = count * dimension;
+        if(positions.length < length) {
+            positions = new double[length];
+        }
+        double[] target = latest.getPositions();
+        long gap = latest.getPublishedNanos() - previousNanos;
+        double alpha = gap > 0 ? Math.min(1.0, (double) (nowNanos - latest.getPublishedNanos()) / gap) : 1.0;
+        alpha = Math.max(0.0, alpha);
+        for(int i = 0; i < count; i++) {
+            int offset = i * dimension;
+            // particles that were merged away or reshuffled have no previous position to start from
+            boolean matched = i < previousCount && previousBodies[i] == latest.getBody(i);
+            for(int dim = 0; dim < dimension; dim++) {
+                double to = target[offset + dim];
+                positions[offset + dim] = matched ? previousPositions[offset + dim] + (to - previousPositions[offset + dim]) * alpha : to;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Positions getter
+     * @return interpolated flat positions from the last update, component d of particle i at i * dimension + d
+     */
+    public double[] getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * Snapshot getter
+     * @return the newest snapshot, for radii, bodies and the step counter
+     */
+    public StateSnapshot getSnapshot() {
+        return this.latest;
+    }
+
+    private void keepPrevious() {
+        int count = latest.getCount();
+        int length = count * latest.getDimension();
+        if(previousPositions.length < length) {
+            previousPositions = new double[length];
+        }
+        if(previousBodies.length < count) {
+            previousBodies = new Body[count];
+        }
+        System.arraycopy(latest.getPositions(), 0, previousPositions, 0, length);
+        for(int i = 0; i < count; i++) {
+            previousBodies[i] = latest.getBody(i);
+        }
+        Arrays.fill(previousBodies, count, previousBodies.length, null);
+        previousCount = count;
+        previousNanos = latest.getPublishedNanos();
+    }
+}
@@ -0,0 +1,104 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import simulator.physics.StateSnapshot;
+
+/**
+ * LevelOfDetailRenderer class - switches between a per-body renderer and a density map.
+ * The density map takes over when there are more than maxBodies bodies or when zooming out
+ * shrinks the average body below minScreenRadius pixels, the point where drawing each body
+ * costs more than it shows. Switching back needs a 10% margin so the view does not flicker
+ * when the count or zoom sits on a threshold.
+ */
+public class LevelOfDetailRenderer implements Renderer {
+    private static final double HYSTERESIS = 0.1;
+
+    private final Renderer detailed;
+    private final Renderer density;
+    private int maxBodies;
+    private double minScreenRadius;
+    private boolean showingDensity = false;
+
+    /**
+     * Constructor
+     * @param detailed renderer that draws individual bodies
+     * @param density renderer used above the thresholds, usually a DensityMapRenderer
+     * @param maxBodies body count above which the density map is used
+     * @param minScreenRadius average on-screen radius in pixels below which the density map is used
+     */
+    public LevelOfDetailRenderer(Renderer detailed, Renderer density, int maxBodies, double minScreenRadius) {
+        this.detailed = detailed;
+        this.density = density;
+        setMaxBodies(maxBodies);
+        setMinScreenRadius(minScreenRadius);
+    }
+
+    public int getMaxBodies() {
+        return this.maxBodies;
+    }
+
+    public final void setMaxBodies(int maxBodies) {
+        if(maxBodies < 0) {
+            throw new IllegalArgumentException("Maximum body count must not be negative (currently " + maxBodies + ")");
+        }
+        this.maxBodies = maxBodies;
+    }
+
+    public double getMinScreenRadius() {
+        return this.minScreenRadius;
+    }
+
+    public final void setMinScreenRadius(double minScreenRadius) {
+        if(minScreenRadius < 0) {
+            throw new IllegalArgumentException("Minimum screen radius must not be negative (currently " + minScreenRadius + ")");
+        }
+        this.minScreenRadius = minScreenRadius;
+    }
+
+    /**
+     * Mode getter
+     * @return true if the last frame was drawn as a density map
+     */
+    public boolean isShowingDensity() {
+        return this.showingDensity;
+    }
+
+    @Override
+    public void draw(
+            FrameInterpolator frame,
+            GraphicsContext graphicsContext,
+            Color backgroundColor,
+            Integer canvasWidth,
+            Integer canvasHeight,
+            Double scale
+    ) {
+        StateSnapshot snapshot = frame.getSnapshot();
+        int count = snapshot.getCount();
+        double screenRadius = averageRadius(snapshot) * scale;
+        // enter density mode past a threshold, leave it only once clearly back inside
+        double margin = showingDensity ? 1 - HYSTERESIS : 1;
+        showingDensity = count > maxBodies * margin
+                || (count > 0 && screenRadius < minScreenRadius / margin);
+        (showingDensity ? density : detailed).draw(frame, graphicsContext, backgroundColor, canvasWidth, canvasHeight, scale);
+    }
+
+    @Override
+    public void shutdown() {
+        detailed.shutdown();
+        density.shutdown();
+    }
+
+    private static double averageRadius(StateSnapshot snapshot) {
+        int count = snapshot.getCount();
+        if(count == 0) {
+            return 0;
+        }
+        double[] radii = snapshot.getRadii();
+        double sum = 0;
+        for(int i = 0; i < count; i++) {
+            sum += radii[i];
+        }
+        return sum / count;
+    }
+}
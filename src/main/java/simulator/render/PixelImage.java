@@ -0,0 +1,61 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.nio.IntBuffer;
+
+/**
+ * PixelImage class - an int[] of premultiplied ARGB pixels shared with a WritableImage
+ * through a PixelBuffer, so CPU renderers can write pixels and present them without a copy.
+ */
+class PixelImage {
+    private int width = -1;
+    private int height = -1;
+    private int[] pixels;
+    private PixelBuffer<IntBuffer> pixelBuffer;
+    private WritableImage image;
+
+    /**
+     * Reallocate the pixels if the canvas size changed
+     * @param width canvas width in pixels
+     * @param height canvas height in pixels
+     * @return the pixel array, row-major
+     */
+    int[] ensureSize(int width, int height) {
+        if(width != this.width || height != this.height) {
+            this.width = width;
+            this.height = height;
+            this.pixels = new int[width * height];
+            this.pixelBuffer = new PixelBuffer<>(width, height, IntBuffer.wrap(pixels), PixelFormat.getIntArgbPreInstance());
+            this.image = new WritableImage(pixelBuffer);
+        }
+        return this.pixels;
+    }
+
+    /**
+     * Mark the whole image changed and draw it at the canvas origin. JavaFX thread only.
+     * @param graphicsContext canvas to draw on
+     */
+    void drawTo(GraphicsContext graphicsContext) {
+        pixelBuffer.updateBuffer(buffer -> null);
+        graphicsContext.drawImage(image, 0, 0);
+    }
+
+    /**
+     * Pack a color as premultiplied ARGB
+     * @param color the color to pack
+     * @return the packed pixel value
+     */
+    static int toArgb(Color color) {
+        double opacity = color.getOpacity();
+        int a = (int) Math.round(opacity * 255);
+        int r = (int) Math.round(color.getRed() * opacity * 255);
+        int g = (int) Math.round(color.getGreen() * opacity * 255);
+        int b = (int) Math.round(color.getBlue() * opacity * 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,94 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import simulator.models.Body;
+import simulator.models.DrawableBody;
+import simulator.physics.StateSnapshot;
+import simulator.physics.StepScheduler;
+
+import java.util.Arrays;
+
+/**
+ * PointSpriteRenderer class - rasterizes every body on the CPU into an IntBuffer-backed
+ * WritableImage and draws that image with a single canvas call.
+ * The image shares its int[] with a SpriteRasterizer, so a frame is one parallel pass over
+ * the pixels and one drawImage, whatever the number of bodies. Packed colors are cached
+ * per slot and only recomputed when a different body moves into the slot.
+ */
+public class PointSpriteRenderer implements Renderer {
+    private final StepScheduler scheduler;
+    private final SpriteRasterizer rasterizer;
+
+    private final PixelImage image = new PixelImage();
+
+    private Body[] cachedBodies = new Body[0];
+    private int[] fill = new int[0];
+    private int[] border = new int[0];
+    private double[] borderWidth = new double[0];
+
+    public PointSpriteRenderer() {
+        this(new StepScheduler());
+    }
+
+    /**
+     * Constructor
+     * @param scheduler scheduler that runs the row bands; shut down with the renderer
+     */
+    public PointSpriteRenderer(StepScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.rasterizer = new SpriteRasterizer(scheduler);
+    }
+
+    @Override
+    public void draw(
+            FrameInterpolator frame,
+            GraphicsContext graphicsContext,
+            Color backgroundColor,
+            Integer canvasWidth,
+            Integer canvasHeight,
+            Double scale
+    ) {
+        int[] pixels = image.ensureSize(canvasWidth, canvasHeight);
+        StateSnapshot snapshot = frame.getSnapshot();
+        int count = snapshot.getCount();
+        updateColors(snapshot, count);
+        rasterizer.rasterize(pixels, canvasWidth, canvasHeight, PixelImage.toArgb(backgroundColor),
+                frame.getPositions(), snapshot.getDimension(), snapshot.getRadii(), count,
+                fill, border, borderWidth, scale);
+        image.drawTo(graphicsContext);
+    }
+
+    @Override
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private void updateColors(StateSnapshot snapshot, int count) {
+        if(cachedBodies.length < count) {
+            Body[] grown = new Body[count];
+            System.arraycopy(cachedBodies, 0, grown, 0, cachedBodies.length);
+            cachedBodies = grown;
+            fill = Arrays.copyOf(fill, count);
+            border = Arrays.copyOf(border, count);
+            borderWidth = Arrays.copyOf(borderWidth, count);
+        }
+        for(int i = 0; i < count; i++) {
+            Body body = snapshot.getBody(i);
+            if(cachedBodies[i] == body) {
+                continue;
+            }
+            cachedBodies[i] = body;
+            if(body instanceof DrawableBody) {
+                DrawableBody drawable = (DrawableBody) body;
+                fill[i] = PixelImage.toArgb(drawable.getFillColor());
+                border[i] = PixelImage.toArgb(drawable.getBorderColor());
+                borderWidth[i] = drawable.getBorderWeight();
+            } else {
+                fill[i] = 0xFFFFFFFF;
+                border[i] = 0xFFFFFFFF;
+                borderWidth[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package simulator.render;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+/**
+ * Strategy for drawing one interpolated frame onto a canvas
+ */
+public interface Renderer {
+    /**
+     * Draw a frame, covering the whole canvas
+     * @param frame interpolated positions and the snapshot they came from
+     * @param graphicsContext canvas to draw on
+     * @param backgroundColor color of empty space
+     * @param canvasWidth canvas width in pixels
+     * @param canvasHeight canvas height in pixels
+     * @param scale pixels per world unit
+     */
+    void draw(
+            FrameInterpolator frame,
+            GraphicsContext graphicsContext,
+            Color backgroundColor,
+            Integer canvasWidth,
+            Integer canvasHeight,
+            Double scale
+    );
+
+    /**
+     * Release any worker threads held by the renderer
+     */
+    default void shutdown() {
+    }
+}
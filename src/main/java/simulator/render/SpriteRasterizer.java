@@ -0,0 +1,234 @@
+package simulator.render;
+
+import simulator.physics.StepScheduler;
+
+import java.util.Arrays;
+
+/**
+ * SpriteRasterizer class - draws filled, optionally outlined discs straight into an ARGB
+ * pixel array. Particles are projected in parallel, binned by the horizontal bands of rows
+ * they cover, and each band is then cleared and drawn by one task, so no two threads write
+ * the same pixel and bodies within a band keep their draw order. Binning copies each
+ * particle's screen geometry and colors into band order, so drawing a band streams through
+ * memory instead of chasing particle indices. Off-screen bodies are
+ * dropped during projection and bodies under a pixel across become single points.
+ * Has no JavaFX dependency; PointSpriteRenderer puts the pixels on screen.
+ */
+public class SpriteRasterizer {
+    private static final int BAND_HEIGHT = 16;
+
+    private final StepScheduler scheduler;
+
+    private double[] screenX = new double[0];
+    private double[] screenY = new double[0];
+    private double[] screenRadius = new double[0];
+    private int[] firstBand = new int[0];
+    private int[] lastBand = new int[0];
+    private int[] bandStart = new int[0];
+    // per particle block: items it contributes to each band, then where it writes them
+    private int[][] blockOffsets = new int[0][];
+    private double[] itemX = new double[0];
+    private double[] itemY = new double[0];
+    private double[] itemRadius = new double[0];
+    private double[] itemBorderWidth = new double[0];
+    private int[] itemFill = new int[0];
+    private int[] itemBorder = new int[0];
+
+    /**
+     * Constructor
+     * @param scheduler scheduler that runs the projection and the row bands
+     */
+    public SpriteRasterizer(StepScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Rasterize one frame
+     * @param pixels width * height pixels, row-major, premultiplied ARGB
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param background premultiplied ARGB every pixel is cleared to first
+     * @param positions flat world positions, component d of particle i at i * dimension + d
+     * @param dimension components per position; only the first two are drawn
+     * @param radii world radius per particle
+     * @param count number of particles
+     * @param fill premultiplied ARGB fill per particle
+     * @param border premultiplied ARGB outline per particle
+     * @param borderWidth outline width in pixels per particle, 0 for none
+     * @param scale pixels per world unit; world y points up, screen y down
+     */
+    public void rasterize(int[] pixels, int width, int height, int background,
+                          double[] positions, int dimension, double[] radii, int count,
+                          int[] fill, int[] border, double[] borderWidth, double scale) {
+        int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        int blockSize = scheduler.getChunkSize() * 4;
+        int blocks = (count + blockSize - 1) / blockSize;
+        prepare(count, bands, blocks);
+
+        // project, find the bands each visible particle covers and count them per block
+        scheduler.forEachChunk(blocks, 1, (fromBlock, toBlock) -> {
+            for(int block = fromBlock; block < toBlock; block++) {
+                int[] offsets = blockOffsets[block];
+                Arrays.fill(offsets, 0, bands, 0);
+                int end = Math.min(count, (block + 1) * blockSize);
+                for(int i = block * blockSize; i < end; i++) {
+                    double x = positions[i * dimension] * scale;
+                    double y = height - positions[i * dimension + 1] * scale;
+                    double r = radii[i] * scale + borderWidth[i] / 2;
+                    screenX[i] = x;
+                    screenY[i] = y;
+                    screenRadius[i] = r;
+                    if(x + r < 0 || x - r >= width || y + r < 0 || y - r >= height) {
+                        firstBand[i] = 1;
+                        lastBand[i] = 0;
+                        continue;
+                    }
+                    firstBand[i] = Math.max(0, (int) (y - r)) / BAND_HEIGHT;
+                    lastBand[i] = Math.min(height - 1, (int) (y + r)) / BAND_HEIGHT;
+                    for(int band = firstBand[i]; band <= lastBand[i]; band++) {
+                        offsets[band]++;
+                    }
+                }
+            }
+        });
+
+        // turn the counts into write offsets: band-major, then block order, so each band
+        // lists its particles in their original order
+        int items = 0;
+        for(int band = 0; band < bands; band++) {
+            bandStart[band] = items;
+            for(int block = 0; block < blocks; block++) {
+                int blockCount = blockOffsets[block][band];
+                blockOffsets[block][band] = items;
+                items += blockCount;
+            }
+        }
+        bandStart[bands] = items;
+        prepareItems(items);
+
+        // copy each particle's geometry and colors into band order
+        scheduler.forEachChunk(blocks, 1, (fromBlock, toBlock) -> {
+            for(int block = fromBlock; block < toBlock; block++) {
+                int[] offsets = blockOffsets[block];
+                int end = Math.min(count, (block + 1) * blockSize);
+                for(int i = block * blockSize; i < end; i++) {
+                    for(int band = firstBand[i]; band <= lastBand[i]; band++) {
+                        int k = offsets[band]++;
+                        itemX[k] = screenX[i];
+                        itemY[k] = screenY[i];
+                        itemRadius[k] = screenRadius[i];
+                        itemBorderWidth[k] = borderWidth[i];
+                        itemFill[k] = fill[i];
+                        itemBorder[k] = border[i];
+                    }
+                }
+            }
+        });
+
+        scheduler.forEachChunk(bands, 1, (from, to) -> {
+            for(int band = from; band < to; band++) {
+                int top = band * BAND_HEIGHT;
+                int bottom = Math.min(height, top + BAND_HEIGHT);
+                Arrays.fill(pixels, top * width, bottom * width, background);
+                for(int k = bandStart[band]; k < bandStart[band + 1]; k++) {
+                    drawDisc(pixels, width, top, bottom, k);
+                }
+            }
+        });
+    }
+
+    /**
+     * Private helper to draw the rows of one disc that fall inside [top, bottom).
+     * Pixel centres inside the inner radius take the fill, those between the inner and
+     * outer radius take the outline.
+     */
+    private void drawDisc(int[] pixels, int width, int top, int bottom, int k) {
+        double x = itemX[k];
+        double y = itemY[k];
+        double outer = itemRadius[k];
+        double borderWidth = itemBorderWidth[k];
+        int fill = itemFill[k];
+        int border = itemBorder[k];
+        if(outer < 0.5) {
+            int px = (int) Math.floor(x);
+            int py = (int) Math.floor(y);
+            if(py >= top && py < bottom && px >= 0 && px < width) {
+                pixels[py * width + px] = borderWidth > 0 ? border : fill;
+            }
+            return;
+        }
+        double inner = outer - borderWidth;
+        double outerSquared = outer * outer;
+        double innerSquared = inner > 0 ? inner * inner : 0;
+        int rowFrom = Math.max(top, (int) Math.ceil(y - outer - 0.5));
+        int rowTo = Math.min(bottom - 1, (int) Math.floor(y + outer - 0.5));
+        for(int row = rowFrom; row <= rowTo; row++) {
+            double dy = row + 0.5 - y;
+            double rest = outerSquared - dy * dy;
+            if(rest < 0) {
+                continue;
+            }
+            double half = Math.sqrt(rest);
+            int left = Math.max(0, (int) Math.ceil(x - half - 0.5));
+            int right = Math.min(width - 1, (int) Math.floor(x + half - 0.5));
+            if(left > right) {
+                continue;
+            }
+            int rowOffset = row * width;
+            double innerRest = innerSquared - dy * dy;
+            if(borderWidth <= 0) {
+                span(pixels, rowOffset + left, rowOffset + right, fill);
+            } else if(innerRest <= 0) {
+                span(pixels, rowOffset + left, rowOffset + right, border);
+            } else {
+                double innerHalf = Math.sqrt(innerRest);
+                int innerLeft = Math.max(left, (int) Math.ceil(x - innerHalf - 0.5));
+                int innerRight = Math.min(right, (int) Math.floor(x + innerHalf - 0.5));
+                span(pixels, rowOffset + left, rowOffset + right, border);
+                span(pixels, rowOffset + innerLeft, rowOffset + innerRight, fill);
+            }
+        }
+    }
+
+    /**
+     * Private helper to fill pixels [from, to]; most spans are a few pixels wide,
+     * where a plain loop beats Arrays.fill
+     */
+    private static void span(int[] pixels, int from, int to, int color) {
+        for(int p = from; p <= to; p++) {
+            pixels[p] = color;
+        }
+    }
+
+    private void prepareItems(int items) {
+        if(itemX.length < items) {
+            itemX = new double[items];
+            itemY = new double[items];
+            itemRadius = new double[items];
+            itemBorderWidth = new double[items];
+            itemFill = new int[items];
+            itemBorder = new int[items];
+        }
+    }
+
+    private void prepare(int count, int bands, int blocks) {
+        if(screenX.length < count) {
+            screenX = new double[count];
+            screenY = new double[count];
+            screenRadius = new double[count];
+            firstBand = new int[count];
+            lastBand = new int[count];
+        }
+        if(bandStart.length < bands + 1) {
+            bandStart = new int[bands + 1];
+            blockOffsets = new int[0][];
+        }
+        if(blockOffsets.length < blocks) {
+            int[][] grown = Arrays.copyOf(blockOffsets, blocks);
+            for(int block = blockOffsets.length; block < blocks; block++) {
+                grown[block] = new int[bandStart.length];
+            }
+            blockOffsets = grown;
+        }
+    }
+}